@@ -0,0 +1,52 @@
+package com.yagoutpay.sdk;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/** merchant_request plaintext assembly for the WEB and API flows. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AssembleBenchmark {
+    private final Types.TransactionDetails web = Fixtures.webDetails();
+    private final Types.TransactionDetails api = Fixtures.apiDetails();
+    private final RequestTemplate webTemplate = Fixtures.webTemplate();
+    private final RequestTemplate apiTemplate = Fixtures.apiTemplate();
+
+    @Benchmark
+    public String buildMerchantRequestPlain() {
+        return Assemble.buildMerchantRequestPlain(web);
+    }
+
+    @Benchmark
+    public String buildApiMerchantRequestPlain() {
+        return Assemble.buildApiMerchantRequestPlain(api);
+    }
+
+    /** What sendApi assembles: the defaults copy plus the full JSON. */
+    @Benchmark
+    public int apiMerchantRequestWithDefaults() {
+        return Assemble.apiMerchantRequest(Assemble.apiDetails(api, Fixtures.MERCHANT_ID)).size();
+    }
+
+    @Benchmark
+    public int templateMerchantRequest() {
+        return Assemble.merchantRequest(webTemplate.order("ORDER1760000000000", "199.00")
+                .customerEmail("customer@example.com")
+                .customerMobile("0912345678")
+                .build()).size();
+    }
+
+    @Benchmark
+    public int templateApiMerchantRequest() {
+        return Assemble.apiMerchantRequest(apiTemplate.order("ORDER1760000000000", "199.00")
+                .customerEmail("customer@example.com")
+                .customerMobile("0912345678")
+                .build()).size();
+    }
+}
@@ -0,0 +1,35 @@
+package com.yagoutpay.sdk;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/** End-to-end request building through the public Client API, without network I/O. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ClientBenchmark {
+    private final Client client = Fixtures.client();
+    private final Types.TransactionDetails details = Fixtures.webDetails();
+    private final Types.PaymentLinkPlain link = Fixtures.paymentLink();
+    private final Types.PaymentByLinkPlain byLink = Fixtures.paymentByLink();
+
+    @Benchmark
+    public Types.BuiltRequest build() {
+        return client.build(details);
+    }
+
+    @Benchmark
+    public Types.PaymentLinkEncodedBody buildPaymentLinkBody() throws Exception {
+        return client.buildPaymentLinkBody(link);
+    }
+
+    @Benchmark
+    public Types.PaymentLinkEncodedBody buildPaymentByLinkBody() throws Exception {
+        return client.buildPaymentByLinkBody(byLink);
+    }
+}
@@ -0,0 +1,43 @@
+package com.yagoutpay.sdk;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * AES-256-CBC at payload sizes seen in practice: a hash hex (64 B), a WEB
+ * merchant_request (~512 B), an API request (~1 KiB) and a link with an
+ * inline attachment (64 KiB).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CryptoBenchmark {
+    @Param({ "64", "512", "1024", "65536" })
+    public int size;
+
+    private String plain;
+    private String cipherText;
+
+    @Setup
+    public void setup() {
+        plain = Fixtures.payload(size);
+        cipherText = Crypto.aes256CbcEncrypt(plain, Fixtures.KEY);
+    }
+
+    @Benchmark
+    public String encrypt() {
+        return Crypto.aes256CbcEncrypt(plain, Fixtures.KEY);
+    }
+
+    @Benchmark
+    public String decrypt() {
+        return Crypto.aes256CbcDecrypt(cipherText, Fixtures.KEY);
+    }
+}
@@ -0,0 +1,145 @@
+package com.yagoutpay.sdk;
+
+/** Realistic inputs shared by the benchmarks. */
+final class Fixtures {
+    static final String KEY = "IG3CNW5uNrUO2mU2htUOWb9rgXCF7XMAXmL63d7wNZo=";
+    static final String MERCHANT_ID = "202508080001";
+
+    private Fixtures() {
+    }
+
+    static Client client() {
+        Client.Config cfg = new Client.Config();
+        cfg.merchantId = MERCHANT_ID;
+        cfg.encryptionKey = KEY;
+        return new Client(cfg);
+    }
+
+    static Types.TransactionDetails webDetails() {
+        return Types.TransactionDetails.builder()
+                .aggregatorId("yagout")
+                .merchantId(MERCHANT_ID)
+                .orderNumber("ORDER1760000000000")
+                .amount("199.00")
+                .country("ETH")
+                .currency("ETB")
+                .transactionType("SALE")
+                .successUrl("https://shop.example.com/checkout/success")
+                .failureUrl("https://shop.example.com/checkout/failure")
+                .channel("WEB")
+                .customerEmail("customer@example.com")
+                .customerMobile("0912345678")
+                .customerName("Abebe Kebede")
+                .billAddress("Bole Road 12")
+                .billCity("Addis Ababa")
+                .billCountry("ETH")
+                .itemCount("3")
+                .itemValue("199.00")
+                .itemCategory("retail")
+                .build();
+    }
+
+    static Types.TransactionDetails apiDetails() {
+        return Types.TransactionDetails.builder()
+                .aggregatorId("yagout")
+                .merchantId(MERCHANT_ID)
+                .orderNumber("ORDER1760000000000")
+                .amount("199.00")
+                .country("ETH")
+                .currency("ETB")
+                .transactionType("SALE")
+                .successUrl("")
+                .failureUrl("")
+                .channel("API")
+                .customerEmail("customer@example.com")
+                .customerMobile("0912345678")
+                .pgId(Constants.ApiDefaults.PG_ID)
+                .paymode(Constants.ApiDefaults.PAYMODE)
+                .schemeId(Constants.ApiDefaults.SCHEME_ID)
+                .walletType(Constants.ApiDefaults.WALLET_TYPE)
+                .build();
+    }
+
+    static RequestTemplate webTemplate() {
+        return Types.TransactionDetails.builder()
+                .aggregatorId("yagout")
+                .merchantId(MERCHANT_ID)
+                .country("ETH")
+                .currency("ETB")
+                .transactionType("SALE")
+                .successUrl("https://shop.example.com/checkout/success")
+                .failureUrl("https://shop.example.com/checkout/failure")
+                .channel("WEB")
+                .customerName("Abebe Kebede")
+                .billAddress("Bole Road 12")
+                .billCity("Addis Ababa")
+                .billCountry("ETH")
+                .itemCount("3")
+                .itemValue("199.00")
+                .itemCategory("retail")
+                .template();
+    }
+
+    static RequestTemplate apiTemplate() {
+        return Types.TransactionDetails.builder()
+                .aggregatorId("yagout")
+                .merchantId(MERCHANT_ID)
+                .country("ETH")
+                .currency("ETB")
+                .transactionType("SALE")
+                .successUrl("")
+                .failureUrl("")
+                .channel("API")
+                .pgId(Constants.ApiDefaults.PG_ID)
+                .paymode(Constants.ApiDefaults.PAYMODE)
+                .schemeId(Constants.ApiDefaults.SCHEME_ID)
+                .walletType(Constants.ApiDefaults.WALLET_TYPE)
+                .template();
+    }
+
+    static Types.PaymentLinkPlain paymentLink() {
+        Types.PaymentLinkPlain p = new Types.PaymentLinkPlain();
+        p.req_user_id = "yagou381";
+        p.me_code = MERCHANT_ID;
+        p.qr_transaction_amount = "250.00";
+        p.brandName = "Demo Product";
+        p.status = "ACTIVE";
+        p.storeName = "YP";
+        p.store_email = "store@example.com";
+        p.mobile_no = "0912345678";
+        p.successURL = "https://shop.example.com/checkout/success";
+        p.failureURL = "https://shop.example.com/checkout/failure";
+        return p;
+    }
+
+    static Types.PaymentByLinkPlain paymentByLink() {
+        Types.PaymentByLinkPlain p = new Types.PaymentByLinkPlain();
+        p.req_user_id = "yagou381";
+        p.me_id = MERCHANT_ID;
+        p.amount = "250.00";
+        p.order_id = "ORDER1760000000000";
+        p.product = "Custom Payment";
+        p.customer_email = "customer@example.com";
+        p.mobile_no = "0912345678";
+        p.first_name = "Demo";
+        p.last_name = "User";
+        p.dial_code = "+251";
+        p.expiry_date = "2025-10-15";
+        p.success_url = "https://shop.example.com/checkout/success";
+        p.failure_url = "https://shop.example.com/checkout/failure";
+        p.currency = "ETB";
+        p.country = "ETH";
+        p.media_type = new String[] { "API" };
+        return p;
+    }
+
+    /** ASCII JSON-ish text of exactly {@code size} bytes. */
+    static String payload(int size) {
+        StringBuilder sb = new StringBuilder(size);
+        String chunk = "{\"status\":\"SUCCESS\",\"orderNo\":\"ORDER1760000000000\",\"amount\":\"199.00\"}";
+        while (sb.length() < size)
+            sb.append(chunk);
+        sb.setLength(size);
+        return sb.toString();
+    }
+}
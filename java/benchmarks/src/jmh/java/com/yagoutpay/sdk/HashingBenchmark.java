@@ -0,0 +1,29 @@
+package com.yagoutpay.sdk;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/** Canonical hash input, SHA-256 hex and the fused hash-then-encrypt step. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class HashingBenchmark {
+    private final Types.TransactionDetails details = Fixtures.webDetails();
+    private final String hashInput = Hashing.buildHashInput(details);
+    private final CipherEngine engine = Crypto.engine(Fixtures.KEY);
+
+    @Benchmark
+    public String sha256Hex() {
+        return Hashing.sha256Hex(hashInput);
+    }
+
+    @Benchmark
+    public Hashing.Hashed hashAndEncrypt() {
+        return Hashing.hashAndEncrypt(details, engine);
+    }
+}
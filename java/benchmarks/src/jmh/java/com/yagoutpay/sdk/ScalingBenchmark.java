@@ -0,0 +1,53 @@
+package com.yagoutpay.sdk;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Throughput of one shared Client as threads are added. Flat per-thread
+ * throughput means the hot path has no shared contention.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ScalingBenchmark {
+    private final Client client = Fixtures.client();
+    private final Types.TransactionDetails details = Fixtures.webDetails();
+    private final Types.PaymentLinkPlain link = Fixtures.paymentLink();
+
+    @Benchmark
+    @Threads(1)
+    public Types.BuiltRequest build1() {
+        return client.build(details);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Types.BuiltRequest build4() {
+        return client.build(details);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Types.BuiltRequest buildMax() {
+        return client.build(details);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Types.PaymentLinkEncodedBody paymentLinkBody1() throws Exception {
+        return client.buildPaymentLinkBody(link);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Types.PaymentLinkEncodedBody paymentLinkBodyMax() throws Exception {
+        return client.buildPaymentLinkBody(link);
+    }
+}
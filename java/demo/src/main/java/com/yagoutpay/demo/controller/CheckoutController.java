@@ -1,20 +1,25 @@
 package com.yagoutpay.demo.controller;
 
 import com.yagoutpay.demo.dto.ApiResponse;
+import com.yagoutpay.demo.dto.CartItem;
 import com.yagoutpay.demo.dto.CheckoutRequest;
 import com.yagoutpay.demo.service.YagoutPayService;
+import com.yagoutpay.sdk.CallbackProcessor;
+import com.yagoutpay.sdk.Money;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
 
 @Controller
 public class CheckoutController {
+    private static final String CURRENCY = "ETB";
 
     @Autowired
     private YagoutPayService yagoutPayService;
@@ -60,7 +65,7 @@ public class CheckoutController {
             }
 
             if (order.isEmpty()) {
-                order = "ORDER_" + System.currentTimeMillis();
+                order = yagoutPayService.nextOrderNumber();
             }
 
             String baseUrl = httpRequest.getScheme() + "://" + httpRequest.getServerName() +
@@ -130,16 +135,10 @@ public class CheckoutController {
                 return new ApiResponse<>(false, "Cart is required");
             }
 
-            // Calculate total amount
-            int totalCents = request.getCart().stream()
-                    .mapToInt(item -> getPriceCents(item.getId()) * item.getQty())
-                    .sum();
-
-            if (totalCents <= 0) {
+            Money amount = cartTotal(request.getCart());
+            if (amount.isZero()) {
                 return new ApiResponse<>(false, "Cart is empty");
             }
-
-            String amount = String.format("%.2f", totalCents / 100.0);
             String baseUrl = httpRequest.getScheme() + "://" + httpRequest.getServerName() +
                     (httpRequest.getServerPort() != 80 && httpRequest.getServerPort() != 443
                             ? ":" + httpRequest.getServerPort()
@@ -171,17 +170,11 @@ public class CheckoutController {
                 return new ApiResponse<>(false, "Mobile is required for API mode");
             }
 
-            // Calculate total amount
-            int totalCents = request.getCart().stream()
-                    .mapToInt(item -> getPriceCents(item.getId()) * item.getQty())
-                    .sum();
-
-            if (totalCents <= 0) {
+            Money amount = cartTotal(request.getCart());
+            if (amount.isZero()) {
                 return new ApiResponse<>(false, "Cart is empty");
             }
 
-            String amount = String.format("%.2f", totalCents / 100.0);
-
             Map<String, Object> data = yagoutPayService.sendApiRequest(
                     amount,
                     request.getMobile(),
@@ -196,29 +189,79 @@ public class CheckoutController {
     }
 
     @PostMapping("/success")
-    public String success(@RequestParam Map<String, String> params, Model model) {
-        model.addAttribute("title", "Payment Success");
-        model.addAttribute("tone", "success");
-        model.addAttribute("raw", params);
-        return "callback";
+    public String success(@RequestParam Map<String, String> params, Model model,
+            HttpServletResponse response) {
+        return callback("Payment Success", "success", params, model, response);
     }
 
     @GetMapping("/failure")
-    public String failureGet(@RequestParam Map<String, String> params, Model model) {
-        model.addAttribute("title", "Payment Failed");
-        model.addAttribute("tone", "failure");
-        model.addAttribute("raw", params);
-        return "callback";
+    public String failureGet(@RequestParam Map<String, String> params, Model model,
+            HttpServletResponse response) {
+        return callback("Payment Failed", "failure", params, model, response);
     }
 
     @PostMapping("/failure")
-    public String failurePost(@RequestParam Map<String, String> params, Model model) {
-        model.addAttribute("title", "Payment Failed");
-        model.addAttribute("tone", "failure");
+    public String failurePost(@RequestParam Map<String, String> params, Model model,
+            HttpServletResponse response) {
+        return callback("Payment Failed", "failure", params, model, response);
+    }
+
+    /** Decrypted, hash-checked result of a callback once the workers have processed it. */
+    @GetMapping("/callbacks")
+    public String callbackResult(@RequestParam("order") String orderNumber, Model model) {
+        CallbackProcessor.Result result = yagoutPayService.callbackResult(orderNumber);
+        model.addAttribute("title", "Callback for order " + orderNumber);
+        model.addAttribute("orderNumber", orderNumber);
+        model.addAttribute("checked", true);
+        model.addAttribute("found", result != null);
+        if (result == null) {
+            model.addAttribute("tone", "failure");
+            model.addAttribute("raw", Map.of());
+            return "callback";
+        }
+        model.addAttribute("tone", "success");
+        model.addAttribute("raw", result.params);
+        model.addAttribute("hashStatus", result.hashStatus);
+        model.addAttribute("sections", result.sections);
+        model.addAttribute("undecryptable", result.undecryptable);
+        return "callback";
+    }
+
+    @GetMapping(value = "/metrics", produces = "text/plain")
+    @ResponseBody
+    public String metrics() {
+        return yagoutPayService.metricsSnapshot();
+    }
+
+    /**
+     * Hand the raw callback to the callback queue, which decrypts and verifies it
+     * off the request thread. A full queue answers a bare 503 so the gateway backs
+     * off; returning null with the response argument in scope skips the view.
+     */
+    private String callback(String title, String tone, Map<String, String> params, Model model,
+            HttpServletResponse response) {
+        if (!yagoutPayService.enqueueCallback(params)) {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader("Retry-After", "5");
+            return null;
+        }
+        model.addAttribute("title", title);
+        model.addAttribute("tone", tone);
         model.addAttribute("raw", params);
+        model.addAttribute("checked", false);
+        model.addAttribute("found", false);
         return "callback";
     }
 
+    /** Sum of price times quantity in minor units, so no rounding happens on the way to the gateway. */
+    private Money cartTotal(List<CartItem> cart) {
+        Money total = Money.ofMinor(0, CURRENCY);
+        for (CartItem item : cart) {
+            total = total.plus(Money.ofMinor(getPriceCents(item.getId()), CURRENCY).times(item.getQty()));
+        }
+        return total;
+    }
+
     private int getPriceCents(String id) {
         return switch (id) {
             case "coffee" -> 8500;
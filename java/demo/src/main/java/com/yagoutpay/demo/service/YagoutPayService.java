@@ -1,19 +1,35 @@
 package com.yagoutpay.demo.service;
 
+import com.yagoutpay.sdk.CallbackProcessor;
 import com.yagoutpay.sdk.Client;
 import com.yagoutpay.sdk.Constants;
+import com.yagoutpay.sdk.InMemoryMetrics;
+import com.yagoutpay.sdk.IngestPipeline;
+import com.yagoutpay.sdk.Money;
+import com.yagoutpay.sdk.OrderIds;
+import com.yagoutpay.sdk.RequestTemplate;
+import com.yagoutpay.sdk.SdkLogger;
 import com.yagoutpay.sdk.Types;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 
+import java.net.InetAddress;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 @Service
 public class YagoutPayService {
 
+    private static final Logger log = LoggerFactory.getLogger(YagoutPayService.class);
+
     @Value("${yagout.merchant.id:}")
     private String merchantId;
 
@@ -23,7 +39,27 @@ public class YagoutPayService {
     @Value("${yagout.allow.insecure.tls:true}")
     private boolean allowInsecureTls;
 
+    /** Distinct per instance, 0-1023; negative derives one from the host name. */
+    @Value("${yagout.node-id:-1}")
+    private int nodeId;
+
+    @Value("${yagout.callbacks.queue-capacity:10000}")
+    private int callbackQueueCapacity;
+
+    @Value("${yagout.callbacks.workers:2}")
+    private int callbackWorkers;
+
+    /** Verified callbacks kept for lookup by order number; the oldest is dropped beyond this. */
+    @Value("${yagout.callbacks.recent:1000}")
+    private int recentCallbackLimit;
+
+    private final InMemoryMetrics metrics = new InMemoryMetrics();
+    private Map<String, CallbackProcessor.Result> recentCallbacks;
     private Client client;
+    private CallbackProcessor callbacks;
+    private IngestPipeline<Map<String, String>> callbackIngest;
+    private OrderIds orderIds;
+    private RequestTemplate apiTemplate;
 
     @PostConstruct
     public void init() {
@@ -36,11 +72,94 @@ public class YagoutPayService {
         cfg.encryptionKey = merchantKey;
         cfg.environment = Constants.Environment.UAT;
         cfg.allowInsecureTls = allowInsecureTls;
+        cfg.logger = slf4jLogger();
+        cfg.metrics = metrics;
         client = new Client(cfg);
+        callbacks = new CallbackProcessor(merchantKey);
+        orderIds = new OrderIds(nodeId >= 0 ? nodeId : hostNodeId());
+        apiTemplate = Types.TransactionDetails.builder()
+                .aggregatorId("yagout")
+                .merchantId(merchantId)
+                .country("ETH")
+                .currency("ETB")
+                .transactionType("SALE")
+                .successUrl("")
+                .failureUrl("")
+                .channel("API")
+                .pgId(Constants.ApiDefaults.PG_ID)
+                .paymode(Constants.ApiDefaults.PAYMODE)
+                .schemeId(Constants.ApiDefaults.SCHEME_ID)
+                .walletType(Constants.ApiDefaults.WALLET_TYPE)
+                .template();
+
+        IngestPipeline.Config ingest = new IngestPipeline.Config();
+        ingest.name = "callbacks";
+        ingest.capacity = callbackQueueCapacity;
+        ingest.workers = callbackWorkers;
+        ingest.metrics = metrics;
+        ingest.logger = cfg.logger;
+        callbackIngest = new IngestPipeline<>(ingest, this::recordCallbacks);
+        int limit = recentCallbackLimit;
+        recentCallbacks = Collections.synchronizedMap(new LinkedHashMap<String, CallbackProcessor.Result>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CallbackProcessor.Result> eldest) {
+                return size() > limit;
+            }
+        });
+    }
+
+    private static int hostNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "localhost";
+        }
+        int id = Math.floorMod(host.hashCode(), OrderIds.MAX_NODE_ID + 1);
+        log.info("yagout.node-id not set, using {} derived from host {}", id, host);
+        return id;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        callbackIngest.close();
+        client.close();
+    }
+
+    /** New order number, unique across threads and instances with distinct node ids. */
+    public String nextOrderNumber() {
+        return orderIds.next();
+    }
+
+    /** Route SDK diagnostics to SLF4J so they follow logging.level.com.yagoutpay. */
+    private static SdkLogger slf4jLogger() {
+        return new SdkLogger() {
+            @Override
+            public boolean isEnabled(Level level) {
+                return switch (level) {
+                    case TRACE -> log.isTraceEnabled();
+                    case DEBUG -> log.isDebugEnabled();
+                    case INFO -> log.isInfoEnabled();
+                    case WARN -> log.isWarnEnabled();
+                    case ERROR -> log.isErrorEnabled();
+                };
+            }
+
+            @Override
+            public void log(Level level, String message, Throwable error) {
+                switch (level) {
+                    case TRACE -> log.trace(message, error);
+                    case DEBUG -> log.debug(message, error);
+                    case INFO -> log.info(message, error);
+                    case WARN -> log.warn(message, error);
+                    case ERROR -> log.error(message, error);
+                }
+            }
+        };
     }
 
-    public Map<String, Object> buildHostedForm(String amount, String baseUrl, String email, String mobile) {
-        String orderNo = "ORDER" + System.currentTimeMillis();
+    public Map<String, Object> buildHostedForm(Money amount, String baseUrl, String email, String mobile) {
+        String orderNo = orderIds.next();
 
         Types.TransactionDetails details = Types.TransactionDetails.builder()
                 .aggregatorId("yagout")
@@ -48,7 +167,6 @@ public class YagoutPayService {
                 .orderNumber(orderNo)
                 .amount(amount)
                 .country("ETH")
-                .currency("ETB")
                 .transactionType("SALE")
                 .successUrl(baseUrl + "/success")
                 .failureUrl(baseUrl + "/failure")
@@ -65,33 +183,18 @@ public class YagoutPayService {
                 "actionUrl", built.actionUrl);
     }
 
-    public Map<String, Object> sendApiRequest(String amount, String mobile, String email) throws Exception {
-        String orderNo = "ORDER" + System.currentTimeMillis();
-
-        Types.TransactionDetails details = Types.TransactionDetails.builder()
-                .aggregatorId("yagout")
-                .merchantId(merchantId)
-                .orderNumber(orderNo)
-                .amount(amount)
-                .country("ETH")
-                .currency("ETB")
-                .transactionType("SALE")
-                .successUrl("")
-                .failureUrl("")
-                .channel("API")
+    public Map<String, Object> sendApiRequest(Money amount, String mobile, String email) throws Exception {
+        Types.TransactionDetails details = apiTemplate.order(orderIds.next(), amount)
                 .customerMobile(mobile)
                 .customerEmail(email)
-                .pgId(Constants.ApiDefaults.PG_ID)
-                .paymode(Constants.ApiDefaults.PAYMODE)
-                .schemeId(Constants.ApiDefaults.SCHEME_ID)
-                .walletType(Constants.ApiDefaults.WALLET_TYPE)
                 .build();
 
-        Types.ApiRequestResult result = client.sendApi(details, null, true);
-        return Map.of(
-                "raw", result.raw,
-                "endpoint", result.endpoint,
-                "decryptedResponse", result.decryptedResponse);
+        Types.ApiRequestResult result = client.sendApi(details, null);
+        Map<String, Object> response = new HashMap<>();
+        response.put("raw", result.raw);
+        response.put("endpoint", result.endpoint);
+        putDecryption(response, result.decryption());
+        return response;
     }
 
     public Map<String, Object> sendPaymentLinkStatic(String amount, String email, String mobile, String successUrl,
@@ -106,7 +209,7 @@ public class YagoutPayService {
         Types.PaymentLinkPlain plain = new Types.PaymentLinkPlain();
         plain.req_user_id = "yagou381";
         plain.me_code = merchantId;
-        plain.qr_transaction_amount = amount;
+        plain.qrTransactionAmount(Money.parse(amount, "ETB"));
         plain.brandName = "Demo Product";
         plain.status = "ACTIVE";
         plain.storeName = "YP";
@@ -120,7 +223,7 @@ public class YagoutPayService {
         Map<String, Object> response = new HashMap<>();
         response.put("endpoint", result.endpoint);
         response.put("raw", result.raw);
-        response.put("decryptedResponse", result.decryptedResponse);
+        putDecryption(response, result.decryption());
         return response;
     }
 
@@ -129,7 +232,7 @@ public class YagoutPayService {
         Types.PaymentByLinkPlain plain = new Types.PaymentByLinkPlain();
         plain.req_user_id = "yagou381";
         plain.me_id = merchantId;
-        plain.amount = amount;
+        plain.amount(Money.parse(amount, "ETB"));
         plain.order_id = orderId;
         plain.product = product;
         plain.customer_email = email;
@@ -140,7 +243,6 @@ public class YagoutPayService {
         plain.expiry_date = expiry.isEmpty() ? "2025-10-15" : expiry;
         plain.success_url = successUrl;
         plain.failure_url = failureUrl;
-        plain.currency = "ETB";
         plain.country = "ETH";
         plain.media_type = new String[] { "API" };
 
@@ -149,7 +251,60 @@ public class YagoutPayService {
         Map<String, Object> response = new HashMap<>();
         response.put("endpoint", result.endpoint);
         response.put("raw", result.raw);
-        response.put("decryptedResponse", result.decryptedResponse);
+        putDecryption(response, result.decryption());
         return response;
     }
+
+    /**
+     * Queue the raw parameters posted to the success/failure URL; decryption,
+     * hash verification and the order update run on the callback workers.
+     * Returns false when the queue is full, in which case the gateway should
+     * retry later.
+     */
+    public boolean enqueueCallback(Map<String, String> params) {
+        try {
+            return callbackIngest.submit(params);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Worker side of the callback queue: verify each callback and keep the
+     * verified ones for {@link #callbackResult}. Unverified callbacks are only
+     * logged, so forged order numbers cannot push real results out.
+     */
+    private void recordCallbacks(List<Map<String, String>> batch) {
+        for (Map<String, String> params : batch) {
+            CallbackProcessor.Result r = callbacks.process(params);
+            if (!r.verified()) {
+                log.warn("Callback for order {} failed verification: {}", r.orderNumber, r.hashStatus);
+            } else if (r.orderNumber != null) {
+                recentCallbacks.put(r.orderNumber, r);
+            }
+        }
+        log.debug("Recorded {} callbacks, {} still queued", batch.size(), callbackIngest.depth());
+    }
+
+    /** Latest verified callback for the order, or null if none was processed recently. */
+    public CallbackProcessor.Result callbackResult(String orderNumber) {
+        return recentCallbacks.get(orderNumber);
+    }
+
+    /** Plain-text snapshot of SDK and callback queue metrics. */
+    public String metricsSnapshot() {
+        return metrics.render()
+                + "callbacks processed=" + callbackIngest.processed()
+                + " rejected=" + callbackIngest.rejected()
+                + " failed=" + callbackIngest.failed()
+                + " lag_ms=" + callbackIngest.lagNanos() / 1_000_000 + "\n";
+    }
+
+    private static void putDecryption(Map<String, Object> response, Types.Decryption decryption) {
+        response.put("decryptedResponse", decryption.value());
+        if (decryption.isFailure()) {
+            response.put("decryptError", decryption.error().getMessage());
+        }
+    }
 }
@@ -1,111 +1,359 @@
 package com.yagoutpay.sdk;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.nio.charset.StandardCharsets;
 
 /** Internal builders for WEB/API merchant_request strings. */
 final class Assemble {
+    private static final ThreadLocal<ByteSink> WEB_BUF = ThreadLocal.withInitial(() -> new ByteSink(1024));
+    private static final ThreadLocal<ByteSink> API_BUF = ThreadLocal.withInitial(() -> new ByteSink(1024));
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
     private Assemble() {
     }
 
-    private static String joinPipe(String... fields) {
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < fields.length; i++) {
-            if (i > 0)
-                sb.append('|');
-            sb.append(fields[i] == null ? "" : fields[i]);
+    /** Build the sectioned merchant_request string for WEB/MOBILE flows. */
+    static String buildMerchantRequestPlain(Types.TransactionDetails d) {
+        return merchantRequest(d).toString();
+    }
+
+    /**
+     * Write the sectioned merchant_request into this thread's reusable buffer
+     * and return it. The buffer is only valid until the next call on the same
+     * thread.
+     */
+    static ByteSink merchantRequest(Types.TransactionDetails d) {
+        ByteSink out = WEB_BUF.get();
+        out.reset();
+        writeMerchantRequest(d, out);
+        return out;
+    }
+
+    /**
+     * Write all nine {@code ~}-separated, {@code |}-joined sections in a single
+     * pass as UTF-8. Values containing a separator are rejected, except the
+     * callback URLs where {@code |} and {@code ~} are percent-encoded.
+     */
+    static void writeMerchantRequest(Types.TransactionDetails d, ByteSink out) {
+        if (d.template != null) {
+            d.template.writeWeb(d, out);
+            return;
+        }
+        field(out, d.aggregatorId, "aggregatorId");
+        out.write('|');
+        field(out, d.merchantId, "merchantId");
+        out.write('|');
+        field(out, d.orderNumber, "orderNumber");
+        out.write('|');
+        if (d.money() != null) {
+            out.write(d.money());
+        } else {
+            field(out, d.amount, "amount");
+        }
+        out.write('|');
+        field(out, d.country, "country");
+        out.write('|');
+        field(out, d.currency, "currency");
+        out.write('|');
+        field(out, d.transactionType, "transactionType");
+        out.write('|');
+        url(out, d.successUrl);
+        out.write('|');
+        url(out, d.failureUrl);
+        out.write('|');
+        field(out, d.channel, "channel");
+        out.write('~');
+
+        field(out, d.pgId, "pgId");
+        out.write('|');
+        field(out, d.paymode, "paymode");
+        out.write('|');
+        field(out, d.schemeId, "schemeId");
+        out.write('|');
+        field(out, d.walletType, "walletType");
+        out.write('~');
+
+        field(out, d.cardNumber, "cardNumber");
+        out.write('|');
+        field(out, d.expiryMonth, "expiryMonth");
+        out.write('|');
+        field(out, d.expiryYear, "expiryYear");
+        out.write('|');
+        field(out, d.cvv, "cvv");
+        out.write('|');
+        field(out, d.cardName, "cardName");
+        out.write('~');
+
+        field(out, d.customerName, "customerName");
+        out.write('|');
+        field(out, d.customerEmail, "customerEmail");
+        out.write('|');
+        field(out, d.customerMobile, "customerMobile");
+        out.write('|');
+        field(out, d.uniqueId, "uniqueId");
+        out.write('|');
+        field(out, d.isLoggedIn == null ? "Y" : d.isLoggedIn, "isLoggedIn");
+        out.write('~');
+
+        field(out, d.billAddress, "billAddress");
+        out.write('|');
+        field(out, d.billCity, "billCity");
+        out.write('|');
+        field(out, d.billState, "billState");
+        out.write('|');
+        field(out, d.billCountry, "billCountry");
+        out.write('|');
+        field(out, d.billZip, "billZip");
+        out.write('~');
+
+        field(out, d.shipAddress, "shipAddress");
+        out.write('|');
+        field(out, d.shipCity, "shipCity");
+        out.write('|');
+        field(out, d.shipState, "shipState");
+        out.write('|');
+        field(out, d.shipCountry, "shipCountry");
+        out.write('|');
+        field(out, d.shipZip, "shipZip");
+        out.write('|');
+        field(out, d.shipDays, "shipDays");
+        out.write('|');
+        field(out, d.addressCount, "addressCount");
+        out.write('~');
+
+        field(out, d.itemCount, "itemCount");
+        out.write('|');
+        field(out, d.itemValue, "itemValue");
+        out.write('|');
+        field(out, d.itemCategory, "itemCategory");
+        out.write('~');
+
+        // reserved section is always empty
+        out.write('~');
+
+        field(out, d.udf1, "udf1");
+        out.write('|');
+        field(out, d.udf2, "udf2");
+        out.write('|');
+        field(out, d.udf3, "udf3");
+        out.write('|');
+        field(out, d.udf4, "udf4");
+        out.write('|');
+        field(out, d.udf5, "udf5");
+    }
+
+    static void field(ByteSink out, String v, String name) {
+        if (v == null)
+            return;
+        if (v.indexOf('|') >= 0 || v.indexOf('~') >= 0) {
+            throw new IllegalArgumentException(name + " must not contain '|' or '~'");
         }
-        return sb.toString();
+        out.writeUtf8(v);
     }
 
-    /** Build the sectioned merchant_request string for WEB/MOBILE flows. */
-    static String buildMerchantRequestPlain(Types.TransactionDetails d) {
-        String txn = joinPipe(d.aggregatorId, d.merchantId, d.orderNumber, d.amount, d.country, d.currency,
-                d.transactionType, d.successUrl, d.failureUrl, d.channel);
-        String pg = joinPipe(d.pgId, d.paymode, d.schemeId, d.walletType);
-        String card = joinPipe(d.cardNumber, d.expiryMonth, d.expiryYear, d.cvv, d.cardName);
-        String cust = joinPipe(d.customerName, d.customerEmail, d.customerMobile, d.uniqueId,
-                d.isLoggedIn == null ? "Y" : d.isLoggedIn);
-        String bill = joinPipe(d.billAddress, d.billCity, d.billState, d.billCountry, d.billZip);
-        String ship = joinPipe(d.shipAddress, d.shipCity, d.shipState, d.shipCountry, d.shipZip, d.shipDays,
-                d.addressCount);
-        String item = joinPipe(d.itemCount, d.itemValue, d.itemCategory);
-        String reserved = "";
-        String udf = joinPipe(d.udf1, d.udf2, d.udf3, d.udf4, d.udf5);
-        return String.join("~", txn, pg, card, cust, bill, ship, item, reserved, udf);
+    private static void url(ByteSink out, String v) {
+        if (v == null)
+            return;
+        if (v.indexOf('|') < 0 && v.indexOf('~') < 0) {
+            out.writeUtf8(v);
+            return;
+        }
+        int from = 0;
+        for (int i = 0; i < v.length(); i++) {
+            char c = v.charAt(i);
+            if (c == '|' || c == '~') {
+                out.writeUtf8(v.substring(from, i));
+                out.write('%');
+                out.write('7');
+                out.write(c == '|' ? 'C' : 'E');
+                from = i + 1;
+            }
+        }
+        out.writeUtf8(v.substring(from));
     }
 
     /** Build the API JSON string with exact field names. */
     static String buildApiMerchantRequestPlain(Types.TransactionDetails d) {
-        try {
-            ObjectMapper om = new ObjectMapper();
-            ObjectNode root = om.createObjectNode();
-            ObjectNode card = root.putObject("card_details");
-            card.put("cardNumber", orEmpty(d.cardNumber));
-            card.put("expiryMonth", orEmpty(d.expiryMonth));
-            card.put("expiryYear", orEmpty(d.expiryYear));
-            card.put("cvv", orEmpty(d.cvv));
-            card.put("cardName", orEmpty(d.cardName));
-
-            ObjectNode other = root.putObject("other_details");
-            other.put("udf1", orEmpty(d.udf1));
-            other.put("udf2", orEmpty(d.udf2));
-            other.put("udf3", orEmpty(d.udf3));
-            other.put("udf4", orEmpty(d.udf4));
-            other.put("udf5", orEmpty(d.udf5));
-            other.put("udf6", orEmpty(d.udf6));
-            other.put("udf7", orEmpty(d.udf7));
-
-            ObjectNode ship = root.putObject("ship_details");
-            ship.put("shipAddress", orEmpty(d.shipAddress));
-            ship.put("shipCity", orEmpty(d.shipCity));
-            ship.put("shipState", orEmpty(d.shipState));
-            ship.put("shipCountry", orEmpty(d.shipCountry));
-            ship.put("shipZip", orEmpty(d.shipZip));
-            ship.put("shipDays", orEmpty(d.shipDays));
-            ship.put("addressCount", orEmpty(d.addressCount));
-
-            ObjectNode txn = root.putObject("txn_details");
-            txn.put("agId", d.aggregatorId);
-            txn.put("meId", d.merchantId);
-            txn.put("orderNo", d.orderNumber);
-            txn.put("amount", d.amount);
-            txn.put("country", d.country);
-            txn.put("currency", d.currency);
-            txn.put("transactionType", d.transactionType);
-            txn.put("successUrl", d.successUrl);
-            txn.put("failureUrl", d.failureUrl);
-            txn.put("channel", "API");
-
-            ObjectNode item = root.putObject("item_details");
-            item.put("itemCount", orEmpty(d.itemCount));
-            item.put("itemValue", orEmpty(d.itemValue));
-            item.put("itemCategory", orEmpty(d.itemCategory));
-
-            ObjectNode cust = root.putObject("cust_details");
-            cust.put("customerName", orEmpty(d.customerName));
-            cust.put("emailId", orEmpty(d.customerEmail));
-            cust.put("mobileNumber", orEmpty(d.customerMobile));
-            cust.put("uniqueId", orEmpty(d.uniqueId));
-            cust.put("isLoggedIn", orEmpty(d.isLoggedIn == null ? "Y" : d.isLoggedIn));
-
-            ObjectNode pg = root.putObject("pg_details");
-            pg.put("pg_Id", orEmpty(d.pgId));
-            pg.put("paymode", orEmpty(d.paymode));
-            pg.put("scheme_Id", orEmpty(d.schemeId));
-            pg.put("wallet_type", orEmpty(d.walletType));
-
-            ObjectNode bill = root.putObject("bill_details");
-            bill.put("billAddress", orEmpty(d.billAddress));
-            bill.put("billCity", orEmpty(d.billCity));
-            bill.put("billState", orEmpty(d.billState));
-            bill.put("billCountry", orEmpty(d.billCountry));
-            bill.put("billZip", orEmpty(d.billZip));
-
-            return om.writeValueAsString(root);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+        return apiMerchantRequest(d).toString();
+    }
+
+    /**
+     * Write the API JSON into this thread's reusable buffer and return it. The
+     * buffer is only valid until the next call on the same thread.
+     */
+    static ByteSink apiMerchantRequest(Types.TransactionDetails d) {
+        ByteSink out = API_BUF.get();
+        out.reset();
+        writeApiMerchantRequest(d, out);
+        return out;
+    }
+
+    /**
+     * Write the API JSON with exact field names and section order into
+     * {@code out}. The bytes are those of the former
+     * {@code ObjectMapper.writeValueAsString} output encoded as UTF-8, which
+     * Jackson's byte generators do not reproduce for characters outside the
+     * BMP, so the JSON is written directly.
+     */
+    static void writeApiMerchantRequest(Types.TransactionDetails d, ByteSink out) {
+        if (d.template != null) {
+            d.template.writeApi(d, out);
+            return;
+        }
+        member(out, "{\"card_details\":{\"cardNumber\":", orEmpty(d.cardNumber));
+        member(out, ",\"expiryMonth\":", orEmpty(d.expiryMonth));
+        member(out, ",\"expiryYear\":", orEmpty(d.expiryYear));
+        member(out, ",\"cvv\":", orEmpty(d.cvv));
+        member(out, ",\"cardName\":", orEmpty(d.cardName));
+
+        member(out, "},\"other_details\":{\"udf1\":", orEmpty(d.udf1));
+        member(out, ",\"udf2\":", orEmpty(d.udf2));
+        member(out, ",\"udf3\":", orEmpty(d.udf3));
+        member(out, ",\"udf4\":", orEmpty(d.udf4));
+        member(out, ",\"udf5\":", orEmpty(d.udf5));
+        member(out, ",\"udf6\":", orEmpty(d.udf6));
+        member(out, ",\"udf7\":", orEmpty(d.udf7));
+
+        member(out, "},\"ship_details\":{\"shipAddress\":", orEmpty(d.shipAddress));
+        member(out, ",\"shipCity\":", orEmpty(d.shipCity));
+        member(out, ",\"shipState\":", orEmpty(d.shipState));
+        member(out, ",\"shipCountry\":", orEmpty(d.shipCountry));
+        member(out, ",\"shipZip\":", orEmpty(d.shipZip));
+        member(out, ",\"shipDays\":", orEmpty(d.shipDays));
+        member(out, ",\"addressCount\":", orEmpty(d.addressCount));
+
+        // txn_details keeps nulls as JSON null, matching the former ObjectNode output.
+        member(out, "},\"txn_details\":{\"agId\":", d.aggregatorId);
+        member(out, ",\"meId\":", d.merchantId);
+        member(out, ",\"orderNo\":", d.orderNumber);
+        if (d.money() != null) {
+            out.writeUtf8(",\"amount\":\"");
+            out.write(d.money());
+            out.write('"');
+        } else {
+            member(out, ",\"amount\":", d.amount);
+        }
+        member(out, ",\"country\":", d.country);
+        member(out, ",\"currency\":", d.currency);
+        member(out, ",\"transactionType\":", d.transactionType);
+        member(out, ",\"successUrl\":", d.successUrl);
+        member(out, ",\"failureUrl\":", d.failureUrl);
+        member(out, ",\"channel\":", "API");
+
+        member(out, "},\"item_details\":{\"itemCount\":", orEmpty(d.itemCount));
+        member(out, ",\"itemValue\":", orEmpty(d.itemValue));
+        member(out, ",\"itemCategory\":", orEmpty(d.itemCategory));
+
+        member(out, "},\"cust_details\":{\"customerName\":", orEmpty(d.customerName));
+        member(out, ",\"emailId\":", orEmpty(d.customerEmail));
+        member(out, ",\"mobileNumber\":", orEmpty(d.customerMobile));
+        member(out, ",\"uniqueId\":", orEmpty(d.uniqueId));
+        member(out, ",\"isLoggedIn\":", orEmpty(d.isLoggedIn == null ? "Y" : d.isLoggedIn));
+
+        member(out, "},\"pg_details\":{\"pg_Id\":", orEmpty(d.pgId));
+        member(out, ",\"paymode\":", orEmpty(d.paymode));
+        member(out, ",\"scheme_Id\":", orEmpty(d.schemeId));
+        member(out, ",\"wallet_type\":", orEmpty(d.walletType));
+
+        member(out, "},\"bill_details\":{\"billAddress\":", orEmpty(d.billAddress));
+        member(out, ",\"billCity\":", orEmpty(d.billCity));
+        member(out, ",\"billState\":", orEmpty(d.billState));
+        member(out, ",\"billCountry\":", orEmpty(d.billCountry));
+        member(out, ",\"billZip\":", orEmpty(d.billZip));
+        out.write('}');
+        out.write('}');
+    }
+
+    /** Write the ASCII {@code prefix} (separators and the quoted name) followed by {@code value}. */
+    private static void member(ByteSink out, String prefix, String value) {
+        out.writeUtf8(prefix);
+        writeJsonString(out, value);
+    }
+
+    /**
+     * The details {@code sendApi} actually sends for {@code merchantId}: the
+     * API channel without callback URLs, and the default wallet where no
+     * payment gateway fields are set. Other optional fields are dropped.
+     */
+    static Types.TransactionDetails apiDetails(Types.TransactionDetails details, String merchantId) {
+        Types.TransactionDetails.Builder b = Types.TransactionDetails.builder()
+                .aggregatorId(details.aggregatorId)
+                .merchantId(merchantId)
+                .orderNumber(details.orderNumber);
+        if (details.money() != null) {
+            b.amount(details.money());
+        } else {
+            b.amount(details.amount);
+        }
+        return b
+                .country(details.country)
+                .currency(details.currency)
+                .transactionType(details.transactionType)
+                .successUrl("")
+                .failureUrl("")
+                .channel("API")
+                .customerEmail(details.customerEmail)
+                .customerMobile(details.customerMobile)
+                .pgId(details.pgId != null ? details.pgId : Constants.ApiDefaults.PG_ID)
+                .paymode(details.paymode != null ? details.paymode : Constants.ApiDefaults.PAYMODE)
+                .schemeId(details.schemeId != null ? details.schemeId : Constants.ApiDefaults.SCHEME_ID)
+                .walletType(details.walletType != null ? details.walletType : Constants.ApiDefaults.WALLET_TYPE)
+                .build();
+    }
+
+    /**
+     * Write {@code v} as a quoted JSON string, or {@code null}, with the bytes
+     * of {@code ObjectMapper.writeValueAsString} encoded as UTF-8: {@code "},
+     * {@code \\} and control characters escaped, everything else (including
+     * characters outside the BMP) as raw UTF-8, and unpaired surrogates as
+     * {@code ?}.
+     */
+    static void writeJsonString(ByteSink out, String v) {
+        if (v == null) {
+            out.write('n');
+            out.write('u');
+            out.write('l');
+            out.write('l');
+            return;
+        }
+        out.write('"');
+        int from = 0;
+        for (int i = 0; i < v.length(); i++) {
+            char c = v.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\')
+                continue;
+            out.writeUtf8(v, from, i);
+            out.write('\\');
+            switch (c) {
+                case '"':
+                case '\\':
+                    out.write(c);
+                    break;
+                case '\b':
+                    out.write('b');
+                    break;
+                case '\t':
+                    out.write('t');
+                    break;
+                case '\n':
+                    out.write('n');
+                    break;
+                case '\f':
+                    out.write('f');
+                    break;
+                case '\r':
+                    out.write('r');
+                    break;
+                default:
+                    out.write('u');
+                    out.write('0');
+                    out.write('0');
+                    out.write(HEX[c >> 4]);
+                    out.write(HEX[c & 0xF]);
+            }
+            from = i + 1;
         }
+        out.writeUtf8(v, from, v.length());
+        out.write('"');
     }
 
     private static String orEmpty(String v) {
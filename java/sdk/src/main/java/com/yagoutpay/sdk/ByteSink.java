@@ -0,0 +1,98 @@
+package com.yagoutpay.sdk;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Growable byte buffer meant to be reset and reused by one thread.
+ * Writes UTF-8 text directly, without an intermediate String or encoder.
+ */
+final class ByteSink extends OutputStream {
+    private byte[] buf;
+    private int size;
+
+    ByteSink(int initialCapacity) {
+        this.buf = new byte[initialCapacity];
+    }
+
+    void reset() {
+        size = 0;
+    }
+
+    /** Backing array; valid bytes are {@code [0, size())}. */
+    byte[] array() {
+        return buf;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void ensure(int extra) {
+        int need = size + extra;
+        if (need > buf.length)
+            buf = Arrays.copyOf(buf, Math.max(need, buf.length << 1));
+    }
+
+    @Override
+    public void write(int b) {
+        ensure(1);
+        buf[size++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        ensure(len);
+        System.arraycopy(b, off, buf, size, len);
+        size += len;
+    }
+
+    /** Append {@code m} as a plain decimal, formatted straight into the buffer. */
+    void write(Money m) {
+        ensure(Money.MAX_LENGTH);
+        size += m.format(buf, size);
+    }
+
+    /** Append {@code s} encoded as UTF-8; unpaired surrogates become '?' like String.getBytes. */
+    void writeUtf8(String s) {
+        writeUtf8(s, 0, s.length());
+    }
+
+    /** Append the chars {@code [from, to)} of {@code s} encoded as UTF-8. */
+    void writeUtf8(String s, int from, int to) {
+        ensure(to - from);
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                ensure(1);
+                buf[size++] = (byte) c;
+            } else if (c < 0x800) {
+                ensure(2);
+                buf[size++] = (byte) (0xc0 | (c >> 6));
+                buf[size++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < to && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                ensure(4);
+                buf[size++] = (byte) (0xf0 | (cp >> 18));
+                buf[size++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                buf[size++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                buf[size++] = (byte) (0x80 | (cp & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                ensure(1);
+                buf[size++] = '?';
+            } else {
+                ensure(3);
+                buf[size++] = (byte) (0xe0 | (c >> 12));
+                buf[size++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                buf[size++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+    }
+
+    /** Decode the buffered bytes as UTF-8. */
+    @Override
+    public String toString() {
+        return new String(buf, 0, size, StandardCharsets.UTF_8);
+    }
+}
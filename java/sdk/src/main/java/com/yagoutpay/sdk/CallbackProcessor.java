@@ -0,0 +1,263 @@
+package com.yagoutpay.sdk;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Verifies and decrypts what the gateway posts to the success and failure
+ * URLs. Encrypted sections are decrypted with the merchant's prepared cipher
+ * state, and the callback {@code hash} is checked against the SHA-256 of
+ * {@code me_id~order_no~amount~country~currency} using a constant-time
+ * comparison. The hash must be encrypted with the merchant key: a plain
+ * SHA-256 of public fields can be computed by anyone, so it is rejected.
+ * Instances are thread-safe.
+ */
+public final class CallbackProcessor {
+    /** Callback fields that carry AES-encrypted content. */
+    public static final List<String> ENCRYPTED_FIELDS = List.of("txn_response", "pg_details", "txn_details",
+            "other_details", "fraud_details", "card_details", "cust_details", "bill_details", "ship_details");
+
+    private static final String[] MERCHANT_ID = { "me_id", "meId", "merchantId" };
+    private static final String[] ORDER_NUMBER = { "order_no", "orderNo", "orderNumber" };
+    private static final String[] AMOUNT = { "amount" };
+    private static final String[] COUNTRY = { "country" };
+    private static final String[] CURRENCY = { "currency" };
+    /** Batches smaller than this are processed on the calling thread. */
+    private static final int PARALLEL_THRESHOLD = 64;
+
+    private final KeyProvider keys;
+
+    public CallbackProcessor(String base64Key) {
+        this(new KeyRing("default", base64Key));
+    }
+
+    public CallbackProcessor(KeyProvider keys) {
+        if (keys == null)
+            throw new IllegalArgumentException("keys cannot be null");
+        this.keys = keys;
+    }
+
+    /** Outcome of the hash check. */
+    public enum HashStatus {
+        /** The hash matches the order fields. */
+        VALID,
+        /** The hash does not match; treat the callback as forged or corrupted. */
+        MISMATCH,
+        /** The callback carries no hash. */
+        MISSING_HASH,
+        /** One of the order fields needed for the hash could not be found. */
+        MISSING_FIELDS,
+        /** The hash could not be decrypted with any accepted key. */
+        UNDECRYPTABLE,
+        /** The hash was sent as plain hex, which anyone can compute; treat the callback as forged. */
+        UNENCRYPTED
+    }
+
+    /** A processed callback. */
+    public static final class Result {
+        /** The parameters as posted. */
+        public final Map<String, String> params;
+        /** Plaintext of each encrypted field that decrypted, by field name. */
+        public final Map<String, String> sections;
+        /** Encrypted fields that could not be decrypted. */
+        public final Set<String> undecryptable;
+        public final String merchantId;
+        public final String orderNumber;
+        public final String amount;
+        public final String country;
+        public final String currency;
+        public final HashStatus hashStatus;
+
+        Result(Map<String, String> params, Map<String, String> sections, Set<String> undecryptable,
+                String[] order, HashStatus hashStatus) {
+            this.params = params;
+            this.sections = Collections.unmodifiableMap(sections);
+            this.undecryptable = Collections.unmodifiableSet(undecryptable);
+            this.merchantId = order[0];
+            this.orderNumber = order[1];
+            this.amount = order[2];
+            this.country = order[3];
+            this.currency = order[4];
+            this.hashStatus = hashStatus;
+        }
+
+        /** True when the hash matched, so the order fields can be trusted. */
+        public boolean verified() {
+            return hashStatus == HashStatus.VALID;
+        }
+    }
+
+    /**
+     * Decrypt and verify one callback. Order fields are read only from the
+     * decrypted sections, never from the plain parameters: JSON objects (top
+     * level or one level down), or a pipe-delimited {@code txn_response} in
+     * the request's {@code ag_id|me_id|order_no|amount|country|currency} order.
+     */
+    public Result process(Map<String, String> params) {
+        Map<String, String> sections = new LinkedHashMap<>();
+        Set<String> undecryptable = new LinkedHashSet<>();
+        decryptSections(params, sections, undecryptable);
+        Map<String, String> fields = new HashMap<>();
+        for (Map.Entry<String, String> e : sections.entrySet())
+            collectFields(e.getKey(), e.getValue(), fields);
+        String[] order = {
+                first(fields, MERCHANT_ID), first(fields, ORDER_NUMBER), first(fields, AMOUNT),
+                first(fields, COUNTRY), first(fields, CURRENCY) };
+        return new Result(params, sections, undecryptable, order, checkHash(params.get("hash"), order));
+    }
+
+    /**
+     * Decrypt one callback and verify its hash against the order the merchant
+     * actually sent, rather than against fields taken from the callback.
+     */
+    public Result process(Map<String, String> params, Types.TransactionDetails expected) {
+        Map<String, String> sections = new LinkedHashMap<>();
+        Set<String> undecryptable = new LinkedHashSet<>();
+        decryptSections(params, sections, undecryptable);
+        String[] order = { expected.merchantId, expected.orderNumber, expected.amount, expected.country,
+                expected.currency };
+        return new Result(params, sections, undecryptable, order, checkHash(params.get("hash"), order));
+    }
+
+    /**
+     * Process a batch, for example when replaying stored callbacks. Large
+     * batches are split into chunks that run in parallel on the common pool;
+     * results keep the input order.
+     */
+    public List<Result> processAll(List<? extends Map<String, String>> batch) {
+        return processAll(batch, ForkJoinPool.commonPool());
+    }
+
+    /** {@link #processAll(List)} on {@code executor}. */
+    public List<Result> processAll(List<? extends Map<String, String>> batch, Executor executor) {
+        int n = batch.size();
+        Result[] out = new Result[n];
+        if (n < PARALLEL_THRESHOLD) {
+            for (int i = 0; i < n; i++)
+                out[i] = process(batch.get(i));
+            return List.of(out);
+        }
+        // A few chunks per core keeps workers busy without a task per callback.
+        int chunks = Math.min(n / (PARALLEL_THRESHOLD / 4), Runtime.getRuntime().availableProcessors() * 4);
+        int size = (n + chunks - 1) / chunks;
+        List<CompletableFuture<Void>> tasks = new ArrayList<>(chunks);
+        for (int from = 0; from < n; from += size) {
+            int lo = from;
+            int hi = Math.min(n, from + size);
+            tasks.add(CompletableFuture.runAsync(() -> {
+                for (int i = lo; i < hi; i++)
+                    out[i] = process(batch.get(i));
+            }, executor));
+        }
+        CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).join();
+        return List.of(out);
+    }
+
+    private void decryptSections(Map<String, String> params, Map<String, String> sections,
+            Set<String> undecryptable) {
+        for (String name : ENCRYPTED_FIELDS) {
+            String value = params.get(name);
+            if (value == null || value.isEmpty())
+                continue;
+            try {
+                byte[] plain = Crypto.decrypt(keys, Base64.getMimeDecoder().decode(value));
+                sections.put(name, new String(plain, StandardCharsets.UTF_8));
+            } catch (RuntimeException e) {
+                undecryptable.add(name);
+            }
+        }
+    }
+
+    private HashStatus checkHash(String received, String[] order) {
+        if (received == null || received.isEmpty())
+            return HashStatus.MISSING_HASH;
+        if (isHex64(received))
+            return HashStatus.UNENCRYPTED;
+        for (String f : order) {
+            if (f == null)
+                return HashStatus.MISSING_FIELDS;
+        }
+        byte[] actual;
+        try {
+            actual = Crypto.decrypt(keys, Base64.getMimeDecoder().decode(received));
+        } catch (RuntimeException e) {
+            return HashStatus.UNDECRYPTABLE;
+        }
+        for (int i = 0; i < actual.length; i++) {
+            if (actual[i] >= 'A' && actual[i] <= 'F')
+                actual[i] += 'a' - 'A';
+        }
+        byte[] expected = Hashing.hashHex(order[0], order[1], order[2], order[3], order[4]);
+        return MessageDigest.isEqual(expected, actual) ? HashStatus.VALID : HashStatus.MISMATCH;
+    }
+
+    private static boolean isHex64(String s) {
+        if (s.length() != 64)
+            return false;
+        for (int i = 0; i < 64; i++) {
+            if (Character.digit(s.charAt(i), 16) < 0)
+                return false;
+        }
+        return true;
+    }
+
+    /** Add order fields found in one decrypted section; earlier values win. */
+    private static void collectFields(String section, String plain, Map<String, String> fields) {
+        String text = plain.trim();
+        if (text.startsWith("{")) {
+            try (JsonParser p = ResponseCodec.JSON.createParser(text)) {
+                p.nextToken();
+                collectJson(p, fields, 0);
+            } catch (IOException e) {
+                // Not JSON after all; nothing to collect.
+            }
+        } else if (section.equals("txn_response")) {
+            String[] parts = text.split("\\|", -1);
+            if (parts.length >= 6) {
+                fields.putIfAbsent("me_id", parts[1]);
+                fields.putIfAbsent("order_no", parts[2]);
+                fields.putIfAbsent("amount", parts[3]);
+                fields.putIfAbsent("country", parts[4]);
+                fields.putIfAbsent("currency", parts[5]);
+            }
+        }
+    }
+
+    private static void collectJson(JsonParser p, Map<String, String> fields, int depth) throws IOException {
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            JsonToken v = p.nextToken();
+            if (v == JsonToken.START_OBJECT && depth == 0) {
+                collectJson(p, fields, 1);
+            } else if (v == JsonToken.START_OBJECT || v == JsonToken.START_ARRAY) {
+                p.skipChildren();
+            } else if (v != JsonToken.VALUE_NULL) {
+                fields.putIfAbsent(name, p.getValueAsString());
+            }
+        }
+    }
+
+    private static String first(Map<String, String> fields, String[] names) {
+        for (String n : names) {
+            String v = fields.get(n);
+            if (v != null && !v.isEmpty())
+                return v;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,153 @@
+package com.yagoutpay.sdk;
+
+import javax.crypto.Cipher;
+import javax.crypto.CipherOutputStream;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * AES-256-CBC engine bound to a single merchant key.
+ * Key material is decoded once and initialized {@link Cipher} instances are
+ * reused through a {@link ThreadCache}, so repeated calls skip provider lookup
+ * and key setup.
+ */
+final class CipherEngine {
+    private static final int BLOCK = 16;
+    private static final byte[] IV = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final SecretKeySpec keySpec;
+    private final ThreadCache<Cipher> encryptor;
+    private final ThreadCache<Cipher> decryptor;
+
+    CipherEngine(String base64Key) {
+        if (base64Key == null) {
+            throw new IllegalArgumentException("encryptionKey cannot be null");
+        }
+        this.keySpec = new SecretKeySpec(Base64.getDecoder().decode(base64Key), "AES");
+        this.encryptor = new ThreadCache<>(() -> newCipher(Cipher.ENCRYPT_MODE));
+        this.decryptor = new ThreadCache<>(() -> newCipher(Cipher.DECRYPT_MODE));
+    }
+
+    private Cipher newCipher(int mode) {
+        try {
+            Cipher cipher = Cipher.getInstance("AES/CBC/NoPadding");
+            cipher.init(mode, keySpec, new IvParameterSpec(IV));
+            return cipher;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /** Encrypt UTF-8 text and return base64 cipher text. */
+    String encrypt(String plain) {
+        byte[] in = plain.getBytes(StandardCharsets.UTF_8);
+        return encrypt(in, 0, in.length);
+    }
+
+    /** Encrypt the current contents of a reusable buffer and return base64 cipher text. */
+    String encrypt(ByteSink in) {
+        return encrypt(in.array(), 0, in.size());
+    }
+
+    /** Encrypt {@code len} bytes of {@code in} starting at {@code off} and return base64 cipher text. */
+    String encrypt(byte[] in, int off, int len) {
+        return Base64.getEncoder().encodeToString(encryptBytes(in, off, len));
+    }
+
+    /**
+     * Encrypt with PKCS7 padding. Whole blocks are fed straight from the input
+     * and only the final block is padded, so no padded copy of the input is made.
+     */
+    byte[] encryptBytes(byte[] in, int off, int len) {
+        int full = len - (len % BLOCK);
+        int padLen = BLOCK - (len - full);
+        byte[] last = new byte[BLOCK];
+        System.arraycopy(in, off + full, last, 0, len - full);
+        for (int i = len - full; i < BLOCK; i++)
+            last[i] = (byte) padLen;
+
+        byte[] out = new byte[full + BLOCK];
+        Cipher cipher = encryptor.acquire();
+        try {
+            int n = full > 0 ? cipher.update(in, off, full, out, 0) : 0;
+            cipher.doFinal(last, 0, BLOCK, out, n);
+        } catch (Exception e) {
+            // A failed doFinal can leave the cipher mid-stream; start over next time.
+            encryptor.discard(cipher);
+            throw new RuntimeException(e);
+        }
+        encryptor.release(cipher);
+        return out;
+    }
+
+    /**
+     * Stream that encrypts what is written to it into {@code out}, with the
+     * same PKCS7 padding as {@link #encryptBytes} applied on close. Each call
+     * gets its own cipher, so the stream may be written from any thread.
+     */
+    OutputStream encryptingStream(OutputStream out) {
+        try {
+            // PKCS5Padding is PKCS7 for AES' 16-byte blocks.
+            Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+            cipher.init(Cipher.ENCRYPT_MODE, keySpec, new IvParameterSpec(IV));
+            return new CipherOutputStream(out, cipher);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /** Decrypt base64 cipher text and return UTF-8 text. */
+    String decrypt(String base64Cipher) {
+        return new String(decryptBytes(Base64.getDecoder().decode(base64Cipher)), StandardCharsets.UTF_8);
+    }
+
+    /** Decrypt raw cipher bytes and strip PKCS7 padding. */
+    byte[] decryptBytes(byte[] cipherText) {
+        byte[] dec = doFinal(cipherText);
+        int padLen = dec[dec.length - 1] & 0xff;
+        byte[] out = new byte[dec.length - padLen];
+        System.arraycopy(dec, 0, out, 0, out.length);
+        return out;
+    }
+
+    /**
+     * Like {@link #decryptBytes} but rejects plaintext that does not look like
+     * it came from this key: malformed PKCS7 padding or invalid UTF-8.
+     */
+    byte[] decryptVerified(byte[] cipherText) {
+        byte[] dec = doFinal(cipherText);
+        int padLen = dec.length > 0 ? dec[dec.length - 1] & 0xff : 0;
+        if (padLen < 1 || padLen > BLOCK)
+            throw new IllegalArgumentException("Bad padding; wrong key?");
+        for (int i = dec.length - padLen; i < dec.length; i++) {
+            if ((dec[i] & 0xff) != padLen)
+                throw new IllegalArgumentException("Bad padding; wrong key?");
+        }
+        try {
+            StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(dec, 0, dec.length - padLen));
+        } catch (CharacterCodingException e) {
+            throw new IllegalArgumentException("Plaintext is not UTF-8; wrong key?", e);
+        }
+        byte[] out = new byte[dec.length - padLen];
+        System.arraycopy(dec, 0, out, 0, out.length);
+        return out;
+    }
+
+    private byte[] doFinal(byte[] cipherText) {
+        Cipher cipher = decryptor.acquire();
+        byte[] dec;
+        try {
+            dec = cipher.doFinal(cipherText);
+        } catch (Exception e) {
+            decryptor.discard(cipher);
+            throw new RuntimeException(e);
+        }
+        decryptor.release(cipher);
+        return dec;
+    }
+}
@@ -0,0 +1,189 @@
+package com.yagoutpay.sdk;
+
+import java.time.Duration;
+
+/**
+ * Count-based circuit breaker for one gateway endpoint. The last
+ * {@link Config#windowSize} calls are tracked; once at least
+ * {@link Config#minimumCalls} are recorded and either the failure rate or the
+ * slow-call rate reaches its threshold, the circuit opens and calls fail fast
+ * with {@link OpenException}. After {@link Config#openDuration} a limited
+ * number of probe calls are let through (half-open); their outcome decides
+ * whether the circuit closes or opens again. Outcomes of calls admitted
+ * before the last state change are ignored, so a slow call from the closed
+ * period cannot count as a probe.
+ */
+public final class CircuitBreaker {
+    /** Circuit states. */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /** Configuration for {@link CircuitBreaker}. */
+    public static final class Config {
+        /** Number of most recent calls the rates are computed over. */
+        public int windowSize = 50;
+        /** Calls required in the window before the rates are evaluated. */
+        public int minimumCalls = 20;
+        /** Failure rate, from 0 to 1, at which the circuit opens. */
+        public double failureRateThreshold = 0.5;
+        /** Slow-call rate, from 0 to 1, at which the circuit opens. */
+        public double slowCallRateThreshold = 0.8;
+        /** Calls taking at least this long count as slow. */
+        public Duration slowCallDuration = Duration.ofSeconds(10);
+        /** How long the circuit stays open before probing. */
+        public Duration openDuration = Duration.ofSeconds(30);
+        /** Probe calls permitted while half-open. */
+        public int halfOpenProbes = 3;
+    }
+
+    /** Thrown instead of calling an endpoint whose circuit is open. */
+    public static final class OpenException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public OpenException(String endpoint) {
+            super("Circuit open for " + endpoint);
+        }
+    }
+
+    private static final byte FAILED = 1;
+    private static final byte SLOW = 2;
+
+    private final String name;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final double slowCallRateThreshold;
+    private final long slowNanos;
+    private final long openNanos;
+    private final int halfOpenProbes;
+
+    private final byte[] window;
+    private int next;
+    private int count;
+    private int failures;
+    private int slows;
+
+    private volatile State state = State.CLOSED;
+    /** Bumped on every state change; permits from an earlier generation are stale. */
+    private long generation;
+    private long openedAt;
+    private int probesIssued;
+    private int probesDone;
+    private int probeFailures;
+    private int probeSlows;
+
+    CircuitBreaker(String name, Config cfg) {
+        this.name = name;
+        this.window = new byte[Math.max(1, cfg.windowSize)];
+        this.minimumCalls = Math.max(1, Math.min(cfg.minimumCalls, window.length));
+        this.failureRateThreshold = cfg.failureRateThreshold;
+        this.slowCallRateThreshold = cfg.slowCallRateThreshold;
+        this.slowNanos = cfg.slowCallDuration.toNanos();
+        this.openNanos = cfg.openDuration.toNanos();
+        this.halfOpenProbes = Math.max(1, cfg.halfOpenProbes);
+    }
+
+    /** Endpoint this breaker guards. */
+    public String name() {
+        return name;
+    }
+
+    /** Current state; an expired open circuit reports OPEN until the next call probes it. */
+    public State state() {
+        return state;
+    }
+
+    /** Failure rate over the current window, from 0 to 1. */
+    public synchronized double failureRate() {
+        return count == 0 ? 0 : (double) failures / count;
+    }
+
+    /** Slow-call rate over the current window, from 0 to 1. */
+    public synchronized double slowCallRate() {
+        return count == 0 ? 0 : (double) slows / count;
+    }
+
+    /**
+     * Take a permit for one call or throw {@link OpenException}. The returned
+     * permit is handed back to {@link #record} or {@link #release}.
+     */
+    synchronized long acquire() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openNanos)
+                throw new OpenException(name);
+            state = State.HALF_OPEN;
+            generation++;
+            probesIssued = probesDone = probeFailures = probeSlows = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesIssued >= halfOpenProbes)
+                throw new OpenException(name);
+            probesIssued++;
+        }
+        return generation;
+    }
+
+    /** Return a permit without recording an outcome, e.g. for a cancelled call. */
+    synchronized void release(long permit) {
+        if (permit == generation && state == State.HALF_OPEN && probesIssued > probesDone)
+            probesIssued--;
+    }
+
+    /** Record the outcome of a permitted call; ignored if the state changed since it was admitted. */
+    synchronized void record(long permit, boolean failed, long elapsedNanos) {
+        if (permit != generation)
+            return;
+        boolean slow = elapsedNanos >= slowNanos;
+        if (state == State.HALF_OPEN) {
+            probesDone++;
+            if (failed)
+                probeFailures++;
+            if (slow)
+                probeSlows++;
+            if (probesDone >= halfOpenProbes) {
+                if ((double) probeFailures / probesDone >= failureRateThreshold
+                        || (double) probeSlows / probesDone >= slowCallRateThreshold) {
+                    open();
+                } else {
+                    close();
+                }
+            }
+            return;
+        }
+        if (state == State.OPEN)
+            return;
+
+        if (count == window.length) {
+            byte old = window[next];
+            if ((old & FAILED) != 0)
+                failures--;
+            if ((old & SLOW) != 0)
+                slows--;
+        } else {
+            count++;
+        }
+        window[next] = (byte) ((failed ? FAILED : 0) | (slow ? SLOW : 0));
+        next = (next + 1) % window.length;
+        if (failed)
+            failures++;
+        if (slow)
+            slows++;
+
+        if (count >= minimumCalls && ((double) failures / count >= failureRateThreshold
+                || (double) slows / count >= slowCallRateThreshold)) {
+            open();
+        }
+    }
+
+    private void open() {
+        state = State.OPEN;
+        generation++;
+        openedAt = System.nanoTime();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        generation++;
+        next = count = failures = slows = 0;
+    }
+}
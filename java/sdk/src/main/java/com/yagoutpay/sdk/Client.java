@@ -1,167 +1,369 @@
 package com.yagoutpay.sdk;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.Map;
-import javax.net.ssl.SSLContext;
-import javax.net.ssl.TrustManager;
-import javax.net.ssl.X509TrustManager;
-import java.security.cert.X509Certificate;
-import java.security.SecureRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 
 /**
  * YagoutPay client for building hosted form payloads and sending API requests.
  */
-public final class Client {
+public final class Client implements AutoCloseable {
     private final String merchantId;
-    private final String encryptionKey;
     private final Constants.Environment environment;
     private final String actionUrlOverride;
+    private final Duration requestTimeout;
     private final HttpClient http;
+    private final Executor executor;
+    /** Transport created from this client's settings; null when {@link Config#transport} was given. */
+    private final Transport ownTransport;
+    private final KeyProvider keys;
+    private final RetryPolicy retry;
+    private final CircuitBreaker.Config breakerConfig;
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final Semaphore bulkhead;
+    private final SdkLogger log;
+    private final Metrics metrics;
+    private final boolean timed;
+    private final ResponseCodec codec;
+    private final Coalescer<String, Types.ApiRequestResult> duplicates;
+    private final PaymentLinkCache linkCache;
+    private final OrderLedger ledger;
+    private final int linkStreamingThreshold;
 
     private static final ObjectMapper OM = new ObjectMapper();
+    /** Static link body around the Base64 cipher text, as {@code OM} writes {@code {"request": ...}}. */
+    private static final byte[] LINK_BODY_PREFIX = "{\"request\":\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LINK_BODY_SUFFIX = "\"}".getBytes(StandardCharsets.US_ASCII);
 
     /** Configuration for {@link Client}. */
     public static final class Config {
         public String merchantId;
+        /** Base64 merchant key; ignored when {@link #keyProvider} is set. */
         public String encryptionKey;
+        /** Versioned keys that can be rotated without rebuilding the client. */
+        public KeyProvider keyProvider;
         public Constants.Environment environment = Constants.Environment.UAT;
         public String actionUrlOverride;
         public boolean allowInsecureTls = false;
+        /** Per-request timeout applied to every gateway call, blocking or async. */
+        public Duration requestTimeout = Duration.ofSeconds(30);
+        /** TCP/TLS connect timeout of the underlying HttpClient. */
+        public Duration connectTimeout = Duration.ofSeconds(20);
+        /** Preferred HTTP version; HTTP/2 falls back to HTTP/1.1 when the server does not offer it. */
+        public HttpClient.Version httpVersion = HttpClient.Version.HTTP_2;
+        /**
+         * Executor for HttpClient callbacks and async stages. When null the JDK
+         * default (an unbounded cached pool) and the common pool are used. It
+         * also runs the writer of each streamed payment link body, which blocks
+         * while the HttpClient drains it, so a bounded pool needs a spare thread
+         * per streamed send in flight.
+         */
+        public Executor executor;
+        /**
+         * Run on a virtual-thread-per-task executor when the JVM is Java 21+.
+         * Ignored if {@link #executor} is set; on older JVMs the defaults apply.
+         */
+        public boolean useVirtualThreads = false;
+        /**
+         * Shared transport to send through. When set, the TLS, timeout, version
+         * and executor settings above are taken from the transport instead.
+         */
+        public Transport transport;
+        /** Retry, backoff and hedging for gateway calls; null disables retries. */
+        public RetryPolicy retryPolicy;
+        /** Per-endpoint circuit breaker settings; null disables circuit breaking. */
+        public CircuitBreaker.Config circuitBreaker;
+        /**
+         * Maximum gateway calls in flight at once; further calls fail fast with
+         * {@link RejectedExecutionException}. Zero or less means unbounded.
+         */
+        public int maxConcurrentRequests = 0;
+        /** Destination for SDK diagnostics; silent when null. Secrets are never logged. */
+        public SdkLogger logger;
+        /** Stage latencies and per-call counters are recorded here; nothing is recorded when null. */
+        public Metrics metrics;
+        /**
+         * Collapse duplicate {@link Client#sendApi} calls for the same order number
+         * and amount: concurrent duplicates share one gateway exchange, and a
+         * result the gateway accepted ({@link Types.ApiRequestResult#accepted()})
+         * is returned to repeats for this long. Null disables it.
+         */
+        public Duration duplicateWindow;
+        /** Maximum completed results remembered for {@link #duplicateWindow}. */
+        public int duplicateCacheSize = 10_000;
+        /** Cache for static payment link results; null disables caching. */
+        public PaymentLinkCache.Config paymentLinkCache;
+        /** Reject decrypted payloads with fields the target type does not declare; skipped by default. */
+        public boolean failOnUnknownResponseFields = false;
+        /**
+         * Records every order {@code sendApi} got a success status for, for
+         * {@link Reconciler}; null records nothing. Hosted-form orders are paid
+         * in the browser, so record those from their verified callbacks.
+         * Call {@link OrderLedger#roll()} at each settlement cut-off.
+         */
+        public OrderLedger orderLedger;
+        /**
+         * Static payment links whose {@code file}, {@code logo}, {@code file_url}
+         * and {@code original_file_name} together exceed this many characters
+         * are serialized, encrypted and Base64-encoded while the request is
+         * sent, instead of as whole strings. Zero or less never streams.
+         */
+        public int linkStreamingThreshold = 256 * 1024;
+
+        /** Field-by-field copy; objects such as the ledger, metrics and logger are shared, not cloned. */
+        Config copy() {
+            Config c = new Config();
+            c.merchantId = merchantId;
+            c.encryptionKey = encryptionKey;
+            c.keyProvider = keyProvider;
+            c.environment = environment;
+            c.actionUrlOverride = actionUrlOverride;
+            c.allowInsecureTls = allowInsecureTls;
+            c.requestTimeout = requestTimeout;
+            c.connectTimeout = connectTimeout;
+            c.httpVersion = httpVersion;
+            c.executor = executor;
+            c.useVirtualThreads = useVirtualThreads;
+            c.transport = transport;
+            c.retryPolicy = retryPolicy;
+            c.circuitBreaker = circuitBreaker;
+            c.maxConcurrentRequests = maxConcurrentRequests;
+            c.logger = logger;
+            c.metrics = metrics;
+            c.duplicateWindow = duplicateWindow;
+            c.duplicateCacheSize = duplicateCacheSize;
+            c.paymentLinkCache = paymentLinkCache;
+            c.failOnUnknownResponseFields = failOnUnknownResponseFields;
+            c.orderLedger = orderLedger;
+            c.linkStreamingThreshold = linkStreamingThreshold;
+            return c;
+        }
     }
 
     /** Create a client with the provided configuration. */
     public Client(Config cfg) {
         this.merchantId = cfg.merchantId;
-        this.encryptionKey = cfg.encryptionKey;
+        this.log = cfg.logger != null ? cfg.logger : SdkLogger.NONE;
+        this.metrics = cfg.metrics != null ? cfg.metrics : Metrics.NONE;
+        this.timed = metrics != Metrics.NONE;
+        this.codec = ResponseCodec.of(cfg.failOnUnknownResponseFields);
         this.environment = cfg.environment == null ? Constants.Environment.UAT : cfg.environment;
         this.actionUrlOverride = cfg.actionUrlOverride;
+        this.requestTimeout = cfg.requestTimeout == null ? Duration.ofSeconds(30) : cfg.requestTimeout;
+        this.keys = cfg.keyProvider != null ? cfg.keyProvider : new KeyRing("default", cfg.encryptionKey);
+        this.retry = cfg.retryPolicy != null ? cfg.retryPolicy : noRetry();
+        this.breakerConfig = cfg.circuitBreaker;
+        this.bulkhead = cfg.maxConcurrentRequests > 0 ? new Semaphore(cfg.maxConcurrentRequests) : null;
+        this.duplicates = cfg.duplicateWindow != null
+                ? new Coalescer<>(cfg.duplicateCacheSize, cfg.duplicateWindow, Types.ApiRequestResult::accepted)
+                : null;
+        this.linkCache = cfg.paymentLinkCache != null ? new PaymentLinkCache(cfg.paymentLinkCache, metrics) : null;
+        this.ledger = cfg.orderLedger;
+        this.linkStreamingThreshold = cfg.linkStreamingThreshold;
 
-        HttpClient.Builder httpBuilder = HttpClient.newBuilder()
-                .connectTimeout(Duration.ofSeconds(20))
-                .version(HttpClient.Version.HTTP_2);
-
-        // Configure SSL if insecure TLS is allowed
-        if (cfg.allowInsecureTls) {
-            try {
-                configureInsecureSSL(httpBuilder);
-            } catch (Exception e) {
-                System.err.println("Warning: Could not configure insecure SSL: " + e.getMessage());
-            }
-        }
-
-        this.http = httpBuilder.build();
+        this.ownTransport = cfg.transport != null ? null : new Transport(transportConfig(cfg));
+        Transport transport = cfg.transport != null ? cfg.transport : ownTransport;
+        this.http = transport.http();
+        this.executor = transport.executor();
     }
 
-    private void configureInsecureSSL(HttpClient.Builder httpBuilder) throws Exception {
-        // Create a trust manager that accepts all certificates
-        TrustManager[] trustAllCerts = new TrustManager[] {
-                new X509TrustManager() {
-                    public X509Certificate[] getAcceptedIssuers() {
-                        return new X509Certificate[0];
-                    }
-
-                    public void checkClientTrusted(X509Certificate[] certs, String authType) {
-                        // Accept all client certificates
-                    }
+    /** Close the transport this client created; a shared {@link Config#transport} stays open. */
+    @Override
+    public void close() {
+        if (ownTransport != null)
+            ownTransport.close();
+    }
 
-                    public void checkServerTrusted(X509Certificate[] certs, String authType) {
-                        // Accept all server certificates
-                    }
-                }
-        };
+    private static RetryPolicy noRetry() {
+        RetryPolicy p = new RetryPolicy();
+        p.maxAttempts = 1;
+        return p;
+    }
 
-        // Create SSL context with the trust manager
-        SSLContext sc = SSLContext.getInstance("TLS");
-        sc.init(null, trustAllCerts, new SecureRandom());
+    private static Transport.Config transportConfig(Config cfg) {
+        Transport.Config t = new Transport.Config();
+        t.allowInsecureTls = cfg.allowInsecureTls;
+        t.connectTimeout = cfg.connectTimeout;
+        t.httpVersion = cfg.httpVersion;
+        t.executor = cfg.executor;
+        t.useVirtualThreads = cfg.useVirtualThreads;
+        t.logger = cfg.logger;
+        return t;
+    }
 
-        // Configure the HTTP client to use the custom SSL context
-        httpBuilder.sslContext(sc);
+    /** Circuit breaker for {@code endpoint}, or null if it has not been called or breaking is disabled. */
+    public CircuitBreaker circuitBreaker(String endpoint) {
+        return breakers.get(endpoint);
+    }
 
-        System.out.println("YagoutPay SDK: SSL certificate validation disabled (allowInsecureTls=true)");
+    /** Circuit breakers by endpoint URL, for observing their state. */
+    public Map<String, CircuitBreaker> circuitBreakers() {
+        return Collections.unmodifiableMap(breakers);
     }
 
     /** Build the hosted form fields and related debug values. */
     public Types.BuiltRequest build(Types.TransactionDetails details) {
         String actionUrl = actionUrlOverride != null ? actionUrlOverride : Constants.actionUrl(environment);
-        String plain = Assemble.buildMerchantRequestPlain(details);
-        String merchantReq = Crypto.aes256CbcEncrypt(plain, encryptionKey);
-        String hashInput = Hashing.buildHashInput(details);
-        String hashHex = Hashing.sha256Hex(hashInput);
-        String hash = Crypto.aes256CbcEncrypt(hashHex, encryptionKey);
-        return new Types.BuiltRequest(details.merchantId, plain, merchantReq, hashInput, hashHex, hash, actionUrl);
+        long t = tick();
+        ByteSink plainBuf = Assemble.merchantRequest(details);
+        String plain = plainBuf.toString();
+        t = stage(Metrics.Stage.ASSEMBLE, t);
+        CipherEngine cipher = keys.current().engine();
+        String merchantReq = cipher.encrypt(plainBuf);
+        t = stage(Metrics.Stage.ENCRYPT, t);
+        Hashing.Hashed hashed = Hashing.hashAndEncrypt(details, cipher);
+        stage(Metrics.Stage.HASH, t);
+        return new Types.BuiltRequest(details.merchantId, plain, merchantReq, details, hashed.hashHex, hashed.hash,
+                actionUrl);
+    }
+
+    /**
+     * Send a direct API request. If {@code endpoint} is null, the environment
+     * default is used. The response payload is decrypted the first time
+     * {@link Types.ApiRequestResult#decryption()} is read.
+     */
+    public Types.ApiRequestResult sendApi(Types.TransactionDetails details, String endpoint) throws Exception {
+        return sendApi(details, endpoint, true);
     }
 
     /**
      * Send a direct API request. If {@code endpoint} is null, the environment
      * default is used.
-     * When {@code decryptResponse} is true, the SDK attempts to decrypt the
-     * response payload.
+     * When {@code decryptResponse} is false the result carries no decryption;
+     * otherwise the payload is decrypted lazily on first read.
      */
     public Types.ApiRequestResult sendApi(Types.TransactionDetails details, String endpoint, boolean decryptResponse)
             throws Exception {
         String api = endpoint != null ? endpoint : Constants.apiUrl(environment);
-        Types.TransactionDetails withDefaults = Types.TransactionDetails.builder()
-                .aggregatorId(details.aggregatorId)
-                .merchantId(merchantId)
-                .orderNumber(details.orderNumber)
-                .amount(details.amount)
-                .country(details.country)
-                .currency(details.currency)
-                .transactionType(details.transactionType)
-                .successUrl("")
-                .failureUrl("")
-                .channel("API")
-                .customerEmail(details.customerEmail)
-                .customerMobile(details.customerMobile)
-                .pgId(details.pgId != null ? details.pgId : Constants.ApiDefaults.PG_ID)
-                .paymode(details.paymode != null ? details.paymode : Constants.ApiDefaults.PAYMODE)
-                .schemeId(details.schemeId != null ? details.schemeId : Constants.ApiDefaults.SCHEME_ID)
-                .walletType(details.walletType != null ? details.walletType : Constants.ApiDefaults.WALLET_TYPE)
-                .build();
+        Callable<Types.ApiRequestResult> send = () -> execute("api", apiRequest(details, api),
+                resp -> readIssued(details, resp, api, decryptResponse), false);
+        return duplicates != null ? duplicates.execute(duplicateKey(details, api, decryptResponse), send) : send.call();
+    }
+
+    /** Non-blocking {@link #sendApi(Types.TransactionDetails, String)}. */
+    public CompletableFuture<Types.ApiRequestResult> sendApiAsync(Types.TransactionDetails details,
+            String endpoint) {
+        return sendApiAsync(details, endpoint, true);
+    }
+
+    /**
+     * Non-blocking {@link #sendApi}. Encryption and response parsing run as
+     * async stages; cancelling the returned future aborts the exchange, except
+     * when it is shared with duplicates under {@link Config#duplicateWindow}.
+     */
+    public CompletableFuture<Types.ApiRequestResult> sendApiAsync(Types.TransactionDetails details, String endpoint,
+            boolean decryptResponse) {
+        String api = endpoint != null ? endpoint : Constants.apiUrl(environment);
+        Supplier<CompletableFuture<Types.ApiRequestResult>> send = () -> exchangeAsync("api",
+                () -> apiRequest(details, api), resp -> readIssued(details, resp, api, decryptResponse), false);
+        return duplicates != null ? duplicates.submit(duplicateKey(details, api, decryptResponse), send) : send.get();
+    }
+
+    /**
+     * Read an API response and, if the gateway reported success, record the
+     * order in the ledger. Runs once per exchange, so duplicates sharing it
+     * under {@link Config#duplicateWindow} are not recorded again.
+     */
+    private Types.ApiRequestResult readIssued(Types.TransactionDetails details, HttpResponse<byte[]> resp,
+            String api, boolean decryptResponse) throws Exception {
+        Types.ApiRequestResult result = readApiResponse(resp, api, decryptResponse);
+        if (result.accepted())
+            recordIssued(details);
+        return result;
+    }
 
-        String plain = Assemble.buildApiMerchantRequestPlain(withDefaults);
-        System.out.println("Plain: " + plain);
-        System.out.println("Encryption Key: " + encryptionKey);
-        System.out.println("Merchant ID: " + merchantId);
-        String merchantRequest = Crypto.aes256CbcEncrypt(plain, encryptionKey);
-        System.out.println("Merchant Request: " + merchantRequest);
+    /** Record an order in the ledger; a bookkeeping failure is logged and counted but never fails the payment. */
+    private void recordIssued(Types.TransactionDetails details) {
+        if (ledger != null && !ledger.tryRecord(details) && log.isEnabled(SdkLogger.Level.WARN)) {
+            log.log(SdkLogger.Level.WARN, "order " + details.orderNumber + " could not be recorded in the ledger"
+                    + " (amount " + details.amount + " " + details.currency + ")", null);
+        }
+    }
+
+    /** Requests are duplicates when they target the same endpoint with the same merchant, order and amount. */
+    private String duplicateKey(Types.TransactionDetails details, String api, boolean decryptResponse) {
+        return merchantId + '\u0000' + details.orderNumber + '\u0000' + details.amount + '\u0000' + api
+                + (decryptResponse ? "\u0000d" : "");
+    }
+
+    private HttpRequest apiRequest(Types.TransactionDetails details, String api) throws Exception {
+        // Template orders for this merchant already carry the API defaults in their pre-rendered segments.
+        Types.TransactionDetails withDefaults = details.template != null && merchantId.equals(details.merchantId)
+                ? details
+                : Assemble.apiDetails(details, merchantId);
+
+        long t = tick();
+        ByteSink plain = Assemble.apiMerchantRequest(withDefaults);
+        t = stage(Metrics.Stage.ASSEMBLE, t);
+        String merchantRequest = keys.current().engine().encrypt(plain);
+        stage(Metrics.Stage.ENCRYPT, t);
+        if (log.isEnabled(SdkLogger.Level.DEBUG)) {
+            log.log(SdkLogger.Level.DEBUG, "API request merchantId=" + merchantId + " orderNo="
+                    + withDefaults.orderNumber + " plainBytes=" + plain.size() + " merchantRequest="
+                    + Redact.preview(merchantRequest) + " -> " + api, null);
+        }
 
         String body = OM.writeValueAsString(Map.of(
                 "merchantId", merchantId,
                 "merchantRequest", merchantRequest));
+        return jsonPost(api, body).build();
+    }
 
-        HttpRequest req = HttpRequest.newBuilder()
-                .uri(URI.create(api))
-                .timeout(Duration.ofSeconds(30))
-                .header("Content-Type", "application/json")
-                .header("Accept", "application/json")
-                .POST(HttpRequest.BodyPublishers.ofString(body))
-                .build();
-
-        HttpResponse<String> resp = http.send(req, HttpResponse.BodyHandlers.ofString());
-        System.out.println("API request response: " + resp.body());
+    private Types.ApiRequestResult readApiResponse(HttpResponse<byte[]> resp, String api, boolean decryptResponse)
+            throws Exception {
+        if (log.isEnabled(SdkLogger.Level.DEBUG)) {
+            log.log(SdkLogger.Level.DEBUG, "API response status=" + resp.statusCode() + " body="
+                    + Redact.preview(text(resp.body())), null);
+        }
         if (resp.statusCode() < 200 || resp.statusCode() >= 300) {
-            throw new RuntimeException("API request failed (" + resp.statusCode() + "): " + resp.body());
+            String text = text(resp.body());
+            throw new GatewayException("API request failed (" + resp.statusCode() + "): " + text,
+                    resp.statusCode(), text);
         }
 
-        Types.ApiIntegrationResponse raw = OM.readValue(resp.body(), Types.ApiIntegrationResponse.class);
-        String decrypted = null;
-        if (decryptResponse && raw.response != null && !raw.response.isEmpty()) {
-            try {
-                decrypted = Crypto.aes256CbcDecrypt(raw.response, encryptionKey);
-            } catch (Throwable ignored) {
-            }
-        }
-        return new Types.ApiRequestResult(raw, decrypted, api);
+        long t = tick();
+        Types.ApiIntegrationResponse raw = Responses.api(resp.body());
+        stage(Metrics.Stage.PARSE, t);
+        String payload = raw.response;
+        LazyDecryption decryption = decryptResponse && payload != null && !payload.isEmpty()
+                ? new LazyDecryption(() -> decrypt(() -> Crypto.decrypt(keys, Base64.getDecoder().decode(payload))))
+                : LazyDecryption.empty();
+        return new Types.ApiRequestResult(raw, decryption, api);
     }
 
     /** Build encoded body for Payment Link (static). */
     public Types.PaymentLinkEncodedBody buildPaymentLinkBody(Types.PaymentLinkPlain plain) throws Exception {
+        return encryptLink(paymentLinkJson(fillLink(plain)));
+    }
+
+    /** Static link payload with defaults applied; its JSON is also the canonical form for the cache key. */
+    static Types.PaymentLinkPlain fillLink(Types.PaymentLinkPlain plain) {
         if (plain == null) {
             throw new IllegalArgumentException("PaymentLinkPlain cannot be null");
         }
@@ -198,144 +400,137 @@ public final class Client {
         filled.failureURL = plain.failureURL != null ? plain.failureURL : "";
         filled.addAll = plain.addAll != null ? plain.addAll : "";
         filled.source = plain.source != null ? plain.source : "";
+        return filled;
+    }
 
+    private String paymentLinkJson(Types.PaymentLinkPlain filled) throws Exception {
+        long t = tick();
         String json = OM.writeValueAsString(filled);
-        String enc = Crypto.aes256CbcEncrypt(json, encryptionKey);
+        stage(Metrics.Stage.ASSEMBLE, t);
+        return json;
+    }
+
+    /** Whether the attachments of {@code filled} are large enough to stream the request body. */
+    private boolean streamsLink(Types.PaymentLinkPlain filled) {
+        if (linkStreamingThreshold <= 0)
+            return false;
+        long chars = (long) filled.file.length() + filled.logo.length() + filled.file_url.length()
+                + filled.original_file_name.length();
+        return chars > linkStreamingThreshold;
+    }
+
+    private Types.PaymentLinkEncodedBody encryptLink(String json) {
+        long t = tick();
+        String enc = keys.current().engine().encrypt(json);
+        stage(Metrics.Stage.ENCRYPT, t);
         return new Types.PaymentLinkEncodedBody(enc);
     }
 
-    /** Send a static Payment Link request and return PaymentLinkResult. */
+    /**
+     * Send a static Payment Link request and return PaymentLinkResult. With
+     * {@link Config#paymentLinkCache} set, an identical earlier request is
+     * answered from the cache.
+     */
     public Types.PaymentLinkResult sendPaymentLinkResult(Types.PaymentLinkPlain plain, String endpoint)
             throws Exception {
         String url = endpoint != null ? endpoint : Constants.paymentLinkUrl(environment);
-        Types.PaymentLinkEncodedBody body = buildPaymentLinkBody(plain);
-        String payload = OM.writeValueAsString(Map.of("request", body.request));
+        if (linkCache == null)
+            return sendLink(paymentLinkRequest(plain, url), url);
+        CachedLink link = cachedLink(plain, url);
+        Types.PaymentLinkResult cached = linkCache.lookup(link.key, () -> sendLinkAsync(link.prepare, url));
+        if (cached != null)
+            return cached;
+        Types.PaymentLinkResult result = sendLink(link.prepare.call(), url);
+        linkCache.put(link.key, result);
+        return result;
+    }
 
-        HttpRequest req = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .timeout(Duration.ofSeconds(30))
-                .header("Content-Type", "application/json")
-                .header("Accept", "application/json")
-                .header("me_id", plain.me_code != null ? plain.me_code : "")
-                .POST(HttpRequest.BodyPublishers.ofString(payload))
-                .build();
+    /** Non-blocking {@link #sendPaymentLinkResult}. */
+    public CompletableFuture<Types.PaymentLinkResult> sendPaymentLinkResultAsync(Types.PaymentLinkPlain plain,
+            String endpoint) {
+        String url = endpoint != null ? endpoint : Constants.paymentLinkUrl(environment);
+        if (linkCache == null)
+            return sendLinkAsync(() -> paymentLinkRequest(plain, url), url);
+        CachedLink link;
+        try {
+            link = cachedLink(plain, url);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        Types.PaymentLinkResult cached = linkCache.lookup(link.key, () -> sendLinkAsync(link.prepare, url));
+        if (cached != null)
+            return CompletableFuture.completedFuture(cached);
+        CompletableFuture<Types.PaymentLinkResult> f = sendLinkAsync(link.prepare, url);
+        f.thenAccept(result -> linkCache.put(link.key, result));
+        return f;
+    }
 
-        HttpResponse<String> resp = http.send(req, HttpResponse.BodyHandlers.ofString());
+    /** The cache for static payment links, or null when {@link Config#paymentLinkCache} is not set. */
+    public PaymentLinkCache paymentLinkCache() {
+        return linkCache;
+    }
 
-        // Check status like TypeScript: if (!resp.ok)
-        if (resp.statusCode() < 200 || resp.statusCode() >= 300) {
-            String text = resp.body() != null ? resp.body() : "";
-            throw new RuntimeException("Payment Link request failed (" + resp.statusCode() + "): " +
-                    (text.isEmpty() ? "Unknown error" : text));
-        }
+    /** Cache key and request of a static link, serializing small payloads only once. */
+    private static final class CachedLink {
+        final String key;
+        final Callable<HttpRequest> prepare;
 
-        // Read response as text first, then parse JSON like TypeScript
-        String bodyText = resp.body() != null ? resp.body() : "";
-        Object raw = bodyText;
-        Object json = null;
-        try {
-            if (!bodyText.isEmpty()) {
-                json = OM.readValue(bodyText, Object.class);
-            }
-        } catch (Exception ignored) {
-            json = null;
+        CachedLink(String key, Callable<HttpRequest> prepare) {
+            this.key = key;
+            this.prepare = prepare;
         }
-        if (json != null)
-            raw = json;
+    }
 
-        // Decrypt using TypeScript logic
-        String decryptedResponse = null;
-        try {
-            Object candidate = null;
-            if (json instanceof Map) {
-                Map<?, ?> jsonMap = (Map<?, ?>) json;
-                candidate = jsonMap.get("response");
-                if (candidate == null)
-                    candidate = jsonMap.get("data");
-                if (candidate == null)
-                    candidate = jsonMap.get("payload");
-                if (candidate == null)
-                    candidate = jsonMap.get("responseData");
-            }
-            if (candidate == null && raw instanceof String) {
-                candidate = raw;
-            }
+    private CachedLink cachedLink(Types.PaymentLinkPlain plain, String url) throws Exception {
+        Types.PaymentLinkPlain filled = fillLink(plain);
+        if (streamsLink(filled))
+            return new CachedLink(streamedLinkKey(url, filled), () -> streamingLinkRequest(filled, plain.me_code, url));
+        String json = paymentLinkJson(filled);
+        return new CachedLink(Hashing.sha256Hex(url + '\n' + json),
+                () -> paymentLinkRequest(json, plain.me_code, url));
+    }
 
-            if (candidate instanceof String && !((String) candidate).isEmpty()) {
-                decryptedResponse = Crypto.aes256CbcDecrypt((String) candidate, encryptionKey);
-            }
-        } catch (Exception ignored) {
-            decryptedResponse = null;
-        }
+    /**
+     * Cache key of a streamed link, taken from its inputs so the JSON is only
+     * generated for the body: the JSON without the attachments, then the
+     * attachments themselves.
+     */
+    static String streamedLinkKey(String url, Types.PaymentLinkPlain filled) throws IOException {
+        Types.PaymentLinkPlain head = fillLink(filled);
+        head.file = "";
+        head.logo = "";
+        return Hashing.sha256Hex(url + '\n' + OM.writeValueAsString(head), filled.file, filled.logo);
+    }
+
+    private Types.PaymentLinkResult sendLink(HttpRequest req, String url) throws Exception {
+        LinkResponse r = execute("paymentLink", req, resp -> readLinkResponse(resp, "Payment Link"), true);
+        return new Types.PaymentLinkResult(r.raw, r.decryption, url);
+    }
 
-        return new Types.PaymentLinkResult(raw, decryptedResponse, url);
+    private CompletableFuture<Types.PaymentLinkResult> sendLinkAsync(Callable<HttpRequest> prepare, String url) {
+        return exchangeAsync("paymentLink", prepare, resp -> {
+            LinkResponse r = readLinkResponse(resp, "Payment Link");
+            return new Types.PaymentLinkResult(r.raw, r.decryption, url);
+        }, true);
     }
 
     /** Send a dynamic Payment By Link request and return PaymentLinkResult. */
     public Types.PaymentLinkResult sendPaymentByLinkResult(Types.PaymentByLinkPlain plain, String endpoint)
             throws Exception {
         String url = endpoint != null ? endpoint : Constants.paymentByLinkUrl(environment);
-        Types.PaymentLinkEncodedBody body = buildPaymentByLinkBody(plain);
-        String payload = OM.writeValueAsString(Map.of("request", body.request));
-
-        HttpRequest req = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .timeout(Duration.ofSeconds(30))
-                .header("Content-Type", "application/json")
-                .header("Accept", "application/json")
-                .header("me_id", plain.me_id != null ? plain.me_id : "")
-                .POST(HttpRequest.BodyPublishers.ofString(payload))
-                .build();
-
-        HttpResponse<String> resp = http.send(req, HttpResponse.BodyHandlers.ofString());
-
-        // Check status like TypeScript: if (!resp.ok)
-        if (resp.statusCode() < 200 || resp.statusCode() >= 300) {
-            String text = resp.body() != null ? resp.body() : "";
-            throw new RuntimeException("Payment By Link request failed (" + resp.statusCode() + "): " +
-                    (text.isEmpty() ? "Unknown error" : text));
-        }
-
-        // Read response as text first, then parse JSON like TypeScript
-        String bodyText = resp.body() != null ? resp.body() : "";
-        Object raw = bodyText;
-        Object json = null;
-        try {
-            if (!bodyText.isEmpty()) {
-                json = OM.readValue(bodyText, Object.class);
-            }
-        } catch (Exception ignored) {
-            json = null;
-        }
-        if (json != null)
-            raw = json;
-
-        // Decrypt using TypeScript logic
-        String decryptedResponse = null;
-        try {
-            Object candidate = null;
-            if (json instanceof Map) {
-                Map<?, ?> jsonMap = (Map<?, ?>) json;
-                candidate = jsonMap.get("response");
-                if (candidate == null)
-                    candidate = jsonMap.get("data");
-                if (candidate == null)
-                    candidate = jsonMap.get("payload");
-                if (candidate == null)
-                    candidate = jsonMap.get("responseData");
-            }
-            if (candidate == null && raw instanceof String) {
-                candidate = raw;
-            }
-
-            if (candidate instanceof String && !((String) candidate).isEmpty()) {
-                decryptedResponse = Crypto.aes256CbcDecrypt((String) candidate, encryptionKey);
-            }
-        } catch (Exception ignored) {
-            decryptedResponse = null;
-        }
+        LinkResponse r = execute("paymentByLink", paymentByLinkRequest(plain, url),
+                resp -> readLinkResponse(resp, "Payment By Link"), false);
+        return new Types.PaymentLinkResult(r.raw, r.decryption, url);
+    }
 
-        return new Types.PaymentLinkResult(raw, decryptedResponse, url);
+    /** Non-blocking {@link #sendPaymentByLinkResult}. */
+    public CompletableFuture<Types.PaymentLinkResult> sendPaymentByLinkResultAsync(Types.PaymentByLinkPlain plain,
+            String endpoint) {
+        String url = endpoint != null ? endpoint : Constants.paymentByLinkUrl(environment);
+        return exchangeAsync("paymentByLink", () -> paymentByLinkRequest(plain, url), resp -> {
+            LinkResponse r = readLinkResponse(resp, "Payment By Link");
+            return new Types.PaymentLinkResult(r.raw, r.decryption, url);
+        }, false);
     }
 
     /**
@@ -344,67 +539,19 @@ public final class Client {
      */
     public Types.ApiRequestResult sendPaymentLink(Types.PaymentLinkPlain plain, String endpoint) throws Exception {
         String url = endpoint != null ? endpoint : Constants.paymentLinkUrl(environment);
-        Types.PaymentLinkEncodedBody body = buildPaymentLinkBody(plain);
-        String payload = OM.writeValueAsString(Map.of("request", body.request));
-
-        HttpRequest req = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .timeout(Duration.ofSeconds(30))
-                .header("Content-Type", "application/json")
-                .header("Accept", "application/json")
-                .header("me_id", plain.me_code != null ? plain.me_code : "")
-                .POST(HttpRequest.BodyPublishers.ofString(payload))
-                .build();
-
-        HttpResponse<String> resp = http.send(req, HttpResponse.BodyHandlers.ofString());
-
-        // Check status like TypeScript: if (!resp.ok)
-        if (resp.statusCode() < 200 || resp.statusCode() >= 300) {
-            String text = resp.body() != null ? resp.body() : "";
-            throw new RuntimeException("Payment Link request failed (" + resp.statusCode() + "): " +
-                    (text.isEmpty() ? "Unknown error" : text));
-        }
-
-        // Read response as text first, then parse JSON like TypeScript
-        String bodyText = resp.body() != null ? resp.body() : "";
-        Object raw = bodyText;
-        Object json = null;
-        try {
-            if (!bodyText.isEmpty()) {
-                json = OM.readValue(bodyText, Object.class);
-            }
-        } catch (Exception ignored) {
-            json = null;
-        }
-        if (json != null)
-            raw = json;
-
-        // Decrypt using TypeScript logic
-        String decryptedResponse = null;
-        try {
-            Object candidate = null;
-            if (json instanceof Map) {
-                Map<?, ?> jsonMap = (Map<?, ?>) json;
-                candidate = jsonMap.get("response");
-                if (candidate == null)
-                    candidate = jsonMap.get("data");
-                if (candidate == null)
-                    candidate = jsonMap.get("payload");
-                if (candidate == null)
-                    candidate = jsonMap.get("responseData");
-            }
-            if (candidate == null && raw instanceof String) {
-                candidate = raw;
-            }
-
-            if (candidate instanceof String && !((String) candidate).isEmpty()) {
-                decryptedResponse = Crypto.aes256CbcDecrypt((String) candidate, encryptionKey);
-            }
-        } catch (Exception ignored) {
-            decryptedResponse = null;
-        }
+        LinkResponse r = execute("paymentLink", paymentLinkRequest(plain, url),
+                resp -> readLinkResponse(resp, "Payment Link"), true);
+        return new Types.ApiRequestResult(r.raw, r.decryption, url);
+    }
 
-        return new Types.ApiRequestResult(raw, decryptedResponse, url);
+    /** Non-blocking {@link #sendPaymentLink} (legacy result type). */
+    public CompletableFuture<Types.ApiRequestResult> sendPaymentLinkAsync(Types.PaymentLinkPlain plain,
+            String endpoint) {
+        String url = endpoint != null ? endpoint : Constants.paymentLinkUrl(environment);
+        return exchangeAsync("paymentLink", () -> paymentLinkRequest(plain, url), resp -> {
+            LinkResponse r = readLinkResponse(resp, "Payment Link");
+            return new Types.ApiRequestResult(r.raw, r.decryption, url);
+        }, true);
     }
 
     /** Build encoded body for Payment By Link (dynamic). */
@@ -428,9 +575,10 @@ public final class Client {
         filled.country = plain.country != null ? plain.country : "";
         filled.currency = plain.currency != null ? plain.currency : "";
 
+        long t = tick();
         String json = OM.writeValueAsString(filled);
-        String enc = Crypto.aes256CbcEncrypt(json, encryptionKey);
-        return new Types.PaymentLinkEncodedBody(enc);
+        stage(Metrics.Stage.ASSEMBLE, t);
+        return encryptLink(json);
     }
 
     /**
@@ -439,67 +587,451 @@ public final class Client {
      */
     public Types.ApiRequestResult sendPaymentByLink(Types.PaymentByLinkPlain plain, String endpoint) throws Exception {
         String url = endpoint != null ? endpoint : Constants.paymentByLinkUrl(environment);
+        LinkResponse r = execute("paymentByLink", paymentByLinkRequest(plain, url),
+                resp -> readLinkResponse(resp, "Payment By Link"), false);
+        return new Types.ApiRequestResult(r.raw, r.decryption, url);
+    }
+
+    /** Non-blocking {@link #sendPaymentByLink} (legacy result type). */
+    public CompletableFuture<Types.ApiRequestResult> sendPaymentByLinkAsync(Types.PaymentByLinkPlain plain,
+            String endpoint) {
+        String url = endpoint != null ? endpoint : Constants.paymentByLinkUrl(environment);
+        return exchangeAsync("paymentByLink", () -> paymentByLinkRequest(plain, url), resp -> {
+            LinkResponse r = readLinkResponse(resp, "Payment By Link");
+            return new Types.ApiRequestResult(r.raw, r.decryption, url);
+        }, false);
+    }
+
+    private HttpRequest paymentLinkRequest(Types.PaymentLinkPlain plain, String url) throws Exception {
+        Types.PaymentLinkPlain filled = fillLink(plain);
+        if (streamsLink(filled))
+            return streamingLinkRequest(filled, plain.me_code, url);
+        return paymentLinkRequest(paymentLinkJson(filled), plain.me_code, url);
+    }
+
+    /**
+     * Static link request whose body is serialized, encrypted and Base64-encoded
+     * as it is sent, in bounded memory. The bytes are the same as the buffered
+     * request's; the key is fixed now so a rotation cannot change it mid-body.
+     */
+    private HttpRequest streamingLinkRequest(Types.PaymentLinkPlain filled, String meCode, String url) {
+        CipherEngine engine = keys.current().engine();
+        if (log.isEnabled(SdkLogger.Level.DEBUG)) {
+            log.log(SdkLogger.Level.DEBUG, "Payment Link streaming body fileChars=" + filled.file.length()
+                    + " logoChars=" + filled.logo.length() + " -> " + url, null);
+        }
+        StreamingBody.Writer writer = out -> writeEncryptedLink(filled, engine, out);
+        return jsonPost(url, StreamingBody.publisher(writer, requestTimeout, executor))
+                .header("me_id", meCode != null ? meCode : "")
+                .build();
+    }
+
+    /** Write {@code {"request":"<Base64 of AES(json)>"}} for {@code filled} through {@code out}. */
+    static void writeEncryptedLink(Types.PaymentLinkPlain filled, CipherEngine engine, OutputStream out)
+            throws IOException {
+        out.write(LINK_BODY_PREFIX);
+        // Closing the cipher stream pads the last block and ends the Base64; out itself stays open.
+        OutputStream keepOpen = new FilterOutputStream(out) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        try (OutputStream enc = engine.encryptingStream(Base64.getEncoder().wrap(keepOpen))) {
+            writeLinkJson(filled, enc);
+        }
+        out.write(LINK_BODY_SUFFIX);
+    }
+
+    /**
+     * Write the JSON of {@code filled} into {@code out} with the bytes of
+     * {@code OM.writeValueAsString} in UTF-8. It goes through a Writer because
+     * Jackson's byte generator escapes characters outside the BMP instead.
+     */
+    static void writeLinkJson(Types.PaymentLinkPlain filled, OutputStream out) throws IOException {
+        Writer w = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        OM.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET).writeValue(w, filled);
+        w.flush();
+    }
+
+    private HttpRequest paymentLinkRequest(String json, String meCode, String url) throws Exception {
+        Types.PaymentLinkEncodedBody body = encryptLink(json);
+        String payload = OM.writeValueAsString(Map.of("request", body.request));
+        return jsonPost(url, payload)
+                .header("me_id", meCode != null ? meCode : "")
+                .build();
+    }
+
+    private HttpRequest paymentByLinkRequest(Types.PaymentByLinkPlain plain, String url) throws Exception {
         Types.PaymentLinkEncodedBody body = buildPaymentByLinkBody(plain);
         String payload = OM.writeValueAsString(Map.of("request", body.request));
+        return jsonPost(url, payload)
+                .header("me_id", plain.me_id != null ? plain.me_id : "")
+                .build();
+    }
+
+    private HttpRequest.Builder jsonPost(String url, String body) {
+        return jsonPost(url, HttpRequest.BodyPublishers.ofString(body));
+    }
 
-        HttpRequest req = HttpRequest.newBuilder()
+    private HttpRequest.Builder jsonPost(String url, HttpRequest.BodyPublisher body) {
+        return HttpRequest.newBuilder()
                 .uri(URI.create(url))
-                .timeout(Duration.ofSeconds(30))
+                .timeout(requestTimeout)
                 .header("Content-Type", "application/json")
                 .header("Accept", "application/json")
-                .header("me_id", plain.me_id != null ? plain.me_id : "")
-                .POST(HttpRequest.BodyPublishers.ofString(payload))
-                .build();
+                .POST(body);
+    }
+
+    /** Parsed body and deferred decryption of a payment link response. */
+    private static final class LinkResponse {
+        final Object raw;
+        final LazyDecryption decryption;
 
-        HttpResponse<String> resp = http.send(req, HttpResponse.BodyHandlers.ofString());
+        LinkResponse(Object raw, LazyDecryption decryption) {
+            this.raw = raw;
+            this.decryption = decryption;
+        }
+    }
 
+    private LinkResponse readLinkResponse(HttpResponse<byte[]> resp, String label) {
+        if (log.isEnabled(SdkLogger.Level.DEBUG)) {
+            log.log(SdkLogger.Level.DEBUG, label + " response status=" + resp.statusCode() + " body="
+                    + Redact.preview(text(resp.body())), null);
+        }
         // Check status like TypeScript: if (!resp.ok)
         if (resp.statusCode() < 200 || resp.statusCode() >= 300) {
-            String text = resp.body() != null ? resp.body() : "";
-            throw new RuntimeException("Payment By Link request failed (" + resp.statusCode() + "): " +
-                    (text.isEmpty() ? "Unknown error" : text));
+            String text = text(resp.body());
+            throw new GatewayException(label + " request failed (" + resp.statusCode() + "): " +
+                    (text.isEmpty() ? "Unknown error" : text), resp.statusCode(), text);
         }
 
-        // Read response as text first, then parse JSON like TypeScript
-        String bodyText = resp.body() != null ? resp.body() : "";
-        Object raw = bodyText;
-        Object json = null;
+        long t = tick();
+        Responses.Link link = Responses.link(resp.body());
+        stage(Metrics.Stage.PARSE, t);
+
+        LazyDecryption decryption;
+        if (link.encryptedText != null) {
+            String encrypted = link.encryptedText;
+            decryption = new LazyDecryption(
+                    () -> decrypt(() -> Crypto.decrypt(keys, Base64.getDecoder().decode(encrypted))));
+        } else {
+            decryption = LazyDecryption.empty();
+        }
+        return new LinkResponse(link.raw, decryption);
+    }
+
+    /** Run a deferred decrypt on the reading thread, timing it and capturing any failure. */
+    private Types.Decryption decrypt(Supplier<byte[]> decrypt) {
+        long t = tick();
         try {
-            if (!bodyText.isEmpty()) {
-                json = OM.readValue(bodyText, Object.class);
+            return Types.Decryption.of(decrypt.get(), codec);
+        } catch (RuntimeException e) {
+            return Types.Decryption.failed(e);
+        } finally {
+            stage(Metrics.Stage.DECRYPT, t);
+        }
+    }
+
+    private static String text(byte[] body) {
+        return body != null ? new String(body, StandardCharsets.UTF_8) : "";
+    }
+
+    /** Reads a completed HTTP response into a result. */
+    private interface ResponseReader<T> {
+        T read(HttpResponse<byte[]> resp) throws Exception;
+    }
+
+    /**
+     * Send on the calling thread, retrying per the configured policy. When
+     * {@code idempotent} and a hedge delay is configured, each attempt may race
+     * a second copy of the request.
+     */
+    private <T> T execute(String op, HttpRequest req, ResponseReader<T> reader, boolean idempotent)
+            throws Exception {
+        long deadline = retry.deadlineNanos(System.nanoTime());
+        for (int attempt = 1;; attempt++) {
+            try {
+                if (idempotent && retry.hedgeDelay != null) {
+                    return await(sendHedged(op, req, reader));
+                }
+                return sendBlocking(op, req, reader);
+            } catch (ReadFailure e) {
+                throw e.failure;
+            } catch (Exception e) {
+                long delay = retry.delayNanos(attempt, e, deadline, idempotent);
+                if (delay < 0)
+                    throw e;
+                logRetry(req, attempt, delay, e);
+                TimeUnit.NANOSECONDS.sleep(delay);
             }
-        } catch (Exception ignored) {
-            json = null;
         }
-        if (json != null)
-            raw = json;
+    }
 
-        // Decrypt using TypeScript logic
-        String decryptedResponse = null;
-        try {
-            Object candidate = null;
-            if (json instanceof Map) {
-                Map<?, ?> jsonMap = (Map<?, ?>) json;
-                candidate = jsonMap.get("response");
-                if (candidate == null)
-                    candidate = jsonMap.get("data");
-                if (candidate == null)
-                    candidate = jsonMap.get("payload");
-                if (candidate == null)
-                    candidate = jsonMap.get("responseData");
+    /**
+     * Prepare the request on the executor, then send it without blocking and
+     * read the response on the executor again, retrying per the configured
+     * policy. Completing the returned future early (for example via
+     * {@code cancel} or {@code orTimeout}) cancels the in-flight exchange and any
+     * pending retry.
+     */
+    private <T> CompletableFuture<T> exchangeAsync(String op, Callable<HttpRequest> prepare, ResponseReader<T> reader,
+            boolean idempotent) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        long deadline = retry.deadlineNanos(System.nanoTime());
+        CompletableFuture.supplyAsync(() -> call(prepare), executor)
+                .whenComplete((req, t) -> {
+                    if (t != null) {
+                        result.completeExceptionally(unwrap(t));
+                    } else {
+                        attemptAsync(op, req, reader, idempotent, 1, deadline, result);
+                    }
+                });
+        return result;
+    }
+
+    private <T> void attemptAsync(String op, HttpRequest req, ResponseReader<T> reader, boolean idempotent,
+            int attempt, long deadline, CompletableFuture<T> result) {
+        if (result.isDone())
+            return;
+        CompletableFuture<T> f = idempotent && retry.hedgeDelay != null
+                ? sendHedged(op, req, reader)
+                : sendOnce(op, req, reader);
+        result.whenComplete((v, t) -> f.cancel(true));
+        f.whenComplete((v, t) -> {
+            if (t == null) {
+                result.complete(v);
+                return;
+            }
+            Throwable cause = unwrap(t);
+            if (cause instanceof ReadFailure) {
+                result.completeExceptionally(((ReadFailure) cause).failure);
+                return;
+            }
+            long delay = retry.delayNanos(attempt, cause, deadline, idempotent);
+            if (delay < 0) {
+                result.completeExceptionally(cause);
+                return;
             }
-            if (candidate == null && raw instanceof String) {
-                candidate = raw;
+            logRetry(req, attempt, delay, cause);
+            CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS, executor)
+                    .execute(() -> attemptAsync(op, req, reader, idempotent, attempt + 1, deadline, result));
+        });
+    }
+
+    private void logRetry(HttpRequest req, int attempt, long delayNanos, Throwable error) {
+        if (log.isEnabled(SdkLogger.Level.INFO)) {
+            log.log(SdkLogger.Level.INFO, "attempt " + attempt + " to " + req.uri() + " failed (" + error
+                    + "), retrying in " + TimeUnit.NANOSECONDS.toMillis(delayNanos) + "ms", null);
+        }
+    }
+
+    /** One blocking exchange behind the endpoint's circuit breaker and the bulkhead. */
+    private <T> T sendBlocking(String op, HttpRequest req, ResponseReader<T> reader) throws Exception {
+        CircuitBreaker breaker = breaker(req);
+        long permit = admit(breaker);
+        long start = System.nanoTime();
+        try {
+            HttpResponse<byte[]> resp;
+            try {
+                resp = http.send(req, HttpResponse.BodyHandlers.ofByteArray());
+            } catch (Exception e) {
+                recordCall(op, req, 0, start);
+                throw e;
             }
+            recordCall(op, req, resp.statusCode(), start);
+            T value = read(reader, resp);
+            settle(breaker, permit, null, start);
+            return value;
+        } catch (Exception e) {
+            settle(breaker, permit, e, start);
+            throw e;
+        }
+    }
+
+    /**
+     * One non-blocking exchange behind the endpoint's circuit breaker and the
+     * bulkhead; cancelling the returned future cancels the request.
+     */
+    private <T> CompletableFuture<T> sendOnce(String op, HttpRequest req, ResponseReader<T> reader) {
+        CircuitBreaker breaker = breaker(req);
+        long permit;
+        try {
+            permit = admit(breaker);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        long start = System.nanoTime();
+        CompletableFuture<HttpResponse<byte[]>> inflight;
+        try {
+            inflight = http.sendAsync(req, HttpResponse.BodyHandlers.ofByteArray());
+        } catch (RuntimeException e) {
+            settle(breaker, permit, e, start);
+            return CompletableFuture.failedFuture(e);
+        }
+        inflight.whenComplete((resp, t) -> recordCall(op, req, resp != null ? resp.statusCode() : 0, start));
+        CompletableFuture<T> out = inflight.thenApplyAsync(resp -> call(() -> read(reader, resp)), executor);
+        out.whenComplete((v, t) -> {
+            inflight.cancel(true);
+            settle(breaker, permit, t == null ? null : unwrap(t), start);
+        });
+        return out;
+    }
+
+    /**
+     * Run {@code reader} on a response. A non-2xx status surfaces as is, so
+     * the retry policy can judge it; any other failure came after the gateway
+     * answered and is wrapped so it is never retried.
+     */
+    private static <T> T read(ResponseReader<T> reader, HttpResponse<byte[]> resp) throws ReadFailure {
+        try {
+            return reader.read(resp);
+        } catch (GatewayException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ReadFailure(e);
+        }
+    }
 
-            if (candidate instanceof String && !((String) candidate).isEmpty()) {
-                decryptedResponse = Crypto.aes256CbcDecrypt((String) candidate, encryptionKey);
+    /** A response arrived but could not be read; carries the failure the caller sees. */
+    private static final class ReadFailure extends Exception {
+        private static final long serialVersionUID = 1L;
+        final Exception failure;
+
+        ReadFailure(Exception failure) {
+            super(failure);
+            this.failure = failure;
+        }
+    }
+
+    private long tick() {
+        return timed ? System.nanoTime() : 0;
+    }
+
+    /** Record the stage that started at {@code start} and return the start of the next one. */
+    private long stage(Metrics.Stage stage, long start) {
+        if (!timed)
+            return 0;
+        long now = System.nanoTime();
+        metrics.recordStage(stage, now - start);
+        return now;
+    }
+
+    private void recordCall(String op, HttpRequest req, int status, long start) {
+        if (!timed)
+            return;
+        long elapsed = System.nanoTime() - start;
+        metrics.recordStage(Metrics.Stage.HTTP, elapsed);
+        metrics.recordCall(op, endpointKey(req), status, elapsed);
+    }
+
+    /** Circuit breaker of the endpoint {@code req} targets, or null when breaking is disabled. */
+    private CircuitBreaker breaker(HttpRequest req) {
+        if (breakerConfig == null)
+            return null;
+        return breakers.computeIfAbsent(endpointKey(req), e -> new CircuitBreaker(e, breakerConfig));
+    }
+
+    /** Take a circuit breaker permit and a bulkhead slot, or fail fast; returns the breaker permit. */
+    private long admit(CircuitBreaker breaker) {
+        long permit = breaker != null ? breaker.acquire() : 0;
+        if (bulkhead != null && !bulkhead.tryAcquire()) {
+            if (breaker != null)
+                breaker.release(permit);
+            throw new RejectedExecutionException("Too many concurrent gateway requests");
+        }
+        return permit;
+    }
+
+    /** Release the bulkhead slot and record the outcome against the breaker. */
+    private void settle(CircuitBreaker breaker, long permit, Throwable error, long startNanos) {
+        if (bulkhead != null)
+            bulkhead.release();
+        if (breaker == null)
+            return;
+        if (error instanceof CancellationException) {
+            breaker.release(permit);
+        } else {
+            breaker.record(permit, isFailure(error), System.nanoTime() - startNanos);
+        }
+    }
+
+    /** Gateway-side trouble counts as failure; a 4xx other than 429 means the gateway is healthy. */
+    private static boolean isFailure(Throwable error) {
+        if (error == null)
+            return false;
+        if (error instanceof GatewayException) {
+            int status = ((GatewayException) error).statusCode();
+            return status >= 500 || status == 429;
+        }
+        return true;
+    }
+
+    private static String endpointKey(HttpRequest req) {
+        URI uri = req.uri();
+        return uri.getScheme() + "://" + uri.getAuthority() + uri.getPath();
+    }
+
+    /**
+     * Send {@code req} and, if it is still outstanding after the hedge delay, a
+     * second copy. Completes with the first success, or with the last failure
+     * once every copy has failed; the loser is cancelled.
+     */
+    private <T> CompletableFuture<T> sendHedged(String op, HttpRequest req, ResponseReader<T> reader) {
+        CompletableFuture<T> winner = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        BiConsumer<T, Throwable> settle = (v, t) -> {
+            if (t == null) {
+                winner.complete(v);
+            } else if (pending.decrementAndGet() == 0) {
+                winner.completeExceptionally(unwrap(t));
             }
-        } catch (Exception ignored) {
-            decryptedResponse = null;
+        };
+        CompletableFuture<T> primary = sendOnce(op, req, reader);
+        primary.whenComplete(settle);
+        winner.whenComplete((v, t) -> primary.cancel(true));
+        CompletableFuture.delayedExecutor(retry.hedgeDelay.toNanos(), TimeUnit.NANOSECONDS, executor).execute(() -> {
+            // Only hedge while the primary is still outstanding.
+            if (winner.isDone() || !pending.compareAndSet(1, 2))
+                return;
+            CompletableFuture<T> hedge = sendOnce(op, req, reader);
+            hedge.whenComplete(settle);
+            winner.whenComplete((v, t) -> hedge.cancel(true));
+        });
+        return winner;
+    }
+
+    private static <T> T await(CompletableFuture<T> f) throws Exception {
+        try {
+            return f.get();
+        } catch (ExecutionException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof Exception)
+                throw (Exception) cause;
+            throw e;
+        } catch (InterruptedException e) {
+            f.cancel(true);
+            throw e;
         }
+    }
 
-        return new Types.ApiRequestResult(raw, decryptedResponse, url);
+    private static Throwable unwrap(Throwable t) {
+        while ((t instanceof CompletionException || t instanceof ExecutionException) && t.getCause() != null)
+            t = t.getCause();
+        return t;
     }
 
+    private static <T> T call(Callable<T> task) {
+        try {
+            return task.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
 }
@@ -0,0 +1,162 @@
+package com.yagoutpay.sdk;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-merchant {@link Client}s on one shared {@link Transport}. Each merchant
+ * keeps its own key material while all of them reuse one connection pool and
+ * executor. Lookups of known merchants take no lock. The pool is bounded (least
+ * recently used clients are dropped first when a new merchant arrives) and
+ * clients idle longer than {@link Config#idleTimeout} are evicted.
+ */
+public final class ClientPool {
+    private static final long SWEEP_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Client.Config template;
+    private final Transport transport;
+    private final int maxClients;
+    private final long idleNanos;
+    private final ConcurrentHashMap<String, Entry> clients = new ConcurrentHashMap<>();
+    private final AtomicLong nextSweep;
+
+    /** Configuration for {@link ClientPool}. */
+    public static final class Config {
+        /** Transport shared by every pooled client; a default one is created when null. */
+        public Transport transport;
+        /**
+         * Settings for every pooled client: environment, timeouts, retries,
+         * circuit breaker, logger, metrics and so on. The merchant id and key
+         * are set per merchant, and {@link #transport} replaces the transport.
+         */
+        public Client.Config client = new Client.Config();
+        /** Maximum number of cached merchant clients. */
+        public int maxClients = 1000;
+        /** Clients not used for this long are evicted. */
+        public Duration idleTimeout = Duration.ofMinutes(30);
+    }
+
+    private static final class Entry {
+        final Client client;
+        final KeyRing keys;
+        volatile String encryptionKey;
+        int generation = 1;
+        volatile long lastUsed;
+
+        Entry(Client client, KeyRing keys, String encryptionKey, long now) {
+            this.client = client;
+            this.keys = keys;
+            this.encryptionKey = encryptionKey;
+            this.lastUsed = now;
+        }
+    }
+
+    /** Create a pool with the provided configuration. */
+    public ClientPool(Config cfg) {
+        this.template = cfg.client != null ? cfg.client : new Client.Config();
+        this.transport = cfg.transport != null ? cfg.transport : new Transport(new Transport.Config());
+        this.maxClients = Math.max(1, cfg.maxClients);
+        this.idleNanos = cfg.idleTimeout == null ? Long.MAX_VALUE : cfg.idleTimeout.toNanos();
+        this.nextSweep = new AtomicLong(System.nanoTime() + SWEEP_NANOS);
+    }
+
+    /**
+     * Return the client for {@code merchantId}, creating it on first use. A
+     * different {@code encryptionKey} for a known merchant rotates the client's
+     * key in place; the previous key is still accepted for decrypting responses.
+     */
+    public Client get(String merchantId, String encryptionKey) {
+        Objects.requireNonNull(merchantId, "merchantId");
+        Objects.requireNonNull(encryptionKey, "encryptionKey");
+        long now = System.nanoTime();
+        sweepIfDue(now);
+        Entry e = clients.get(merchantId);
+        if (e == null) {
+            e = clients.computeIfAbsent(merchantId, id -> {
+                KeyRing keys = new KeyRing("v1", encryptionKey);
+                return new Entry(newClient(id, keys), keys, encryptionKey, now);
+            });
+            trim(merchantId);
+        }
+        if (!e.encryptionKey.equals(encryptionKey))
+            rotate(e, encryptionKey);
+        e.lastUsed = now;
+        return e.client;
+    }
+
+    /** Drop the client for {@code merchantId}, if cached. */
+    public void remove(String merchantId) {
+        clients.remove(merchantId);
+    }
+
+    /** Evict clients that have been idle longer than the configured timeout. */
+    public void evictIdle() {
+        evictIdle(System.nanoTime());
+    }
+
+    /** Number of cached clients. */
+    public int size() {
+        return clients.size();
+    }
+
+    /** The transport shared by every pooled client. */
+    public Transport transport() {
+        return transport;
+    }
+
+    private static void rotate(Entry e, String encryptionKey) {
+        synchronized (e) {
+            if (!e.encryptionKey.equals(encryptionKey)) {
+                e.keys.rotate("v" + ++e.generation, encryptionKey);
+                e.encryptionKey = encryptionKey;
+            }
+        }
+    }
+
+    // At most one caller per interval walks the map; everyone else skips straight to the lookup.
+    private void sweepIfDue(long now) {
+        if (idleNanos == Long.MAX_VALUE)
+            return;
+        long due = nextSweep.get();
+        if (now - due >= 0 && nextSweep.compareAndSet(due, now + SWEEP_NANOS))
+            evictIdle(now);
+    }
+
+    private void evictIdle(long now) {
+        for (Map.Entry<String, Entry> e : clients.entrySet()) {
+            if (now - e.getValue().lastUsed > idleNanos)
+                clients.remove(e.getKey(), e.getValue());
+        }
+    }
+
+    // Only runs when a merchant is added, so the linear scan for the oldest entry stays off the hit path.
+    private synchronized void trim(String keep) {
+        while (clients.size() > maxClients) {
+            String oldest = null;
+            Entry oldestEntry = null;
+            for (Map.Entry<String, Entry> e : clients.entrySet()) {
+                Entry v = e.getValue();
+                if (!e.getKey().equals(keep) && (oldestEntry == null || v.lastUsed - oldestEntry.lastUsed < 0)) {
+                    oldest = e.getKey();
+                    oldestEntry = v;
+                }
+            }
+            if (oldest == null)
+                return;
+            clients.remove(oldest, oldestEntry);
+        }
+    }
+
+    private Client newClient(String merchantId, KeyRing keys) {
+        Client.Config c = template.copy();
+        c.merchantId = merchantId;
+        c.encryptionKey = null;
+        c.keyProvider = keys;
+        c.transport = transport;
+        return new Client(c);
+    }
+}
@@ -0,0 +1,108 @@
+package com.yagoutpay.sdk;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Collapses duplicate calls with the same key. While a call is in flight,
+ * duplicates wait for its outcome instead of starting their own; results
+ * that pass the {@code cacheable} test are then reused for a short window.
+ * Exceptions and other results are only shared with calls already waiting.
+ */
+final class Coalescer<K, V> {
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inflight = new ConcurrentHashMap<>();
+    private final ExpiringCache<K, V> completed;
+    private final Predicate<? super V> cacheable;
+
+    Coalescer(int maxEntries, Duration ttl, Predicate<? super V> cacheable) {
+        this.completed = new ExpiringCache<>(maxEntries, ttl);
+        this.cacheable = cacheable;
+    }
+
+    /**
+     * Run {@code call} on the calling thread unless an identical call is in
+     * flight or recently returned a cacheable result.
+     */
+    V execute(K key, Callable<V> call) throws Exception {
+        V cached = completed.get(key);
+        if (cached != null)
+            return cached;
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> existing = inflight.putIfAbsent(key, mine);
+        if (existing != null)
+            return join(existing);
+        try {
+            // The previous leader may have finished between the lookup and the claim.
+            V value = completed.get(key);
+            if (value == null) {
+                value = call.call();
+                if (cacheable.test(value))
+                    completed.put(key, value);
+            }
+            mine.complete(value);
+            return value;
+        } catch (Throwable e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inflight.remove(key, mine);
+        }
+    }
+
+    /**
+     * Start {@code call} unless an identical call is in flight or recently
+     * returned a cacheable result. Each caller gets its own future: cancelling one does not
+     * abort the shared exchange the others are waiting on.
+     */
+    CompletableFuture<V> submit(K key, Supplier<CompletableFuture<V>> call) {
+        V cached = completed.get(key);
+        if (cached != null)
+            return CompletableFuture.completedFuture(cached);
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> existing = inflight.putIfAbsent(key, mine);
+        if (existing != null)
+            return existing.copy();
+        cached = completed.get(key);
+        CompletableFuture<V> source;
+        try {
+            source = cached != null ? CompletableFuture.completedFuture(cached) : call.get();
+        } catch (RuntimeException e) {
+            source = CompletableFuture.failedFuture(e);
+        }
+        boolean fresh = cached == null;
+        source.whenComplete((v, t) -> {
+            if (t == null && fresh && cacheable.test(v))
+                completed.put(key, v);
+            inflight.remove(key, mine);
+            if (t == null) {
+                mine.complete(v);
+            } else {
+                mine.completeExceptionally(t);
+            }
+        });
+        return mine.copy();
+    }
+
+    /** Calls currently in flight. */
+    int inflight() {
+        return inflight.size();
+    }
+
+    private static <V> V join(CompletableFuture<V> shared) throws Exception {
+        // Wait on a copy so an interrupt here cannot cancel the leader's call.
+        CompletableFuture<V> f = shared.copy();
+        try {
+            return f.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception)
+                throw (Exception) cause;
+            throw e;
+        }
+    }
+}
@@ -1,61 +1,60 @@
 package com.yagoutpay.sdk;
 
-import javax.crypto.Cipher;
-import javax.crypto.spec.IvParameterSpec;
-import javax.crypto.spec.SecretKeySpec;
-import java.nio.charset.StandardCharsets;
-import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /** AES-256-CBC with static IV and PKCS7 padding helpers. */
 final class Crypto {
+    /** Upper bound on keys cached by the static helpers; the cache is dropped when exceeded. */
+    private static final int MAX_CACHED_KEYS = 64;
+    private static final Map<String, CipherEngine> ENGINES = new ConcurrentHashMap<>();
+
     private Crypto() {
     }
 
+    /** Return a shared engine for the given base64 key. */
+    static CipherEngine engine(String base64Key) {
+        CipherEngine engine = ENGINES.get(base64Key);
+        if (engine != null)
+            return engine;
+        if (ENGINES.size() >= MAX_CACHED_KEYS)
+            ENGINES.clear();
+        return ENGINES.computeIfAbsent(base64Key, CipherEngine::new);
+    }
+
     /** Encrypt plain text using AES-256-CBC with PKCS7 padding and static IV. */
     static String aes256CbcEncrypt(String plain, String base64Key) {
-        try {
-            byte[] key = Base64.getDecoder().decode(base64Key);
-            SecretKeySpec keySpec = new SecretKeySpec(key, "AES");
-            IvParameterSpec iv = new IvParameterSpec("0123456789abcdef".getBytes(StandardCharsets.UTF_8));
-            Cipher cipher = Cipher.getInstance("AES/CBC/NoPadding");
-            cipher.init(Cipher.ENCRYPT_MODE, keySpec, iv);
-            byte[] padded = pkcs7Pad(plain.getBytes(StandardCharsets.UTF_8), 16);
-            byte[] enc = cipher.doFinal(padded);
-            return Base64.getEncoder().encodeToString(enc);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
+        return engine(base64Key).encrypt(plain);
     }
 
-    /** Decrypt base64 cipher using AES-256-CBC with static IV. */
-    static String aes256CbcDecrypt(String base64Cipher, String base64Key) {
-        try {
-            byte[] key = Base64.getDecoder().decode(base64Key);
-            SecretKeySpec keySpec = new SecretKeySpec(key, "AES");
-            IvParameterSpec iv = new IvParameterSpec("0123456789abcdef".getBytes(StandardCharsets.UTF_8));
-            Cipher cipher = Cipher.getInstance("AES/CBC/NoPadding");
-            cipher.init(Cipher.DECRYPT_MODE, keySpec, iv);
-            byte[] dec = cipher.doFinal(Base64.getDecoder().decode(base64Cipher));
-            byte[] unpadded = pkcs7Unpad(dec);
-            return new String(unpadded, StandardCharsets.UTF_8);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
+    /** Encrypt the contents of a buffer using AES-256-CBC with PKCS7 padding and static IV. */
+    static String aes256CbcEncrypt(ByteSink plain, String base64Key) {
+        return engine(base64Key).encrypt(plain);
     }
 
-    private static byte[] pkcs7Pad(byte[] input, int blockSize) {
-        int padLen = blockSize - (input.length % blockSize);
-        byte[] out = new byte[input.length + padLen];
-        System.arraycopy(input, 0, out, 0, input.length);
-        for (int i = input.length; i < out.length; i++)
-            out[i] = (byte) padLen;
-        return out;
+    /**
+     * Decrypt with the current key, or with each accepted key in turn when the
+     * provider holds several, keeping the first plaintext that verifies.
+     */
+    static byte[] decrypt(KeyProvider keys, byte[] cipherText) {
+        List<VersionedKey> ring = keys.decryptionKeys();
+        if (ring.size() <= 1)
+            return keys.current().engine().decryptBytes(cipherText);
+        RuntimeException first = null;
+        for (VersionedKey k : ring) {
+            try {
+                return k.engine().decryptVerified(cipherText);
+            } catch (RuntimeException e) {
+                if (first == null)
+                    first = e;
+            }
+        }
+        throw first;
     }
 
-    private static byte[] pkcs7Unpad(byte[] input) {
-        int padLen = input[input.length - 1] & 0xff;
-        byte[] out = new byte[input.length - padLen];
-        System.arraycopy(input, 0, out, 0, out.length);
-        return out;
+    /** Decrypt base64 cipher using AES-256-CBC with static IV. */
+    static String aes256CbcDecrypt(String base64Cipher, String base64Key) {
+        return engine(base64Key).decrypt(base64Cipher);
     }
 }
@@ -0,0 +1,127 @@
+package com.yagoutpay.sdk;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size-bounded cache whose entries expire a fixed time after they are
+ * written. Keys are spread over independently locked LRU segments, so
+ * lookups and evictions for different keys rarely contend.
+ */
+final class ExpiringCache<K, V> {
+    private static final int STRIPES = 16;
+
+    private final Segment<K, V>[] segments;
+    private final long ttlNanos;
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    ExpiringCache(int maxEntries, Duration ttl) {
+        if (maxEntries <= 0)
+            throw new IllegalArgumentException("maxEntries must be positive");
+        this.ttlNanos = ttl.toNanos();
+        int perSegment = Math.max(1, (maxEntries + STRIPES - 1) / STRIPES);
+        this.segments = new Segment[STRIPES];
+        for (int i = 0; i < STRIPES; i++)
+            segments[i] = new Segment<>(perSegment);
+    }
+
+    /** A cached value and the time it was written. */
+    static final class Entry<V> {
+        final V value;
+        final long writtenNanos;
+
+        Entry(V value, long writtenNanos) {
+            this.value = value;
+            this.writtenNanos = writtenNanos;
+        }
+
+        long ageNanos(long now) {
+            return now - writtenNanos;
+        }
+    }
+
+    /** Value for {@code key}, or null if absent or expired. */
+    V get(K key) {
+        Entry<V> e = entry(key, 0);
+        return e != null ? e.value : null;
+    }
+
+    /**
+     * Entry for {@code key} if it is younger than the TTL plus {@code graceNanos},
+     * so callers can serve slightly stale values while refreshing them.
+     */
+    Entry<V> entry(K key, long graceNanos) {
+        Segment<K, V> s = segment(key);
+        long now = System.nanoTime();
+        synchronized (s) {
+            Entry<V> e = s.get(key);
+            if (e == null)
+                return null;
+            if (e.ageNanos(now) > ttlNanos + graceNanos) {
+                s.remove(key);
+                return null;
+            }
+            return e;
+        }
+    }
+
+    /** True if {@code e} is past the TTL, regardless of any grace period. */
+    boolean isExpired(Entry<V> e) {
+        return e.ageNanos(System.nanoTime()) > ttlNanos;
+    }
+
+    void put(K key, V value) {
+        Segment<K, V> s = segment(key);
+        Entry<V> e = new Entry<>(value, System.nanoTime());
+        synchronized (s) {
+            s.put(key, e);
+        }
+    }
+
+    void remove(K key) {
+        Segment<K, V> s = segment(key);
+        synchronized (s) {
+            s.remove(key);
+        }
+    }
+
+    int size() {
+        int n = 0;
+        for (Segment<K, V> s : segments) {
+            synchronized (s) {
+                n += s.size();
+            }
+        }
+        return n;
+    }
+
+    void clear() {
+        for (Segment<K, V> s : segments) {
+            synchronized (s) {
+                s.clear();
+            }
+        }
+    }
+
+    private Segment<K, V> segment(K key) {
+        int h = key.hashCode();
+        return segments[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
+
+    /** One stripe: an access-ordered map that drops its least recently used entry when full. */
+    private static final class Segment<K, V> extends LinkedHashMap<K, Entry<V>> {
+        private static final long serialVersionUID = 1L;
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+            return size() > capacity;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.yagoutpay.sdk;
+
+/** Thrown when the gateway answers with a non-2xx HTTP status. */
+public final class GatewayException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final int statusCode;
+    private final String body;
+
+    public GatewayException(String message, int statusCode, String body) {
+        super(message);
+        this.statusCode = statusCode;
+        this.body = body;
+    }
+
+    /** HTTP status returned by the gateway. */
+    public int statusCode() {
+        return statusCode;
+    }
+
+    /** Response body as received, possibly empty. */
+    public String body() {
+        return body;
+    }
+}
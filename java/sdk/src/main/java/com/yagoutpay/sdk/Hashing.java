@@ -5,24 +5,152 @@ import java.security.MessageDigest;
 
 /** Hash utilities: canonical hash input and SHA-256 hex. */
 final class Hashing {
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final ThreadCache<MessageDigest> SHA256 = new ThreadCache<>(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    });
+    private static final ThreadCache<ByteSink> SCRATCH = new ThreadCache<>(() -> new ByteSink(256));
+
     private Hashing() {
     }
 
+    /** Hex digest together with its encrypted form, as sent in the hosted form {@code hash} field. */
+    static final class Hashed {
+        final String hashHex;
+        final String hash;
+
+        Hashed(String hashHex, String hash) {
+            this.hashHex = hashHex;
+            this.hash = hash;
+        }
+    }
+
     /** Returns me_id~order_no~amount~country~currency. */
     static String buildHashInput(Types.TransactionDetails d) {
         return String.join("~", d.merchantId, d.orderNumber, d.amount, d.country, d.currency);
     }
 
     static String sha256Hex(String input) {
+        ByteSink in = SCRATCH.acquire();
         try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            byte[] digest = md.digest(input.getBytes(StandardCharsets.UTF_8));
-            StringBuilder sb = new StringBuilder();
-            for (byte b : digest)
-                sb.append(String.format("%02x", b));
-            return sb.toString();
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+            in.reset();
+            in.writeUtf8(input);
+            return new String(digestHex(in), StandardCharsets.US_ASCII);
+        } finally {
+            SCRATCH.release(in);
+        }
+    }
+
+    /**
+     * SHA-256 hex of {@code head} followed by each of {@code tails} as its
+     * length and UTF-16 code units. Long tails go through a small buffer
+     * instead of being encoded whole.
+     */
+    static String sha256Hex(String head, String... tails) {
+        MessageDigest md = SHA256.acquire();
+        try {
+            return new String(hex(digest(md, head, tails)), StandardCharsets.US_ASCII);
+        } finally {
+            md.reset();
+            SHA256.release(md);
+        }
+    }
+
+    private static byte[] digest(MessageDigest md, String head, String... tails) {
+        md.update(head.getBytes(StandardCharsets.UTF_8));
+        byte[] buf = new byte[8192];
+        for (String s : tails) {
+            int len = s.length();
+            md.update(new byte[] { (byte) (len >>> 24), (byte) (len >>> 16), (byte) (len >>> 8), (byte) len });
+            for (int i = 0; i < len;) {
+                int n = 0;
+                for (; n < buf.length && i < len; i++) {
+                    char c = s.charAt(i);
+                    buf[n++] = (byte) (c >>> 8);
+                    buf[n++] = (byte) c;
+                }
+                md.update(buf, 0, n);
+            }
+        }
+        return md.digest();
+    }
+
+    /**
+     * Digest the canonical hash input, hex-encode it and encrypt the hex in one
+     * pass. The hash input is encoded straight into the digest buffer and the hex
+     * bytes are handed to the cipher as-is.
+     */
+    static Hashed hashAndEncrypt(Types.TransactionDetails d, CipherEngine engine) {
+        byte[] hex = hashHex(d);
+        return new Hashed(new String(hex, StandardCharsets.US_ASCII), engine.encrypt(hex, 0, hex.length));
+    }
+
+    /** SHA-256 of {@code merchantId~orderNumber~amount~country~currency} as 64 lowercase ASCII hex bytes. */
+    static byte[] hashHex(String merchantId, String orderNumber, String amount, String country, String currency) {
+        ByteSink in = SCRATCH.acquire();
+        try {
+            in.reset();
+            in.writeUtf8(merchantId);
+            in.write('~');
+            in.writeUtf8(orderNumber);
+            in.write('~');
+            in.writeUtf8(amount);
+            writeTail(in, country, currency);
+            return digestHex(in);
+        } finally {
+            SCRATCH.release(in);
+        }
+    }
+
+    /** {@link #hashHex(String, String, String, String, String)} of {@code d}, formatting a typed amount in place. */
+    static byte[] hashHex(Types.TransactionDetails d) {
+        if (d.money() == null)
+            return hashHex(d.merchantId, d.orderNumber, d.amount, d.country, d.currency);
+        ByteSink in = SCRATCH.acquire();
+        try {
+            in.reset();
+            in.writeUtf8(d.merchantId);
+            in.write('~');
+            in.writeUtf8(d.orderNumber);
+            in.write('~');
+            in.write(d.money());
+            writeTail(in, d.country, d.currency);
+            return digestHex(in);
+        } finally {
+            SCRATCH.release(in);
+        }
+    }
+
+    private static void writeTail(ByteSink in, String country, String currency) {
+        in.write('~');
+        in.writeUtf8(country);
+        in.write('~');
+        in.writeUtf8(currency);
+    }
+
+    /** SHA-256 of the sink contents as 64 lowercase ASCII hex bytes. */
+    private static byte[] digestHex(ByteSink in) {
+        MessageDigest md = SHA256.acquire();
+        try {
+            md.reset();
+            md.update(in.array(), 0, in.size());
+            return hex(md.digest());
+        } finally {
+            md.reset();
+            SHA256.release(md);
+        }
+    }
+
+    private static byte[] hex(byte[] digest) {
+        byte[] hex = new byte[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            hex[2 * i] = HEX[(digest[i] >> 4) & 0xf];
+            hex[2 * i + 1] = HEX[digest[i] & 0xf];
         }
+        return hex;
     }
 }
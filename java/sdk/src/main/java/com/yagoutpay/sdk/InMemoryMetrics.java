@@ -0,0 +1,187 @@
+package com.yagoutpay.sdk;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link Metrics} kept in memory: a latency histogram per stage, a call
+ * counter and latency histogram per operation, endpoint and status, and
+ * hit/stale/miss counters per cache, and depth plus lag per ingest queue.
+ * Safe for concurrent use; {@link #render()} produces a plain-text snapshot
+ * for scraping.
+ */
+public final class InMemoryMetrics implements Metrics {
+    private final Map<Stage, LatencyHistogram> stages = new EnumMap<>(Stage.class);
+    private final ConcurrentHashMap<CallKey, Call> calls = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder[]> caches = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Queue> queues = new ConcurrentHashMap<>();
+
+    /** Identity of a call series. */
+    public static final class CallKey implements Comparable<CallKey> {
+        public final String operation;
+        public final String endpoint;
+        public final int status;
+
+        CallKey(String operation, String endpoint, int status) {
+            this.operation = operation;
+            this.endpoint = endpoint;
+            this.status = status;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof CallKey))
+                return false;
+            CallKey k = (CallKey) o;
+            return status == k.status && operation.equals(k.operation) && endpoint.equals(k.endpoint);
+        }
+
+        @Override
+        public int hashCode() {
+            return (operation.hashCode() * 31 + endpoint.hashCode()) * 31 + status;
+        }
+
+        @Override
+        public int compareTo(CallKey o) {
+            int c = operation.compareTo(o.operation);
+            if (c == 0)
+                c = endpoint.compareTo(o.endpoint);
+            return c != 0 ? c : Integer.compare(status, o.status);
+        }
+    }
+
+    /** Count and latency of one call series. */
+    public static final class Call {
+        private final LongAdder count = new LongAdder();
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        public long count() {
+            return count.sum();
+        }
+
+        public LatencyHistogram latency() {
+            return latency;
+        }
+    }
+
+    /** Last reported depth and batch lag of one ingest queue. */
+    public static final class Queue {
+        private volatile int depth;
+        private final LatencyHistogram lag = new LatencyHistogram();
+
+        /** Items left in the queue after the most recent batch was taken. */
+        public int depth() {
+            return depth;
+        }
+
+        /** Wait of the oldest item in each batch. */
+        public LatencyHistogram lag() {
+            return lag;
+        }
+    }
+
+    public InMemoryMetrics() {
+        for (Stage s : Stage.values())
+            stages.put(s, new LatencyHistogram());
+    }
+
+    @Override
+    public void recordStage(Stage stage, long nanos) {
+        stages.get(stage).record(nanos);
+    }
+
+    @Override
+    public void recordCall(String operation, String endpoint, int status, long nanos) {
+        Call c = calls.computeIfAbsent(new CallKey(operation, endpoint, status), k -> new Call());
+        c.count.increment();
+        c.latency.record(nanos);
+    }
+
+    @Override
+    public void recordCache(String cache, CacheOutcome outcome) {
+        caches.computeIfAbsent(cache, k -> newCounters())[outcome.ordinal()].increment();
+    }
+
+    @Override
+    public void recordQueue(String queue, int depth, long lagNanos) {
+        Queue q = queues.computeIfAbsent(queue, k -> new Queue());
+        q.depth = depth;
+        q.lag.record(lagNanos);
+    }
+
+    private static LongAdder[] newCounters() {
+        LongAdder[] c = new LongAdder[CacheOutcome.values().length];
+        for (int i = 0; i < c.length; i++)
+            c[i] = new LongAdder();
+        return c;
+    }
+
+    /** Lookups of {@code cache} that ended with {@code outcome}. */
+    public long cache(String cache, CacheOutcome outcome) {
+        LongAdder[] c = caches.get(cache);
+        return c != null ? c[outcome.ordinal()].sum() : 0;
+    }
+
+    /** Depth and lag of the ingest queue named {@code queue}, or null if it never reported. */
+    public Queue queue(String queue) {
+        return queues.get(queue);
+    }
+
+    /** Latency histogram of one stage. */
+    public LatencyHistogram stage(Stage stage) {
+        return stages.get(stage);
+    }
+
+    /** Call series recorded so far, sorted by operation, endpoint and status. */
+    public Map<CallKey, Call> calls() {
+        return new TreeMap<>(calls);
+    }
+
+    /**
+     * Plain-text snapshot, one line per series, with count, mean, p50, p90, p99
+     * and max in milliseconds.
+     */
+    public String render() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<Stage, LatencyHistogram> e : stages.entrySet()) {
+            sb.append("stage{name=").append(e.getKey()).append("} ");
+            line(sb, e.getValue().count(), e.getValue());
+        }
+        for (Map.Entry<CallKey, Call> e : calls().entrySet()) {
+            CallKey k = e.getKey();
+            sb.append("call{operation=").append(k.operation).append(",endpoint=").append(k.endpoint)
+                    .append(",status=").append(k.status).append("} ");
+            line(sb, e.getValue().count(), e.getValue().latency);
+        }
+        for (Map.Entry<String, LongAdder[]> e : new TreeMap<>(caches).entrySet()) {
+            for (CacheOutcome o : CacheOutcome.values()) {
+                sb.append("cache{name=").append(e.getKey()).append(",outcome=").append(o).append("} count=")
+                        .append(e.getValue()[o.ordinal()].sum()).append('\n');
+            }
+        }
+        for (Map.Entry<String, Queue> e : new TreeMap<>(queues).entrySet()) {
+            Queue q = e.getValue();
+            sb.append("queue{name=").append(e.getKey()).append("} depth=").append(q.depth).append(' ');
+            line(sb, q.lag.count(), q.lag);
+        }
+        return sb.toString();
+    }
+
+    private static void line(StringBuilder sb, long count, LatencyHistogram h) {
+        sb.append("count=").append(count)
+                .append(" mean_ms=").append(ms((long) h.mean()))
+                .append(" p50_ms=").append(ms(h.percentile(50)))
+                .append(" p90_ms=").append(ms(h.percentile(90)))
+                .append(" p99_ms=").append(ms(h.percentile(99)))
+                .append(" max_ms=").append(ms(h.max()))
+                .append('\n');
+    }
+
+    private static double ms(long nanos) {
+        return Math.round(nanos / (double) TimeUnit.MILLISECONDS.toNanos(1) * 1000) / 1000.0;
+    }
+}
@@ -0,0 +1,202 @@
+package com.yagoutpay.sdk;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded hand-off between request threads and a small worker pool. Producers
+ * enqueue and return at once; workers drain the queue in batches and pass each
+ * batch to a {@link Handler}. When the queue is full {@link #submit} waits at
+ * most {@link Config#offerTimeout} and then reports the item as rejected, so
+ * bursts push back on the caller instead of growing the heap.
+ */
+public final class IngestPipeline<T> implements AutoCloseable {
+    /** Configuration for {@link IngestPipeline}. */
+    public static final class Config {
+        /** Name used for worker threads and metrics. */
+        public String name = "ingest";
+        public int capacity = 10_000;
+        public int workers = 2;
+        /** Most items handed to the handler at once. */
+        public int maxBatch = 256;
+        /** How long {@link #submit} may block on a full queue; zero rejects immediately. */
+        public Duration offerTimeout = Duration.ZERO;
+        /** Receives queue depth and queue wait per batch. */
+        public Metrics metrics = Metrics.NONE;
+        public SdkLogger logger = SdkLogger.NONE;
+    }
+
+    /** Downstream work for one batch; called from worker threads. */
+    @FunctionalInterface
+    public interface Handler<T> {
+        void handle(List<T> batch) throws Exception;
+    }
+
+    private static final long POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final String name;
+    private final ArrayBlockingQueue<Item<T>> queue;
+    private final Handler<T> handler;
+    private final int maxBatch;
+    private final long offerNanos;
+    private final Metrics metrics;
+    private final SdkLogger log;
+    private final ExecutorService workers;
+    private final LatencyHistogram lag = new LatencyHistogram();
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private volatile boolean closed;
+
+    public IngestPipeline(Config cfg, Handler<T> handler) {
+        if (cfg.capacity <= 0 || cfg.workers <= 0 || cfg.maxBatch <= 0)
+            throw new IllegalArgumentException("capacity, workers and maxBatch must be positive");
+        this.name = cfg.name;
+        this.queue = new ArrayBlockingQueue<>(cfg.capacity);
+        this.handler = handler;
+        this.maxBatch = cfg.maxBatch;
+        this.offerNanos = cfg.offerTimeout != null ? cfg.offerTimeout.toNanos() : 0;
+        this.metrics = cfg.metrics != null ? cfg.metrics : Metrics.NONE;
+        this.log = cfg.logger != null ? cfg.logger : SdkLogger.NONE;
+        AtomicInteger seq = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(cfg.workers, r -> {
+            Thread t = new Thread(r, "yagoutpay-" + name + "-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        for (int i = 0; i < cfg.workers; i++)
+            workers.execute(this::run);
+    }
+
+    /** An enqueued item and when it was accepted. */
+    private static final class Item<T> {
+        final T value;
+        final long enqueuedNanos;
+
+        Item(T value, long enqueuedNanos) {
+            this.value = value;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+    }
+
+    /**
+     * Enqueue {@code item}. Returns false if the queue stayed full for the offer
+     * timeout; callers should then shed the work, for example with HTTP 503.
+     *
+     * @throws RejectedExecutionException after {@link #close()}
+     */
+    public boolean submit(T item) throws InterruptedException {
+        if (closed)
+            throw new RejectedExecutionException(name + " pipeline is closed");
+        Item<T> it = new Item<>(item, System.nanoTime());
+        boolean ok = offerNanos > 0 ? queue.offer(it, offerNanos, TimeUnit.NANOSECONDS) : queue.offer(it);
+        if (!ok)
+            rejected.increment();
+        return ok;
+    }
+
+    private void run() {
+        List<Item<T>> items = new ArrayList<>(maxBatch);
+        List<T> batch = new ArrayList<>(maxBatch);
+        while (!closed || !queue.isEmpty()) {
+            Item<T> first;
+            try {
+                first = queue.poll(POLL_NANOS, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (first == null)
+                continue;
+            items.add(first);
+            queue.drainTo(items, maxBatch - 1);
+            handle(items, batch);
+            items.clear();
+            batch.clear();
+        }
+    }
+
+    private void handle(List<Item<T>> items, List<T> batch) {
+        long now = System.nanoTime();
+        for (Item<T> it : items) {
+            lag.record(now - it.enqueuedNanos);
+            batch.add(it.value);
+        }
+        // The first item is the oldest, so its wait is the batch's lag.
+        metrics.recordQueue(name, queue.size(), now - items.get(0).enqueuedNanos);
+        try {
+            handler.handle(batch);
+            processed.add(batch.size());
+        } catch (Exception e) {
+            failed.add(batch.size());
+            log.log(SdkLogger.Level.ERROR, name + " batch of " + batch.size() + " failed", e);
+        }
+    }
+
+    /** Items waiting in the queue. */
+    public int depth() {
+        return queue.size();
+    }
+
+    /** How long the oldest waiting item has been queued, in nanoseconds; zero when empty. */
+    public long lagNanos() {
+        Item<T> head = queue.peek();
+        return head != null ? Math.max(0, System.nanoTime() - head.enqueuedNanos) : 0;
+    }
+
+    /** Time items spent queued before a worker picked them up. */
+    public LatencyHistogram lag() {
+        return lag;
+    }
+
+    /** Items handled successfully. */
+    public long processed() {
+        return processed.sum();
+    }
+
+    /** Items turned away because the queue was full. */
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    /** Items whose batch handler threw. */
+    public long failed() {
+        return failed.sum();
+    }
+
+    /** Stop accepting items and wait up to {@code timeout} for the queue to drain. */
+    public boolean close(Duration timeout) throws InterruptedException {
+        closed = true;
+        workers.shutdown();
+        if (!workers.awaitTermination(timeout.toNanos(), TimeUnit.NANOSECONDS))
+            return false;
+        // A submit racing with close may have enqueued after the workers exited.
+        List<Item<T>> items = new ArrayList<>(maxBatch);
+        List<T> batch = new ArrayList<>(maxBatch);
+        while (queue.drainTo(items, maxBatch) > 0) {
+            handle(items, batch);
+            items.clear();
+            batch.clear();
+        }
+        return true;
+    }
+
+    /** {@link #close(Duration)} with a 30 second limit. */
+    @Override
+    public void close() {
+        try {
+            if (!close(Duration.ofSeconds(30)))
+                log.log(SdkLogger.Level.WARN, name + " pipeline closed with " + queue.size() + " items queued", null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
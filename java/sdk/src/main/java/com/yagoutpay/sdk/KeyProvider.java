@@ -0,0 +1,20 @@
+package com.yagoutpay.sdk;
+
+import java.util.List;
+
+/**
+ * Source of merchant keys. The client asks for {@link #current()} each time it
+ * encrypts a request, so a rotated key takes effect on the next request while
+ * requests already encrypted complete under the old one.
+ */
+public interface KeyProvider {
+    /** Key used to encrypt new requests. */
+    VersionedKey current();
+
+    /**
+     * Keys accepted when decrypting responses, current key first. When there
+     * is more than one, each is tried in order until the padding and UTF-8
+     * of the plaintext check out.
+     */
+    List<VersionedKey> decryptionKeys();
+}
@@ -0,0 +1,80 @@
+package com.yagoutpay.sdk;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * {@link KeyProvider} holding the current key and a few previous ones.
+ * {@link #rotate} swaps in a new key atomically; the replaced key stays
+ * available for decrypting responses until it is retired or pushed out.
+ */
+public final class KeyRing implements KeyProvider {
+    /** Previous keys retained for decryption unless configured otherwise. */
+    public static final int DEFAULT_RETAINED = 2;
+
+    private final int retained;
+    private final AtomicReference<List<VersionedKey>> keys;
+
+    /** Ring with a single key. */
+    public KeyRing(String version, String base64Key) {
+        this(version, base64Key, DEFAULT_RETAINED);
+    }
+
+    /** Ring with a single key that keeps up to {@code retained} previous keys after rotations. */
+    public KeyRing(String version, String base64Key, int retained) {
+        if (retained < 0)
+            throw new IllegalArgumentException("retained must not be negative");
+        this.retained = retained;
+        this.keys = new AtomicReference<>(List.of(new VersionedKey(version, base64Key)));
+    }
+
+    /**
+     * Make {@code base64Key} the current key under {@code version}. The key is
+     * decoded before the swap, so callers never observe a half-ready key.
+     */
+    public void rotate(String version, String base64Key) {
+        VersionedKey next = new VersionedKey(version, base64Key);
+        keys.updateAndGet(old -> {
+            List<VersionedKey> ring = new ArrayList<>(Math.min(old.size() + 1, retained + 1));
+            ring.add(next);
+            for (VersionedKey k : old) {
+                if (ring.size() > retained)
+                    break;
+                if (!k.version().equals(version))
+                    ring.add(k);
+            }
+            return Collections.unmodifiableList(ring);
+        });
+    }
+
+    /** Stop accepting the previous key {@code version}. The current key cannot be retired. */
+    public boolean retire(String version) {
+        for (;;) {
+            List<VersionedKey> old = keys.get();
+            if (old.get(0).version().equals(version))
+                throw new IllegalArgumentException("Cannot retire the current key " + version);
+            List<VersionedKey> ring = new ArrayList<>(old);
+            if (!ring.removeIf(k -> k.version().equals(version)))
+                return false;
+            if (keys.compareAndSet(old, Collections.unmodifiableList(ring)))
+                return true;
+        }
+    }
+
+    /** Version of the current key. */
+    public String currentVersion() {
+        return current().version();
+    }
+
+    @Override
+    public VersionedKey current() {
+        return keys.get().get(0);
+    }
+
+    @Override
+    public List<VersionedKey> decryptionKeys() {
+        return keys.get();
+    }
+}
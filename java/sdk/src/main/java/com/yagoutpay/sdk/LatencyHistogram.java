@@ -0,0 +1,81 @@
+package com.yagoutpay.sdk;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free log-linear histogram of nanosecond latencies. Values are bucketed
+ * by power of two with {@value #SUB_BUCKETS} linear sub-buckets each, so
+ * percentiles are accurate to within about 12.5%. Recording is a few atomic
+ * adds and never allocates.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(64 * SUB_BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /** Record one latency in nanoseconds; negative values count as zero. */
+    public void record(long nanos) {
+        long v = Math.max(0, nanos);
+        buckets.incrementAndGet(index(v));
+        count.increment();
+        sum.add(v);
+        max.accumulate(v);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    /** Mean latency in nanoseconds. */
+    public double mean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /** Largest recorded latency in nanoseconds. */
+    public long max() {
+        return max.get();
+    }
+
+    /** Approximate latency in nanoseconds at percentile {@code p} (0-100). */
+    public long percentile(double p) {
+        long n = 0;
+        long[] snap = new long[buckets.length()];
+        for (int i = 0; i < snap.length; i++) {
+            snap[i] = buckets.get(i);
+            n += snap[i];
+        }
+        if (n == 0)
+            return 0;
+        long rank = (long) Math.ceil(Math.max(0, Math.min(100, p)) / 100.0 * n);
+        long seen = 0;
+        for (int i = 0; i < snap.length; i++) {
+            seen += snap[i];
+            if (seen >= Math.max(1, rank))
+                return Math.min(upperBound(i), max());
+        }
+        return max();
+    }
+
+    private static int index(long v) {
+        if (v < SUB_BUCKETS)
+            return (int) v;
+        int exp = 63 - Long.numberOfLeadingZeros(v);
+        int sub = (int) (v >>> (exp - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exp - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    private static long upperBound(int index) {
+        if (index < SUB_BUCKETS)
+            return index;
+        int exp = index / SUB_BUCKETS + SUB_BITS - 1;
+        int sub = index % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub + 1) << (exp - SUB_BITS)) - 1;
+    }
+}
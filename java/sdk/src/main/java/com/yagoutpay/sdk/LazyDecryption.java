@@ -0,0 +1,47 @@
+package com.yagoutpay.sdk;
+
+import java.util.function.Supplier;
+
+/**
+ * Decrypts a response payload on first access and memoizes the outcome.
+ * Safe to read from any thread; the decrypt runs at most once.
+ */
+final class LazyDecryption {
+    private static final LazyDecryption EMPTY = new LazyDecryption(Types.Decryption.EMPTY);
+
+    private Supplier<Types.Decryption> source;
+    private volatile Types.Decryption result;
+
+    LazyDecryption(Supplier<Types.Decryption> source) {
+        this.source = source;
+    }
+
+    private LazyDecryption(Types.Decryption result) {
+        this.result = result;
+    }
+
+    /** Already-decided outcome: the given plaintext, or empty when it is null. */
+    static LazyDecryption of(String plain) {
+        return plain != null ? new LazyDecryption(Types.Decryption.of(plain)) : EMPTY;
+    }
+
+    static LazyDecryption empty() {
+        return EMPTY;
+    }
+
+    Types.Decryption get() {
+        Types.Decryption r = result;
+        if (r == null) {
+            synchronized (this) {
+                r = result;
+                if (r == null) {
+                    r = source.get();
+                    result = r;
+                    // Let the cipher text be collected once it has been decrypted.
+                    source = null;
+                }
+            }
+        }
+        return r;
+    }
+}
@@ -0,0 +1,68 @@
+package com.yagoutpay.sdk;
+
+/**
+ * Recording hook for SDK metrics. The client reports the latency of each local
+ * stage and one call event per HTTP exchange, so gateway latency can be told
+ * apart from local CPU cost. The default, {@link #NONE}, records nothing and
+ * lets the client skip timing altogether; {@link InMemoryMetrics} is a
+ * dependency-free implementation that can be scraped.
+ */
+public interface Metrics {
+    /** Local and remote stages of a gateway call. */
+    enum Stage {
+        /** Building the merchant_request plaintext or link JSON. */
+        ASSEMBLE,
+        /** SHA-256 of the canonical hash input, including encrypting the hex. */
+        HASH,
+        /** AES encryption of the request. */
+        ENCRYPT,
+        /** HTTP round trip until the response body is read. */
+        HTTP,
+        /** Parsing the gateway response JSON. */
+        PARSE,
+        /** AES decryption of the response. */
+        DECRYPT
+    }
+
+    /** Result of a local cache lookup. */
+    enum CacheOutcome {
+        /** Served a fresh entry. */
+        HIT,
+        /** Served an expired entry while it is refreshed in the background. */
+        STALE,
+        /** Nothing usable cached; the gateway is called. */
+        MISS
+    }
+
+    /** Metrics that records nothing. */
+    Metrics NONE = new Metrics() {
+        @Override
+        public void recordStage(Stage stage, long nanos) {
+        }
+
+        @Override
+        public void recordCall(String operation, String endpoint, int status, long nanos) {
+        }
+    };
+
+    /** Record how long one stage took. */
+    void recordStage(Stage stage, long nanos);
+
+    /**
+     * Record one HTTP exchange. {@code status} is the HTTP status, or 0 when no
+     * response was received (I/O error, timeout, cancellation).
+     */
+    void recordCall(String operation, String endpoint, int status, long nanos);
+
+    /** Record one lookup in the SDK cache named {@code cache}. Ignored unless overridden. */
+    default void recordCache(String cache, CacheOutcome outcome) {
+    }
+
+    /**
+     * Record one batch taken from the {@link IngestPipeline} named {@code queue}:
+     * the depth left behind and how long its oldest item waited. Ignored unless
+     * overridden.
+     */
+    default void recordQueue(String queue, int depth, long lagNanos) {
+    }
+}
@@ -0,0 +1,188 @@
+package com.yagoutpay.sdk;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Currency;
+import java.util.Locale;
+
+/**
+ * An amount in integer minor units of a currency, e.g. 1250 for
+ * {@code 12.50 ETB}. The number of fraction digits follows the ISO 4217
+ * default of the currency (2 when unknown). Amounts are never negative.
+ * Immutable; arithmetic fails on overflow instead of rounding.
+ */
+public final class Money implements Comparable<Money> {
+    /** Longest rendering: 19 digits of a long plus the decimal point. */
+    static final int MAX_LENGTH = 20;
+    private static final long[] POW10 = { 1, 10, 100, 1_000, 10_000 };
+
+    private final long minor;
+    private final String currency;
+    private final int scale;
+
+    private Money(long minor, String currency, int scale) {
+        this.minor = minor;
+        this.currency = currency;
+        this.scale = scale;
+    }
+
+    /** {@code minor} units of {@code currency}, e.g. {@code ofMinor(1250, "ETB")} for 12.50. */
+    public static Money ofMinor(long minor, String currency) {
+        if (minor < 0)
+            throw new IllegalArgumentException("amount must not be negative");
+        String code = code(currency);
+        return new Money(minor, code, scale(code));
+    }
+
+    /**
+     * Parse a plain decimal such as {@code 12}, {@code 12.5} or {@code 12.50}.
+     * Fraction digits beyond the currency's scale are only accepted when zero.
+     *
+     * @throws IllegalArgumentException if {@code amount} is not a non-negative decimal or overflows
+     */
+    public static Money parse(String amount, String currency) {
+        String code = code(currency);
+        int scale = scale(code);
+        String s = amount == null ? "" : amount.trim();
+        try {
+            return parse(s, code, scale);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("amount too large: " + amount);
+        }
+    }
+
+    private static Money parse(String s, String code, int scale) {
+        long units = 0;
+        int frac = -1;
+        boolean digits = false;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '.' && frac < 0) {
+                frac = 0;
+            } else if (c >= '0' && c <= '9') {
+                digits = true;
+                if (frac >= 0 && ++frac > scale) {
+                    if (c != '0')
+                        throw new IllegalArgumentException("too many fraction digits for " + code + ": " + s);
+                    continue;
+                }
+                units = Math.addExact(Math.multiplyExact(units, 10), c - '0');
+            } else {
+                throw new IllegalArgumentException("invalid amount: " + s);
+            }
+        }
+        if (!digits)
+            throw new IllegalArgumentException("invalid amount: " + s);
+        int have = Math.min(Math.max(frac, 0), scale);
+        return new Money(Math.multiplyExact(units, POW10[scale - have]), code, scale);
+    }
+
+    private static String code(String currency) {
+        if (currency == null || currency.isEmpty())
+            throw new IllegalArgumentException("currency is required");
+        return currency.toUpperCase(Locale.ROOT);
+    }
+
+    /** Fraction digits of the upper-case ISO 4217 {@code code}, 2 when unknown. */
+    static int scale(String code) {
+        try {
+            int digits = Currency.getInstance(code).getDefaultFractionDigits();
+            return digits >= 0 && digits < POW10.length ? digits : 2;
+        } catch (IllegalArgumentException e) {
+            return 2;
+        }
+    }
+
+    public long minor() {
+        return minor;
+    }
+
+    /** Upper-case ISO 4217 code. */
+    public String currency() {
+        return currency;
+    }
+
+    /** Fraction digits of the currency. */
+    public int scale() {
+        return scale;
+    }
+
+    public boolean isZero() {
+        return minor == 0;
+    }
+
+    /** Sum of two amounts in the same currency. */
+    public Money plus(Money other) {
+        requireSameCurrency(other);
+        return new Money(Math.addExact(minor, other.minor), currency, scale);
+    }
+
+    /** This amount times {@code quantity}, e.g. a line item total. */
+    public Money times(long quantity) {
+        if (quantity < 0)
+            throw new IllegalArgumentException("quantity must not be negative");
+        return new Money(Math.multiplyExact(minor, quantity), currency, scale);
+    }
+
+    private void requireSameCurrency(Money other) {
+        if (!currency.equals(other.currency))
+            throw new IllegalArgumentException("currency mismatch: " + currency + " and " + other.currency);
+    }
+
+    /**
+     * Write the amount as ASCII (e.g. {@code 12.50}) into {@code dst} at
+     * {@code off} and return the number of bytes written, at most
+     * {@link #MAX_LENGTH}.
+     */
+    int format(byte[] dst, int off) {
+        long v = minor;
+        int len = Math.max(digits(v), scale + 1) + (scale > 0 ? 1 : 0);
+        int i = off + len;
+        for (int f = 0; f < scale; f++) {
+            dst[--i] = (byte) ('0' + v % 10);
+            v /= 10;
+        }
+        if (scale > 0)
+            dst[--i] = '.';
+        do {
+            dst[--i] = (byte) ('0' + v % 10);
+            v /= 10;
+        } while (i > off);
+        return len;
+    }
+
+    private static int digits(long v) {
+        int n = 1;
+        while (v >= 10) {
+            v /= 10;
+            n++;
+        }
+        return n;
+    }
+
+    @Override
+    public int compareTo(Money o) {
+        requireSameCurrency(o);
+        return Long.compare(minor, o.minor);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Money))
+            return false;
+        Money m = (Money) o;
+        return minor == m.minor && currency.equals(m.currency);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(minor) * 31 + currency.hashCode();
+    }
+
+    /** The plain amount, e.g. {@code 12.50}, as sent to the gateway. */
+    @Override
+    public String toString() {
+        byte[] buf = new byte[MAX_LENGTH];
+        int n = format(buf, 0);
+        return new String(buf, 0, n, StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,81 @@
+package com.yagoutpay.sdk;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Time-ordered order numbers that stay unique across threads and nodes
+ * without coordination. Each id packs 41 bits of milliseconds since
+ * 2025-01-01, a 10-bit node id and a 12-bit per-millisecond sequence into a
+ * positive long, issued with a single CAS. If the sequence runs out or the
+ * wall clock steps back, the generator keeps counting from the last issued
+ * timestamp instead of waiting or repeating, and rejoins the wall clock once
+ * it catches up.
+ *
+ * <p>{@link #next()} renders the id as the prefix plus 13 fixed-width base-36
+ * characters, e.g. {@code ORD0A1B2C3D4E5F6}; with the default prefix that is
+ * 16 ASCII characters and sorts in issue order.
+ */
+public final class OrderIds {
+    /** 2025-01-01T00:00:00Z. */
+    static final long EPOCH_MILLIS = 1_735_689_600_000L;
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    private static final int WIDTH = 13;
+    private static final byte[] DIGITS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ".getBytes(StandardCharsets.US_ASCII);
+
+    private final long node;
+    private final byte[] prefix;
+    /** Last issued timestamp and sequence as {@code millis << SEQUENCE_BITS | sequence}. */
+    private final AtomicLong last = new AtomicLong();
+
+    public OrderIds(int nodeId) {
+        this(nodeId, "ORD");
+    }
+
+    /** Generator for {@code nodeId} (0 to {@link #MAX_NODE_ID}); {@code prefix} must be ASCII. */
+    public OrderIds(int nodeId, String prefix) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID)
+            throw new IllegalArgumentException("nodeId must be between 0 and " + MAX_NODE_ID);
+        this.node = nodeId;
+        this.prefix = prefix.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /** Next id as a positive long. */
+    public long nextId() {
+        long now = System.currentTimeMillis() - EPOCH_MILLIS;
+        long prev;
+        long next;
+        do {
+            prev = last.get();
+            // Same millisecond, exhausted sequence or a clock step back: continue after the last id.
+            next = now > prev >>> SEQUENCE_BITS ? now << SEQUENCE_BITS : prev + 1;
+        } while (!last.compareAndSet(prev, next));
+        long millis = next >>> SEQUENCE_BITS;
+        long sequence = next & ((1L << SEQUENCE_BITS) - 1);
+        return millis << (NODE_BITS + SEQUENCE_BITS) | node << SEQUENCE_BITS | sequence;
+    }
+
+    /** Next order number: the prefix followed by the id in fixed-width base 36. */
+    public String next() {
+        long id = nextId();
+        byte[] out = new byte[prefix.length + WIDTH];
+        System.arraycopy(prefix, 0, out, 0, prefix.length);
+        for (int i = out.length - 1; i >= prefix.length; i--) {
+            out[i] = DIGITS[(int) (id % 36)];
+            id /= 36;
+        }
+        return new String(out, StandardCharsets.US_ASCII);
+    }
+
+    /** Wall-clock milliseconds encoded in {@code id}. */
+    public static long timestampMillis(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS;
+    }
+
+    /** Node id encoded in {@code id}. */
+    public static int nodeId(long id) {
+        return (int) (id >>> SEQUENCE_BITS) & MAX_NODE_ID;
+    }
+}
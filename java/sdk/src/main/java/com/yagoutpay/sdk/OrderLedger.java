@@ -0,0 +1,528 @@
+package com.yagoutpay.sdk;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compact index of issued orders for {@link Reconciler}. Orders are kept in
+ * parallel primitive arrays keyed by a 64-bit hash of the order number, with
+ * the amount in minor units of its currency (as in {@link Money}) and the
+ * order number bytes in an append-only arena, so each order costs a few dozen
+ * bytes and no per-order objects. A lookup is a hit only when the stored
+ * order number matches byte for byte, so hash collisions never merge orders.
+ * Recording the same order number again replaces its amount and currency.
+ * Safe for concurrent use: the index is split into stripes by hash, each with
+ * its own lock, so concurrent recorders rarely wait on each other.
+ *
+ * <p>The ledger holds one settlement window. At each cut-off, {@link #roll()}
+ * hands the window's orders to a new ledger for reconciliation and starts the
+ * next window empty, so the ledger does not grow for the life of the process.
+ */
+public final class OrderLedger {
+    private static final int ARENA_BITS = 16;
+    private static final int ARENA_CHUNK = 1 << ARENA_BITS;
+    private static final int MAX_ORDER_BYTES = 0xFFFF;
+    private static final int STRIPE_BITS = 4;
+    /** Most fraction digits of any currency scale. */
+    static final int MAX_SCALE = 4;
+
+    private final Stripe[] stripes = new Stripe[1 << STRIPE_BITS];
+    private final Currencies currencies;
+    private final LongAdder rejected = new LongAdder();
+    /** Held by {@link Reconciler} for a whole run, since the marks are shared. */
+    final Object runLock = new Object();
+
+    public OrderLedger() {
+        this(1024);
+    }
+
+    /** Ledger presized for about {@code expectedOrders} orders. */
+    public OrderLedger(int expectedOrders) {
+        this(new Currencies(), stripeCapacity(expectedOrders));
+    }
+
+    private OrderLedger(Currencies currencies, int stripeCapacity) {
+        this.currencies = currencies;
+        for (int i = 0; i < stripes.length; i++)
+            stripes[i] = new Stripe(currencies, stripeCapacity);
+    }
+
+    private static int stripeCapacity(int expectedOrders) {
+        long perStripe = Math.max(16, Math.min(1 << 30, expectedOrders * 4L / 3 >> STRIPE_BITS));
+        return Integer.highestOneBit((int) perStripe - 1) << 1;
+    }
+
+    /**
+     * Record an order as issued, taking a typed amount as is.
+     *
+     * @throws IllegalArgumentException if the order number is missing or too long, or the amount is invalid
+     */
+    public void record(Types.TransactionDetails details) {
+        Money money = details.money();
+        if (money != null) {
+            record(details.orderNumber, money.minor(), money.currency());
+        } else {
+            record(details.orderNumber, details.amount, details.currency);
+        }
+    }
+
+    /**
+     * Record an order as issued.
+     *
+     * @throws IllegalArgumentException if the amount is not a decimal with at most the currency's fraction digits
+     */
+    public void record(String orderNumber, String amount, String currency) {
+        String code = code(currency);
+        long minor = parseMinor(amount, Money.scale(code));
+        if (minor < 0)
+            throw new IllegalArgumentException("invalid amount for " + code + ": " + amount);
+        record(orderNumber, minor, code);
+    }
+
+    /**
+     * {@link #record(Types.TransactionDetails)} that never throws, for callers
+     * that must not fail because of bookkeeping. Returns false and counts the
+     * order in {@link #rejected()} if it could not be recorded.
+     */
+    boolean tryRecord(Types.TransactionDetails details) {
+        try {
+            record(details);
+            return true;
+        } catch (RuntimeException e) {
+            rejected.increment();
+            return false;
+        }
+    }
+
+    private void record(String orderNumber, long minor, String code) {
+        if (orderNumber == null)
+            throw new IllegalArgumentException("order number is required");
+        byte[] order = orderNumber.getBytes(StandardCharsets.UTF_8);
+        if (order.length > MAX_ORDER_BYTES)
+            throw new IllegalArgumentException("order number too long");
+        put(hash(order, 0, order.length), order, minor, code);
+    }
+
+    /** Store {@code order} under {@code key}; split out so tests can force hash collisions. */
+    void put(long key, byte[] order, long minor, String code) {
+        short currency = currencies.id(code);
+        Stripe s = stripe(key);
+        synchronized (s) {
+            s.put(key, order, minor, currency);
+        }
+    }
+
+    /** Whether {@code orderNumber} has been recorded. */
+    public boolean contains(String orderNumber) {
+        byte[] b = orderNumber.getBytes(StandardCharsets.UTF_8);
+        long key = hash(b, 0, b.length);
+        Stripe s = stripe(key);
+        synchronized (s) {
+            return s.find(key, b, 0, b.length) >= 0;
+        }
+    }
+
+    /**
+     * Close the current settlement window: move every recorded order into a
+     * new ledger and return it, leaving this one empty. An order recorded
+     * concurrently lands in exactly one of the two. Waits for a running
+     * reconciliation of this ledger to finish.
+     */
+    public OrderLedger roll() {
+        OrderLedger closed = new OrderLedger(currencies, stripes[0].initialCapacity);
+        synchronized (runLock) {
+            for (int i = 0; i < stripes.length; i++) {
+                synchronized (stripes[i]) {
+                    stripes[i].swap(closed.stripes[i]);
+                }
+            }
+        }
+        return closed;
+    }
+
+    /** Drop every recorded order, e.g. once a window has been reconciled. */
+    public void clear() {
+        synchronized (runLock) {
+            for (Stripe s : stripes) {
+                synchronized (s) {
+                    s.reset();
+                }
+            }
+        }
+    }
+
+    /** Orders recorded. */
+    public int size() {
+        int n = 0;
+        for (Stripe s : stripes) {
+            synchronized (s) {
+                n += s.size;
+            }
+        }
+        return n;
+    }
+
+    /** Orders the client could not record, e.g. because of an unparseable amount; they were still sent. */
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    /** Approximate heap held by the index and arena, in bytes. */
+    public long memoryBytes() {
+        long n = 0;
+        for (Stripe s : stripes) {
+            synchronized (s) {
+                n += s.keys.length * 27L + (long) s.arena.size() * ARENA_CHUNK;
+            }
+        }
+        return n;
+    }
+
+    // ---- reconciliation support ----
+
+    /** Stripe holding {@code key}; callers lock it around every use. */
+    Stripe stripe(long key) {
+        return stripes[(int) (key >>> (64 - STRIPE_BITS))];
+    }
+
+    int stripeCount() {
+        return stripes.length;
+    }
+
+    Stripe stripeAt(int i) {
+        return stripes[i];
+    }
+
+    /**
+     * One lock's share of the index: open addressing with linear probing, key
+     * 0 marking an empty slot. Callers hold the stripe's monitor.
+     */
+    static final class Stripe {
+        private final Currencies currencies;
+        private final int initialCapacity;
+        private long[] keys;
+        private long[] amounts;
+        /** Arena offset in the high 48 bits, byte length in the low 16. */
+        private long[] refs;
+        private short[] currencyIds;
+        /** Per-slot state of the running reconciliation: times the order was seen. */
+        private byte[] marks;
+        private int size;
+        private List<byte[]> arena = new ArrayList<>();
+        private long arenaEnd;
+
+        Stripe(Currencies currencies, int cap) {
+            this.currencies = currencies;
+            this.initialCapacity = cap;
+            allocate(cap);
+        }
+
+        /** Exchange contents with {@code other}; both are locked by the caller. */
+        void swap(Stripe other) {
+            long[] k = keys;
+            keys = other.keys;
+            other.keys = k;
+            long[] a = amounts;
+            amounts = other.amounts;
+            other.amounts = a;
+            long[] r = refs;
+            refs = other.refs;
+            other.refs = r;
+            short[] c = currencyIds;
+            currencyIds = other.currencyIds;
+            other.currencyIds = c;
+            byte[] m = marks;
+            marks = other.marks;
+            other.marks = m;
+            int n = size;
+            size = other.size;
+            other.size = n;
+            List<byte[]> ar = arena;
+            arena = other.arena;
+            other.arena = ar;
+            long end = arenaEnd;
+            arenaEnd = other.arenaEnd;
+            other.arenaEnd = end;
+        }
+
+        void reset() {
+            allocate(initialCapacity);
+            size = 0;
+            arena = new ArrayList<>();
+            arenaEnd = 0;
+        }
+
+        private void allocate(int cap) {
+            keys = new long[cap];
+            amounts = new long[cap];
+            refs = new long[cap];
+            currencyIds = new short[cap];
+            marks = new byte[cap];
+        }
+
+        void put(long key, byte[] order, long minor, short currency) {
+            if (size + 1 > keys.length * 3L / 4)
+                grow();
+            int slot = slot(key, order, 0, order.length);
+            if (keys[slot] == 0) {
+                keys[slot] = key;
+                refs[slot] = append(order);
+                size++;
+            }
+            amounts[slot] = minor;
+            currencyIds[slot] = currency;
+        }
+
+        /** Slot of the order number {@code b[off, off + len)} hashing to {@code key}, or -1 if never recorded. */
+        int find(long key, byte[] b, int off, int len) {
+            int slot = slot(key, b, off, len);
+            return keys[slot] != 0 ? slot : -1;
+        }
+
+        int capacity() {
+            return keys.length;
+        }
+
+        boolean occupied(int slot) {
+            return keys[slot] != 0;
+        }
+
+        long amount(int slot) {
+            return amounts[slot];
+        }
+
+        String currency(int slot) {
+            return currencies.code(currencyIds[slot]);
+        }
+
+        /** Fraction digits of the recorded amount. */
+        int scale(int slot) {
+            return currencies.scale(currencyIds[slot]);
+        }
+
+        /** Compare the recorded currency with {@code len} ASCII bytes at {@code off}. */
+        boolean currencyEquals(int slot, byte[] buf, int off, int len) {
+            String c = currency(slot);
+            if (c.length() != len)
+                return false;
+            for (int i = 0; i < len; i++) {
+                if (Character.toUpperCase((char) buf[off + i]) != Character.toUpperCase(c.charAt(i)))
+                    return false;
+            }
+            return true;
+        }
+
+        String orderNumber(int slot) {
+            long ref = refs[slot];
+            long off = ref >>> 16;
+            int len = (int) (ref & 0xFFFF);
+            byte[] out = new byte[len];
+            for (int i = 0; i < len; i++, off++)
+                out[i] = arenaByte(off);
+            return new String(out, StandardCharsets.UTF_8);
+        }
+
+        /** Increment the seen count of {@code slot}, saturating, and return the count before. */
+        int mark(int slot) {
+            int seen = marks[slot];
+            if (seen < Byte.MAX_VALUE)
+                marks[slot] = (byte) (seen + 1);
+            return seen;
+        }
+
+        int seen(int slot) {
+            return marks[slot];
+        }
+
+        void clearMarks() {
+            Arrays.fill(marks, (byte) 0);
+        }
+
+        // Probe past slots whose hash matches but whose stored order number does not.
+        private int slot(long key, byte[] b, int off, int len) {
+            int mask = keys.length - 1;
+            int i = (int) (key ^ (key >>> 32)) & mask;
+            while (keys[i] != 0 && (keys[i] != key || !orderEquals(refs[i], b, off, len)))
+                i = (i + 1) & mask;
+            return i;
+        }
+
+        private boolean orderEquals(long ref, byte[] b, int off, int len) {
+            if ((int) (ref & 0xFFFF) != len)
+                return false;
+            long pos = ref >>> 16;
+            for (int i = 0; i < len; i++, pos++) {
+                if (arenaByte(pos) != b[off + i])
+                    return false;
+            }
+            return true;
+        }
+
+        private byte arenaByte(long pos) {
+            return arena.get((int) (pos >>> ARENA_BITS))[(int) pos & (ARENA_CHUNK - 1)];
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            long[] oldAmounts = amounts;
+            long[] oldRefs = refs;
+            short[] oldCurrencies = currencyIds;
+            byte[] oldMarks = marks;
+            allocate(oldKeys.length * 2);
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                long key = oldKeys[i];
+                if (key == 0)
+                    continue;
+                // Entries are distinct already, so only an empty slot is needed.
+                int s = (int) (key ^ (key >>> 32)) & mask;
+                while (keys[s] != 0)
+                    s = (s + 1) & mask;
+                keys[s] = key;
+                amounts[s] = oldAmounts[i];
+                refs[s] = oldRefs[i];
+                currencyIds[s] = oldCurrencies[i];
+                marks[s] = oldMarks[i];
+            }
+        }
+
+        private long append(byte[] order) {
+            long start = arenaEnd;
+            for (byte b : order) {
+                int chunk = (int) (arenaEnd >>> ARENA_BITS);
+                if (chunk == arena.size())
+                    arena.add(new byte[ARENA_CHUNK]);
+                arena.get(chunk)[(int) arenaEnd & (ARENA_CHUNK - 1)] = b;
+                arenaEnd++;
+            }
+            return start << 16 | order.length;
+        }
+    }
+
+    /**
+     * Currency codes seen so far and their scales, append-only. Lookups read a
+     * published array without locking; only a new code takes the lock.
+     */
+    static final class Currencies {
+        private volatile String[] codes = new String[0];
+        private volatile byte[] scales = new byte[0];
+
+        short id(String code) {
+            short i = indexOf(codes, code);
+            if (i >= 0)
+                return i;
+            synchronized (this) {
+                String[] c = codes;
+                i = indexOf(c, code);
+                if (i >= 0)
+                    return i;
+                if (c.length == Short.MAX_VALUE)
+                    throw new IllegalStateException("too many currencies");
+                byte[] sc = Arrays.copyOf(scales, c.length + 1);
+                sc[c.length] = (byte) Money.scale(code);
+                scales = sc;
+                String[] next = Arrays.copyOf(c, c.length + 1);
+                next[c.length] = code;
+                codes = next;
+                return (short) c.length;
+            }
+        }
+
+        String code(short id) {
+            return codes[id];
+        }
+
+        int scale(short id) {
+            return scales[id];
+        }
+
+        private static short indexOf(String[] codes, String code) {
+            for (short i = 0; i < codes.length; i++) {
+                if (codes[i].equals(code))
+                    return i;
+            }
+            return -1;
+        }
+    }
+
+    private static String code(String currency) {
+        return currency == null ? "" : currency.toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * 64-bit FNV-1a with a final avalanche step; never returns 0. Collisions
+     * between distinct order numbers are possible but unlikely below billions
+     * of orders.
+     */
+    static long hash(byte[] b, int off, int len) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = off; i < off + len; i++) {
+            h ^= b[i] & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h != 0 ? h : 1;
+    }
+
+    static long parseMinor(String amount, int scale) {
+        if (amount == null)
+            return -1;
+        byte[] b = amount.trim().getBytes(StandardCharsets.US_ASCII);
+        return parseMinor(b, 0, b.length, scale);
+    }
+
+    /**
+     * Parse a non-negative decimal such as {@code 12}, {@code 12.5} or
+     * {@code 12.50} into minor units with {@code scale} fraction digits; -1 if
+     * it is not one. Extra fraction digits are accepted only when they are zeros.
+     */
+    static long parseMinor(byte[] b, int off, int len, int scale) {
+        long units = 0;
+        int frac = -1;
+        boolean digits = false;
+        for (int i = off; i < off + len; i++) {
+            int c = b[i];
+            if (c == '.') {
+                if (frac >= 0)
+                    return -1;
+                frac = 0;
+            } else if (c >= '0' && c <= '9') {
+                digits = true;
+                if (frac >= 0 && ++frac > scale) {
+                    if (c != '0')
+                        return -1;
+                    continue;
+                }
+                if (units > (Long.MAX_VALUE - 9) / 10)
+                    return -1;
+                units = units * 10 + (c - '0');
+            } else {
+                return -1;
+            }
+        }
+        if (!digits)
+            return -1;
+        for (int f = Math.max(frac, 0); f < scale; f++) {
+            if (units > Long.MAX_VALUE / 10)
+                return -1;
+            units *= 10;
+        }
+        return units;
+    }
+
+    /** {@code minor} as a plain decimal with {@code scale} fraction digits, e.g. {@code 12.50}. */
+    static String formatMinor(long minor, int scale) {
+        if (scale == 0)
+            return Long.toString(minor);
+        StringBuilder sb = new StringBuilder(Long.toString(minor));
+        while (sb.length() <= scale)
+            sb.insert(0, '0');
+        return sb.insert(sb.length() - scale, '.').toString();
+    }
+}
@@ -0,0 +1,105 @@
+package com.yagoutpay.sdk;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Local cache of static payment link results, keyed by a digest of the
+ * filled {@link Types.PaymentLinkPlain} and endpoint. Entries expire after
+ * {@link Config#ttl}; with {@link Config#staleWhileRevalidate} an expired entry
+ * is still served while one background request refreshes it.
+ */
+public final class PaymentLinkCache {
+    static final String NAME = "paymentLink";
+
+    /** Configuration for {@link PaymentLinkCache}. */
+    public static final class Config {
+        public int maxEntries = 1000;
+        public Duration ttl = Duration.ofMinutes(10);
+        /** How long past {@link #ttl} an entry may be served while it is refreshed; null disables. */
+        public Duration staleWhileRevalidate;
+    }
+
+    private final ExpiringCache<String, Types.PaymentLinkResult> entries;
+    private final long graceNanos;
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    private final Metrics metrics;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    PaymentLinkCache(Config cfg, Metrics metrics) {
+        this.entries = new ExpiringCache<>(cfg.maxEntries, cfg.ttl);
+        this.graceNanos = cfg.staleWhileRevalidate != null ? cfg.staleWhileRevalidate.toNanos() : 0;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Cached result for {@code key}, or null on a miss. A stale entry is
+     * returned as is and, unless a refresh is already running, {@code refresh}
+     * is started to replace it.
+     */
+    Types.PaymentLinkResult lookup(String key, Supplier<CompletableFuture<Types.PaymentLinkResult>> refresh) {
+        ExpiringCache.Entry<Types.PaymentLinkResult> e = entries.entry(key, graceNanos);
+        if (e == null) {
+            misses.increment();
+            metrics.recordCache(NAME, Metrics.CacheOutcome.MISS);
+            return null;
+        }
+        if (graceNanos == 0 || !entries.isExpired(e)) {
+            hits.increment();
+            metrics.recordCache(NAME, Metrics.CacheOutcome.HIT);
+            return e.value;
+        }
+        staleHits.increment();
+        metrics.recordCache(NAME, Metrics.CacheOutcome.STALE);
+        if (refreshing.add(key)) {
+            CompletableFuture<Types.PaymentLinkResult> f;
+            try {
+                f = refresh.get();
+            } catch (RuntimeException ex) {
+                f = CompletableFuture.failedFuture(ex);
+            }
+            // A failed refresh keeps serving the stale entry until it falls out of the grace period.
+            f.whenComplete((v, t) -> {
+                if (t == null)
+                    entries.put(key, v);
+                refreshing.remove(key);
+            });
+        }
+        return e.value;
+    }
+
+    void put(String key, Types.PaymentLinkResult result) {
+        entries.put(key, result);
+    }
+
+    /** Lookups served from a fresh entry. */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /** Lookups served from an expired entry while it was refreshed. */
+    public long staleHits() {
+        return staleHits.sum();
+    }
+
+    /** Lookups that had to call the gateway. */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /** Entries currently held, including expired ones not yet evicted. */
+    public int size() {
+        return entries.size();
+    }
+
+    /** Drop every cached link, for example after the store configuration changed. */
+    public void clear() {
+        entries.clear();
+    }
+}
@@ -0,0 +1,564 @@
+package com.yagoutpay.sdk;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Matches a gateway settlement export against the orders in an
+ * {@link OrderLedger}. The file is streamed through a fixed buffer and each
+ * row is looked up by order-number hash, so memory stays flat however many
+ * rows the file has. CSV rows are read in place without per-row objects;
+ * JSONL rows go through Jackson's streaming parser. Discrepancies are
+ * reported to a {@link Listener} as they are found; totals are returned as a
+ * {@link Report}. Reconciliations of the same ledger run one at a time.
+ */
+public final class Reconciler {
+    private static final String[] ORDER_COLUMNS = { "orderno", "ordernumber" };
+    private static final String[] AMOUNT_COLUMNS = { "amount" };
+    private static final String[] CURRENCY_COLUMNS = { "currency" };
+    private static final int MISSING_SCAN_SLOTS = 4096;
+
+    /** Settlement file layouts. */
+    public enum Format {
+        /** Comma-separated with a header row; double-quoted fields may hold commas and newlines. */
+        CSV,
+        /** One flat JSON object per line; nested objects and arrays are skipped. */
+        JSONL
+    }
+
+    /** Configuration for {@link Reconciler}. */
+    public static final class Config {
+        /** Column or field holding the order number; null accepts order_no, orderNo, order_number, orderNumber. */
+        public String orderColumn;
+        /** Column or field holding the settled amount; null means {@code amount}. */
+        public String amountColumn;
+        /** Column or field holding the currency; null means {@code currency}. Rows without one skip the check. */
+        public String currencyColumn;
+        /** Read buffer size; lines longer than this grow it. */
+        public int bufferSize = 1 << 16;
+    }
+
+    /** Receives discrepancies as they are found. All methods default to no-ops. */
+    public interface Listener {
+        /** Listener that ignores every event. */
+        Listener NONE = new Listener() {
+        };
+
+        /** A settled row whose amount or currency differs from the issued order. */
+        default void onMismatch(String orderNumber, String issuedAmount, String issuedCurrency, String settledAmount,
+                String settledCurrency) {
+        }
+
+        /** A settled row for an order that already appeared earlier in the file. */
+        default void onDuplicate(String orderNumber) {
+        }
+
+        /** A settled row for an order the ledger never recorded. */
+        default void onUnknown(String orderNumber) {
+        }
+
+        /** An issued order with no settled row. */
+        default void onMissing(String orderNumber) {
+        }
+
+        /** A row that could not be read; {@code line} is 1-based. */
+        default void onMalformed(long line, String reason) {
+        }
+    }
+
+    /** Totals of one reconciliation. */
+    public static final class Report {
+        public final long rows;
+        public final long matched;
+        public final long mismatched;
+        public final long duplicates;
+        public final long unknown;
+        public final long missing;
+        public final long malformed;
+
+        Report(long rows, long matched, long mismatched, long duplicates, long unknown, long missing,
+                long malformed) {
+            this.rows = rows;
+            this.matched = matched;
+            this.mismatched = mismatched;
+            this.duplicates = duplicates;
+            this.unknown = unknown;
+            this.missing = missing;
+            this.malformed = malformed;
+        }
+
+        @Override
+        public String toString() {
+            return "rows=" + rows + " matched=" + matched + " mismatched=" + mismatched + " duplicates=" + duplicates
+                    + " unknown=" + unknown + " missing=" + missing + " malformed=" + malformed;
+        }
+    }
+
+    private final OrderLedger ledger;
+    private final String[] orderColumns;
+    private final String[] amountColumns;
+    private final String[] currencyColumns;
+    private final int bufferSize;
+
+    public Reconciler(OrderLedger ledger) {
+        this(ledger, new Config());
+    }
+
+    public Reconciler(OrderLedger ledger, Config cfg) {
+        this.ledger = ledger;
+        this.orderColumns = columns(cfg.orderColumn, ORDER_COLUMNS);
+        this.amountColumns = columns(cfg.amountColumn, AMOUNT_COLUMNS);
+        this.currencyColumns = columns(cfg.currencyColumn, CURRENCY_COLUMNS);
+        this.bufferSize = Math.max(1024, cfg.bufferSize);
+    }
+
+    private static String[] columns(String configured, String[] defaults) {
+        return configured != null ? new String[] { normalize(configured) } : defaults;
+    }
+
+    /** Reconcile {@code file}, reading {@code .jsonl}/{@code .ndjson} as JSONL and anything else as CSV. */
+    public Report reconcile(Path file, Listener listener) throws IOException {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        Format format = name.endsWith(".jsonl") || name.endsWith(".ndjson") ? Format.JSONL : Format.CSV;
+        try (InputStream in = Files.newInputStream(file)) {
+            return reconcile(in, format, listener);
+        }
+    }
+
+    /**
+     * Reconcile a settlement stream. Every ledger order not seen in the stream
+     * is reported as missing once the stream ends.
+     */
+    public Report reconcile(InputStream in, Format format, Listener listener) throws IOException {
+        synchronized (ledger.runLock) {
+            for (int i = 0; i < ledger.stripeCount(); i++) {
+                OrderLedger.Stripe stripe = ledger.stripeAt(i);
+                synchronized (stripe) {
+                    stripe.clearMarks();
+                }
+            }
+            Run run = new Run(listener);
+            if (format == Format.JSONL) {
+                readJsonLines(in, run);
+            } else {
+                readCsv(in, run);
+            }
+            reportMissing(run);
+            return new Report(run.rows, run.matched, run.mismatched, run.duplicates, run.unknown, run.missing,
+                    run.malformed);
+        }
+    }
+
+    /** Counters and listener of one reconciliation. */
+    private final class Run {
+        final Listener listener;
+        long rows;
+        long matched;
+        long mismatched;
+        long duplicates;
+        long unknown;
+        long missing;
+        long malformed;
+
+        Run(Listener listener) {
+            this.listener = listener != null ? listener : Listener.NONE;
+        }
+
+        /**
+         * Check one settled row; fields are byte ranges of {@code b}, currency
+         * length -1 when absent. An empty currency counts as absent. The amount
+         * is read at the scale of the issued currency, or of the settled one
+         * when they differ.
+         */
+        void row(long line, byte[] b, int orderOff, int orderLen, int amountOff, int amountLen, int currencyOff,
+                int currencyLen) {
+            rows++;
+            if (currencyLen == 0)
+                currencyLen = -1;
+            if (orderLen == 0) {
+                malformed("missing order number", line);
+                return;
+            }
+            long key = OrderLedger.hash(b, orderOff, orderLen);
+            int seen = -1;
+            long issued = 0;
+            long settled;
+            int issuedScale = 0;
+            int settledScale = OrderLedger.MAX_SCALE;
+            boolean currencyOk = true;
+            String issuedCurrency = null;
+            OrderLedger.Stripe stripe = ledger.stripe(key);
+            synchronized (stripe) {
+                int slot = stripe.find(key, b, orderOff, orderLen);
+                if (slot >= 0) {
+                    issuedScale = settledScale = stripe.scale(slot);
+                    if (currencyLen >= 0 && !stripe.currencyEquals(slot, b, currencyOff, currencyLen)) {
+                        currencyOk = false;
+                        settledScale = Money.scale(text(b, currencyOff, currencyLen).toUpperCase(Locale.ROOT));
+                    }
+                }
+                settled = OrderLedger.parseMinor(b, amountOff, amountLen, settledScale);
+                if (slot >= 0 && settled >= 0) {
+                    seen = stripe.mark(slot);
+                    issued = stripe.amount(slot);
+                    if (seen == 0 && (issued != settled || !currencyOk))
+                        issuedCurrency = stripe.currency(slot);
+                }
+            }
+            // Strings are only built for discrepancies, outside the stripe lock.
+            if (settled < 0) {
+                malformed("invalid amount", line);
+            } else if (seen < 0) {
+                unknown++;
+                listener.onUnknown(text(b, orderOff, orderLen));
+            } else if (seen > 0) {
+                duplicates++;
+                listener.onDuplicate(text(b, orderOff, orderLen));
+            } else if (issued != settled || !currencyOk) {
+                mismatched++;
+                listener.onMismatch(text(b, orderOff, orderLen), OrderLedger.formatMinor(issued, issuedScale),
+                        issuedCurrency, OrderLedger.formatMinor(settled, settledScale),
+                        currencyLen >= 0 ? text(b, currencyOff, currencyLen) : null);
+            } else {
+                matched++;
+            }
+        }
+
+        void malformed(String reason, long line) {
+            malformed++;
+            listener.onMalformed(line, reason);
+        }
+    }
+
+    private void reportMissing(Run run) {
+        List<String> batch = new ArrayList<>();
+        for (int i = 0; i < ledger.stripeCount(); i++) {
+            OrderLedger.Stripe stripe = ledger.stripeAt(i);
+            int cap;
+            synchronized (stripe) {
+                cap = stripe.capacity();
+            }
+            // Scan in blocks so recording is not held up for the whole stripe.
+            for (int from = 0; ; from += MISSING_SCAN_SLOTS) {
+                synchronized (stripe) {
+                    if (stripe.capacity() != cap) {
+                        // The stripe grew; slots moved, so restart. Marks travel with their orders.
+                        cap = stripe.capacity();
+                        from = -MISSING_SCAN_SLOTS;
+                        batch.clear();
+                        continue;
+                    }
+                    if (from >= cap)
+                        break;
+                    int to = Math.min(cap, from + MISSING_SCAN_SLOTS);
+                    for (int s = from; s < to; s++) {
+                        if (stripe.occupied(s) && stripe.seen(s) == 0) {
+                            // Marked seen so a restart after growth does not report it twice.
+                            stripe.mark(s);
+                            batch.add(stripe.orderNumber(s));
+                        }
+                    }
+                }
+                for (String order : batch) {
+                    run.missing++;
+                    run.listener.onMissing(order);
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    // ---- lines ----
+
+    /**
+     * Receives each record as {@code b[from, to)} without its terminator;
+     * {@code line} is the 1-based physical line it starts on.
+     */
+    private interface LineHandler {
+        void line(long line, byte[] b, int from, int to) throws IOException;
+    }
+
+    /**
+     * Feed every record of {@code in} to {@code handler} from one buffer that
+     * only grows for long records. A record ends at a newline; when
+     * {@code quoted} is set, newlines inside double quotes are part of the
+     * record, as in CSV. Line numbers still count physical lines.
+     */
+    private void readLines(InputStream in, boolean quoted, LineHandler handler) throws IOException {
+        byte[] buf = new byte[bufferSize];
+        int start = 0;
+        int end = 0;
+        int scan = 0;
+        boolean inQuotes = false;
+        int innerLines = 0;
+        long line = 0;
+        boolean eof = false;
+        while (true) {
+            int nl = -1;
+            for (; scan < end; scan++) {
+                byte c = buf[scan];
+                if (c == '"' && quoted) {
+                    inQuotes = !inQuotes;
+                } else if (c == '\n') {
+                    if (!inQuotes) {
+                        nl = scan;
+                        break;
+                    }
+                    innerLines++;
+                }
+            }
+            if (nl < 0 && !eof) {
+                // Compact, grow if one record fills the buffer, and read more.
+                if (start > 0) {
+                    System.arraycopy(buf, start, buf, 0, end - start);
+                    end -= start;
+                    scan -= start;
+                    start = 0;
+                }
+                if (end == buf.length)
+                    buf = Arrays.copyOf(buf, buf.length * 2);
+                int n = in.read(buf, end, buf.length - end);
+                if (n < 0) {
+                    eof = true;
+                } else {
+                    end += n;
+                }
+                continue;
+            }
+            int lineEnd = nl >= 0 ? nl : end;
+            if (lineEnd == start && nl < 0)
+                break;
+            line++;
+            int stop = lineEnd > start && buf[lineEnd - 1] == '\r' ? lineEnd - 1 : lineEnd;
+            handler.line(line, buf, start, stop);
+            line += innerLines;
+            innerLines = 0;
+            inQuotes = false;
+            start = nl >= 0 ? nl + 1 : end;
+            scan = start;
+        }
+    }
+
+    // ---- CSV ----
+
+    private void readCsv(InputStream in, Run run) throws IOException {
+        Fields fields = new Fields();
+        // order, amount and currency column; order -1 until the header is read
+        int[] cols = { -1, -1, -1 };
+        readLines(in, true, (line, b, from, to) -> {
+            if (to == from)
+                return;
+            fields.split(b, from, to);
+            if (cols[0] < 0) {
+                cols[0] = column(b, fields, orderColumns);
+                cols[1] = column(b, fields, amountColumns);
+                cols[2] = column(b, fields, currencyColumns);
+                if (cols[0] < 0 || cols[1] < 0)
+                    throw new IOException("settlement header has no order number or amount column");
+            } else if (cols[0] >= fields.count || cols[1] >= fields.count) {
+                run.rows++;
+                run.malformed("too few columns", line);
+            } else {
+                boolean hasCurrency = cols[2] >= 0 && cols[2] < fields.count;
+                run.row(line, b, fields.start(cols[0]), fields.length(cols[0]), fields.start(cols[1]),
+                        fields.length(cols[1]), hasCurrency ? fields.start(cols[2]) : 0,
+                        hasCurrency ? fields.length(cols[2]) : -1);
+            }
+        });
+    }
+
+    /** Field bounds of the current CSV line as {@code [start, end)} pairs. */
+    private static final class Fields {
+        int[] bounds = new int[64];
+        int count;
+
+        int start(int f) {
+            return bounds[2 * f];
+        }
+
+        int length(int f) {
+            return bounds[2 * f + 1] - bounds[2 * f];
+        }
+
+        /**
+         * Split {@code b[from, to)} at commas, trimming spaces and unquoting in
+         * place. Quoted fields may hold commas, doubled quotes and newlines.
+         */
+        void split(byte[] b, int from, int to) {
+            count = 0;
+            int i = from;
+            while (true) {
+                while (i < to && b[i] == ' ')
+                    i++;
+                int s;
+                int e;
+                if (i < to && b[i] == '"') {
+                    // Quoted: copy down over doubled quotes.
+                    s = ++i;
+                    int w = i;
+                    while (i < to) {
+                        if (b[i] == '"') {
+                            if (i + 1 < to && b[i + 1] == '"') {
+                                b[w++] = '"';
+                                i += 2;
+                                continue;
+                            }
+                            i++;
+                            break;
+                        }
+                        b[w++] = b[i++];
+                    }
+                    e = w;
+                    while (i < to && b[i] != ',')
+                        i++;
+                } else {
+                    s = i;
+                    while (i < to && b[i] != ',')
+                        i++;
+                    e = i;
+                    while (e > s && b[e - 1] == ' ')
+                        e--;
+                }
+                if (2 * count + 2 > bounds.length)
+                    bounds = Arrays.copyOf(bounds, bounds.length * 2);
+                bounds[2 * count] = s;
+                bounds[2 * count + 1] = e;
+                count++;
+                if (i >= to)
+                    return;
+                i++;
+            }
+        }
+    }
+
+    private static int column(byte[] b, Fields fields, String[] names) {
+        for (int f = 0; f < fields.count; f++) {
+            String name = normalize(text(b, fields.start(f), fields.length(f)));
+            for (String n : names) {
+                if (n.equals(name))
+                    return f;
+            }
+        }
+        return -1;
+    }
+
+    // ---- JSONL ----
+
+    private void readJsonLines(InputStream in, Run run) throws IOException {
+        JsonRow row = new JsonRow();
+        readLines(in, false, (line, b, from, to) -> {
+            int i = from;
+            while (i < to && (b[i] == ' ' || b[i] == '\t'))
+                i++;
+            if (i == to)
+                return;
+            String invalid = row.parse(b, i, to);
+            if (invalid != null) {
+                run.rows++;
+                run.malformed(invalid, line);
+            } else {
+                run.row(line, row.buf, 0, row.orderLen, row.orderLen, row.amountLen, row.orderLen + row.amountLen,
+                        row.currencyLen);
+            }
+        });
+    }
+
+    /**
+     * One flat JSON object read with Jackson's streaming parser. The order,
+     * amount and currency are copied as UTF-8 into one reused buffer, in that
+     * order, for {@link Run#row}. Nested values are skipped; nulls count as
+     * absent.
+     */
+    private final class JsonRow {
+        byte[] buf = new byte[256];
+        int orderLen;
+        int amountLen;
+        int currencyLen;
+
+        /** Read the object at {@code b[from, to)}; null on success, otherwise why the line is malformed. */
+        String parse(byte[] b, int from, int to) throws IOException {
+            String order = null;
+            String amount = null;
+            String currency = null;
+            try (JsonParser p = ResponseCodec.JSON.createParser(b, from, to - from)) {
+                if (p.nextToken() != JsonToken.START_OBJECT)
+                    return "not a JSON object";
+                JsonToken t;
+                while ((t = p.nextToken()) == JsonToken.FIELD_NAME) {
+                    String name = p.currentName();
+                    JsonToken v = p.nextToken();
+                    if (v == JsonToken.START_OBJECT || v == JsonToken.START_ARRAY) {
+                        p.skipChildren();
+                    } else if (v == JsonToken.VALUE_NULL) {
+                        continue;
+                    } else if (order == null && named(name, orderColumns)) {
+                        order = p.getText();
+                    } else if (amount == null && named(name, amountColumns)) {
+                        amount = p.getText().trim();
+                    } else if (currency == null && named(name, currencyColumns)) {
+                        currency = p.getText().trim();
+                    }
+                }
+                if (t != JsonToken.END_OBJECT || p.nextToken() != null)
+                    return "invalid JSON";
+            } catch (JsonProcessingException e) {
+                return "invalid JSON";
+            }
+            int n = 0;
+            n = put(order, n);
+            orderLen = n;
+            n = put(amount, n);
+            amountLen = n - orderLen;
+            currencyLen = currency != null ? put(currency, n) - n : -1;
+            return null;
+        }
+
+        private int put(String value, int off) {
+            if (value == null)
+                return off;
+            byte[] v = value.getBytes(StandardCharsets.UTF_8);
+            if (off + v.length > buf.length)
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, off + v.length));
+            System.arraycopy(v, 0, buf, off, v.length);
+            return off + v.length;
+        }
+    }
+
+    /** Whether {@code key} names one of the normalized {@code names}, ignoring case and underscores. */
+    private static boolean named(String key, String[] names) {
+        for (String n : names) {
+            int j = 0;
+            int i = 0;
+            for (; i < key.length(); i++) {
+                char c = key.charAt(i);
+                if (c == '_')
+                    continue;
+                if (j >= n.length() || n.charAt(j) != Character.toLowerCase(c))
+                    break;
+                j++;
+            }
+            if (i == key.length() && j == n.length())
+                return true;
+        }
+        return false;
+    }
+
+    /** Lower-case and drop underscores, so order_no and orderNo name the same column. */
+    private static String normalize(String column) {
+        return column.replace("_", "").toLowerCase(Locale.ROOT);
+    }
+
+    private static String text(byte[] b, int off, int len) {
+        return new String(b, off, len, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,17 @@
+package com.yagoutpay.sdk;
+
+/** Helpers for keeping secrets out of log messages. */
+final class Redact {
+    private Redact() {
+    }
+
+    /** Short preview of a long base64 value such as a cipher or hash. */
+    static String preview(String value) {
+        if (value == null)
+            return null;
+        if (value.length() <= 16)
+            return value;
+        return value.substring(0, 8) + "..." + value.substring(value.length() - 8) + " (" + value.length()
+                + " chars)";
+    }
+}
@@ -0,0 +1,196 @@
+package com.yagoutpay.sdk;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Merchant request with the fields that are the same for every order
+ * (aggregator, merchant, country, currency, callback URLs, channel, payment
+ * gateway, bill/ship/item and udf sections) rendered once into byte
+ * segments, for both the WEB {@code merchant_request} and the API JSON.
+ * Orders created with {@link #order} only write the order number, amount
+ * and customer name, email, mobile and unique id between those segments;
+ * the output is byte-for-byte what the equivalent
+ * {@link Types.TransactionDetails} would produce. Create one per merchant
+ * configuration with {@link Types.TransactionDetails.Builder#template()} and
+ * share it across threads.
+ *
+ * <p>For {@link Client#sendApi} the segments carry the API defaults that
+ * {@code sendApi} applies, so the per-request copy into a fresh builder is
+ * skipped when the template's merchant id is the client's.
+ */
+public final class RequestTemplate {
+    // Placeholders for the per-order fields, in the order both payloads write them.
+    private static final String ORDER = "\u0000order\u0000";
+    private static final String AMOUNT = "\u0000amount\u0000";
+    private static final String NAME = "\u0000name\u0000";
+    private static final String EMAIL = "\u0000email\u0000";
+    private static final String MOBILE = "\u0000mobile\u0000";
+    private static final String UNIQUE_ID = "\u0000uniqueId\u0000";
+
+    private final Types.TransactionDetails base;
+    /** WEB segments around order, amount, name, email, mobile and unique id. */
+    private final byte[][] web;
+    /** API segments around order, amount, email and mobile; sendApi never sends name or unique id. */
+    private final byte[][] api;
+
+    RequestTemplate(Types.TransactionDetails base) {
+        this.base = base;
+        ByteSink out = new ByteSink(1024);
+        Assemble.writeMerchantRequest(
+                new Types.TransactionDetails(base, null, ORDER, AMOUNT, null, NAME, EMAIL, MOBILE, UNIQUE_ID), out);
+        this.web = split(out, false, ORDER, AMOUNT, NAME, EMAIL, MOBILE, UNIQUE_ID);
+        out.reset();
+        Assemble.writeApiMerchantRequest(Assemble.apiDetails(
+                new Types.TransactionDetails(base, null, ORDER, AMOUNT, null, "", EMAIL, MOBILE, ""),
+                base.merchantId), out);
+        this.api = split(out, true, ORDER, AMOUNT, EMAIL, MOBILE);
+    }
+
+    /** Cut the rendered payload at each placeholder, which must occur exactly once and in order. */
+    private static byte[][] split(ByteSink rendered, boolean json, String... placeholders) {
+        byte[] b = Arrays.copyOf(rendered.array(), rendered.size());
+        byte[][] segments = new byte[placeholders.length + 1][];
+        ByteSink mark = new ByteSink(32);
+        int from = 0;
+        for (int i = 0; i < placeholders.length; i++) {
+            mark.reset();
+            if (json) {
+                Assemble.writeJsonString(mark, placeholders[i]);
+            } else {
+                mark.writeUtf8(placeholders[i]);
+            }
+            byte[] m = Arrays.copyOf(mark.array(), mark.size());
+            int at = indexOf(b, m, from);
+            if (at < 0 || indexOf(b, m, at + m.length) >= 0)
+                throw new IllegalArgumentException("template fields must not contain NUL characters");
+            segments[i] = Arrays.copyOfRange(b, from, at);
+            from = at + m.length;
+        }
+        segments[placeholders.length] = Arrays.copyOfRange(b, from, b.length);
+        return segments;
+    }
+
+    private static int indexOf(byte[] b, byte[] m, int from) {
+        outer:
+        for (int i = from; i <= b.length - m.length; i++) {
+            for (int j = 0; j < m.length; j++) {
+                if (b[i + j] != m[j])
+                    continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    /** Start an order for {@code amount}, which must be in the template's currency. */
+    public Order order(String orderNumber, Money amount) {
+        Objects.requireNonNull(amount, "amount");
+        if (!amount.currency().equalsIgnoreCase(base.currency))
+            throw new IllegalArgumentException("currency " + base.currency + " does not match amount in "
+                    + amount.currency());
+        return new Order(this, orderNumber, amount.toString(), amount);
+    }
+
+    /** Start an order for {@code amount}, sent as given. */
+    public Order order(String orderNumber, String amount) {
+        return new Order(this, orderNumber, Objects.requireNonNull(amount, "amount"), null);
+    }
+
+    /** Write the WEB merchant_request of {@code d}, an order of this template. */
+    void writeWeb(Types.TransactionDetails d, ByteSink out) {
+        write(out, web[0]);
+        Assemble.field(out, d.orderNumber, "orderNumber");
+        write(out, web[1]);
+        if (d.money() != null) {
+            out.write(d.money());
+        } else {
+            Assemble.field(out, d.amount, "amount");
+        }
+        write(out, web[2]);
+        Assemble.field(out, d.customerName, "customerName");
+        write(out, web[3]);
+        Assemble.field(out, d.customerEmail, "customerEmail");
+        write(out, web[4]);
+        Assemble.field(out, d.customerMobile, "customerMobile");
+        write(out, web[5]);
+        Assemble.field(out, d.uniqueId, "uniqueId");
+        write(out, web[6]);
+    }
+
+    /** Write the API JSON of {@code d}, an order of this template, with sendApi's defaults. */
+    void writeApi(Types.TransactionDetails d, ByteSink out) {
+        write(out, api[0]);
+        Assemble.writeJsonString(out, d.orderNumber);
+        write(out, api[1]);
+        if (d.money() != null) {
+            out.write('"');
+            out.write(d.money());
+            out.write('"');
+        } else {
+            Assemble.writeJsonString(out, d.amount);
+        }
+        write(out, api[2]);
+        Assemble.writeJsonString(out, d.customerEmail);
+        write(out, api[3]);
+        Assemble.writeJsonString(out, d.customerMobile);
+        write(out, api[4]);
+    }
+
+    private static void write(ByteSink out, byte[] segment) {
+        out.write(segment, 0, segment.length);
+    }
+
+    /** Per-order fields of a {@link RequestTemplate}; customer fields default to the template's values. */
+    public static final class Order {
+        private final RequestTemplate template;
+        private final String orderNumber;
+        private final String amount;
+        private final Money money;
+        private String customerName;
+        private String customerEmail;
+        private String customerMobile;
+        private String uniqueId;
+
+        private Order(RequestTemplate template, String orderNumber, String amount, Money money) {
+            this.template = template;
+            this.orderNumber = Objects.requireNonNull(orderNumber, "orderNumber");
+            this.amount = amount;
+            this.money = money;
+            this.customerName = template.base.customerName;
+            this.customerEmail = template.base.customerEmail;
+            this.customerMobile = template.base.customerMobile;
+            this.uniqueId = template.base.uniqueId;
+        }
+
+        public Order customerName(String v) {
+            this.customerName = v;
+            return this;
+        }
+
+        public Order customerEmail(String v) {
+            this.customerEmail = v;
+            return this;
+        }
+
+        public Order customerMobile(String v) {
+            this.customerMobile = v;
+            return this;
+        }
+
+        public Order uniqueId(String v) {
+            this.uniqueId = v;
+            return this;
+        }
+
+        /** Details for {@link Client#build} or {@link Client#sendApi}, rendered through the template. */
+        public Types.TransactionDetails build() {
+            return new Types.TransactionDetails(template.base, template, orderNumber, amount, money,
+                    orEmpty(customerName), orEmpty(customerEmail), orEmpty(customerMobile), orEmpty(uniqueId));
+        }
+
+        private static String orEmpty(String v) {
+            return v == null ? "" : v;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.yagoutpay.sdk;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decodes decrypted response payloads into models the caller supplies. The
+ * gateway publishes no schema for the decrypted payload, so the SDK ships no
+ * model for it. One {@link ObjectReader} is built per target type and reused,
+ * so the deserializer lookup happens once rather than on every response.
+ */
+final class ResponseCodec {
+    /** Shared, thread-safe factory for the streaming parsers; parsers are cheap and pull recycled buffers from it. */
+    static final JsonFactory JSON = new JsonFactory();
+    private static final ObjectMapper OM = new ObjectMapper();
+    static final ResponseCodec LENIENT = new ResponseCodec(false);
+    static final ResponseCodec STRICT = new ResponseCodec(true);
+
+    private final boolean failOnUnknown;
+    private final Map<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+
+    private ResponseCodec(boolean failOnUnknown) {
+        this.failOnUnknown = failOnUnknown;
+    }
+
+    static ResponseCodec of(boolean failOnUnknownFields) {
+        return failOnUnknownFields ? STRICT : LENIENT;
+    }
+
+    private ObjectReader reader(Class<?> type) {
+        return readers.computeIfAbsent(type, t -> failOnUnknown
+                ? OM.readerFor(t).with(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                : OM.readerFor(t).without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES));
+    }
+
+    /** Decode UTF-8 JSON straight from {@code json} without building a String first. */
+    <T> T read(byte[] json, Class<T> type) throws IOException {
+        return reader(type).readValue(json);
+    }
+}
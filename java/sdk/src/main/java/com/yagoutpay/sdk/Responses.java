@@ -0,0 +1,159 @@
+package com.yagoutpay.sdk;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Streaming decoders for gateway response bodies, read straight from the
+ * {@code byte[]} body. Direct API responses materialize only the fields the
+ * SDK needs; payment link responses keep their whole tree, since callers
+ * read arbitrary fields from it.
+ */
+final class Responses {
+    /** Fields that may carry the encrypted payload of a link response, in order of preference. */
+    private static final String[] CANDIDATES = { "response", "data", "payload", "responseData" };
+    private static final ObjectMapper OM = new ObjectMapper();
+
+    private Responses() {
+    }
+
+    /** Parsed link response and the Base64 cipher text of its encrypted payload. */
+    static final class Link {
+        /** Maps, lists and scalars as in the JSON, or the body text when it is not JSON. */
+        final Object raw;
+        /** Base64 cipher text of the preferred candidate field, decoded only when decrypted; or null. */
+        final String encryptedText;
+
+        Link(Object raw, String encryptedText) {
+            this.raw = raw;
+            this.encryptedText = encryptedText;
+        }
+    }
+
+    /** Decode a payment link response body. Never throws; unusual bodies take the slower tree path. */
+    static Link link(byte[] body) {
+        if (body.length == 0)
+            return new Link("", null);
+        try (JsonParser p = ResponseCodec.JSON.createParser(body)) {
+            if (p.nextToken() == JsonToken.START_OBJECT)
+                return linkObject(p);
+        } catch (IOException | RuntimeException e) {
+            // Malformed JSON; fall through.
+        }
+        return linkTree(body);
+    }
+
+    /** One pass over an object body, building the same tree as {@code OM.readValue(body, Object.class)}. */
+    private static Link linkObject(JsonParser p) throws IOException {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        // Per candidate: null when absent or JSON null, the text for strings, Boolean.FALSE otherwise.
+        Object[] found = new Object[CANDIDATES.length];
+        JsonToken t;
+        while ((t = p.nextToken()) == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            JsonToken v = p.nextToken();
+            Object value = v == JsonToken.START_OBJECT || v == JsonToken.START_ARRAY
+                    ? OM.readValue(p, Object.class)
+                    : scalar(p, v);
+            fields.put(name, value);
+            int c = candidate(name);
+            if (c >= 0)
+                found[c] = value instanceof String || value == null ? value : Boolean.FALSE;
+        }
+        if (t != JsonToken.END_OBJECT)
+            throw new IOException("Unexpected token " + t);
+        if (p.nextToken() != null)
+            throw new IOException("Trailing content after response object");
+
+        for (Object f : found) {
+            if (f != null)
+                return new Link(fields, f instanceof String && !((String) f).isEmpty() ? (String) f : null);
+        }
+        return new Link(fields, null);
+    }
+
+    /** Fallback for bodies that are not a plain JSON object; mirrors the original full-tree handling. */
+    private static Link linkTree(byte[] body) {
+        String text = new String(body, StandardCharsets.UTF_8);
+        Object json;
+        try {
+            json = OM.readValue(body, Object.class);
+        } catch (Exception e) {
+            json = null;
+        }
+        Object raw = json != null ? json : text;
+        Object candidate = null;
+        if (json instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) json;
+            for (int i = 0; i < CANDIDATES.length && candidate == null; i++)
+                candidate = map.get(CANDIDATES[i]);
+        }
+        if (candidate == null && raw instanceof String)
+            candidate = raw;
+        boolean usable = candidate instanceof String && !((String) candidate).isEmpty();
+        return new Link(raw, usable ? (String) candidate : null);
+    }
+
+    /** Decode a direct API response body, skipping fields the SDK does not use. */
+    static Types.ApiIntegrationResponse api(byte[] body) throws IOException {
+        try (JsonParser p = ResponseCodec.JSON.createParser(body)) {
+            if (p.nextToken() != JsonToken.START_OBJECT)
+                throw new IOException("API response is not a JSON object");
+            Types.ApiIntegrationResponse r = new Types.ApiIntegrationResponse();
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String name = p.currentName();
+                JsonToken v = p.nextToken();
+                if (v == JsonToken.START_OBJECT || v == JsonToken.START_ARRAY) {
+                    p.skipChildren();
+                    continue;
+                }
+                switch (name) {
+                    case "merchantId":
+                        r.merchantId = p.getValueAsString();
+                        break;
+                    case "status":
+                        r.status = p.getValueAsString();
+                        break;
+                    case "statusMessage":
+                        r.statusMessage = p.getValueAsString();
+                        break;
+                    case "response":
+                        r.response = p.getValueAsString();
+                        break;
+                    default:
+                        break;
+                }
+            }
+            return r;
+        }
+    }
+
+    private static int candidate(String name) {
+        for (int i = 0; i < CANDIDATES.length; i++) {
+            if (CANDIDATES[i].equals(name))
+                return i;
+        }
+        return -1;
+    }
+
+    private static Object scalar(JsonParser p, JsonToken t) throws IOException {
+        switch (t) {
+            case VALUE_STRING:
+                return p.getText();
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return p.getNumberValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            default:
+                return null;
+        }
+    }
+}
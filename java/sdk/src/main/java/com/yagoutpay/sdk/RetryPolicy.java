@@ -0,0 +1,97 @@
+package com.yagoutpay.sdk;
+
+import java.io.IOException;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retry and hedging settings for gateway calls. Attempts back off
+ * exponentially with jitter and stop at {@link #maxAttempts} or when the next
+ * wait would exceed {@link #totalBudget}, whichever comes first.
+ *
+ * <p>
+ * Only a retryable status or a transport failure before any response is
+ * retried. A 2xx response is never retried, not even when its body fails to
+ * parse. Retrying {@code sendApi} re-posts a payment request, so calls that
+ * are not safe to repeat are only retried on answers that mean the gateway
+ * did not process them. A 502 or 504 from a proxy and a request timeout may
+ * both come after the gateway took the request. They are retried for the
+ * static payment link, and for other calls only when
+ * {@link #retryUpstreamErrors} or {@link #retryTimeouts} is set.
+ */
+public final class RetryPolicy {
+    /** Total attempts including the first one. */
+    public int maxAttempts = 3;
+    public Duration initialBackoff = Duration.ofMillis(200);
+    public Duration maxBackoff = Duration.ofSeconds(5);
+    public double multiplier = 2.0;
+    /** Fraction of each backoff that is randomized, from 0 (none) to 1 (full jitter). */
+    public double jitter = 0.5;
+    /** Upper bound on the time spent across all attempts and waits. */
+    public Duration totalBudget = Duration.ofSeconds(60);
+    /** HTTP statuses that are retried; 502 and 504 also depend on {@link #retryUpstreamErrors}. */
+    public Set<Integer> retryStatuses = Set.of(429, 502, 503, 504);
+    /** Exception types that are retried when no response arrived; I/O errors include connect failures. */
+    public Set<Class<? extends Throwable>> retryExceptions = Set.of(IOException.class);
+    /**
+     * Also retry request timeouts of calls that are not safe to repeat
+     * ({@code sendApi} and dynamic payment links). Connect timeouts are
+     * always retryable, since nothing was sent.
+     */
+    public boolean retryTimeouts;
+    /**
+     * Also retry 502 and 504 answers to calls that are not safe to repeat. A
+     * proxy may send them after the gateway processed the payment.
+     */
+    public boolean retryUpstreamErrors;
+    /**
+     * When set, the static payment link request, which is safe to repeat, is
+     * sent a second time if the first has not completed after this delay. The
+     * first successful response wins and the other is cancelled.
+     */
+    public Duration hedgeDelay;
+
+    /**
+     * Nanoseconds to wait before the next attempt, or -1 to give up after
+     * {@code attempt} failed with {@code error} before any response arrived.
+     * {@code idempotent} calls may have their request timeouts, 502s and 504s retried.
+     */
+    long delayNanos(int attempt, Throwable error, long deadlineNanos, boolean idempotent) {
+        if (attempt >= maxAttempts || !retryable(error, idempotent))
+            return -1;
+        double base = initialBackoff.toNanos() * Math.pow(multiplier, attempt - 1);
+        double capped = Math.min(base, maxBackoff.toNanos());
+        double j = Math.max(0, Math.min(1, jitter));
+        long delay = (long) (capped * (1 - j) + capped * j * ThreadLocalRandom.current().nextDouble());
+        return System.nanoTime() + delay > deadlineNanos ? -1 : delay;
+    }
+
+    long deadlineNanos(long startNanos) {
+        return totalBudget == null ? Long.MAX_VALUE : startNanos + totalBudget.toNanos();
+    }
+
+    private boolean retryable(Throwable error, boolean idempotent) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException)
+                && error.getCause() != null)
+            error = error.getCause();
+        if (error instanceof GatewayException) {
+            int status = ((GatewayException) error).statusCode();
+            if ((status == 502 || status == 504) && !idempotent && !retryUpstreamErrors)
+                return false;
+            return retryStatuses.contains(status);
+        }
+        if (error instanceof HttpTimeoutException && !(error instanceof HttpConnectTimeoutException)
+                && !idempotent && !retryTimeouts)
+            return false;
+        for (Class<? extends Throwable> type : retryExceptions) {
+            if (type.isInstance(error))
+                return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,56 @@
+package com.yagoutpay.sdk;
+
+import java.io.PrintStream;
+
+/**
+ * Logging hook for SDK diagnostics. The default, {@link #NONE}, discards
+ * everything; the SDK checks {@link #isEnabled} before building a message, so a
+ * disabled level costs nothing on the request path. Messages never carry the
+ * encryption key, card data or full cipher text.
+ */
+public interface SdkLogger {
+    /** Severity levels, from most to least verbose. */
+    enum Level {
+        TRACE, DEBUG, INFO, WARN, ERROR
+    }
+
+    /** Logger that discards everything. */
+    SdkLogger NONE = new SdkLogger() {
+        @Override
+        public boolean isEnabled(Level level) {
+            return false;
+        }
+
+        @Override
+        public void log(Level level, String message, Throwable error) {
+        }
+    };
+
+    /** Whether messages at {@code level} would be written. */
+    boolean isEnabled(Level level);
+
+    /** Write a message; {@code error} may be null. */
+    void log(Level level, String message, Throwable error);
+
+    /** Logger writing {@code minLevel} and above to {@code System.err}. */
+    static SdkLogger stderr(Level minLevel) {
+        return stream(System.err, minLevel);
+    }
+
+    /** Logger writing {@code minLevel} and above to {@code out}. */
+    static SdkLogger stream(PrintStream out, Level minLevel) {
+        return new SdkLogger() {
+            @Override
+            public boolean isEnabled(Level level) {
+                return level.compareTo(minLevel) >= 0;
+            }
+
+            @Override
+            public void log(Level level, String message, Throwable error) {
+                out.println("YagoutPay SDK [" + level + "] " + message);
+                if (error != null)
+                    error.printStackTrace(out);
+            }
+        };
+    }
+}
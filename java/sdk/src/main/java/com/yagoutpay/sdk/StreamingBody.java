@@ -0,0 +1,168 @@
+package com.yagoutpay.sdk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request body written by a producer task and read by the HttpClient
+ * through a small bounded queue of chunks, so at most a few chunks of a
+ * large payload are in memory at once. Every subscription (the first send
+ * and each retry) runs the writer again on the client's executor. A side
+ * that waits longer than the stall timeout for the other gives up, so an
+ * abandoned exchange does not pin the producer.
+ */
+final class StreamingBody extends InputStream {
+    static final int CHUNK = 64 * 1024;
+    private static final int QUEUED_CHUNKS = 4;
+    private static final byte[] EOF = new byte[0];
+
+    /** Produces the body; {@code out} must not be retained after returning. */
+    interface Writer {
+        void writeTo(OutputStream out) throws Exception;
+    }
+
+    private final BlockingQueue<byte[]> chunks = new ArrayBlockingQueue<>(QUEUED_CHUNKS);
+    private final long stallNanos;
+    private volatile Throwable failure;
+    private volatile boolean closed;
+    private byte[] current;
+    private int pos;
+
+    private StreamingBody(long stallNanos) {
+        this.stallNanos = stallNanos;
+    }
+
+    /**
+     * Publisher that streams what {@code writer} produces on {@code executor};
+     * {@code stallTimeout} bounds each handoff.
+     */
+    static HttpRequest.BodyPublisher publisher(Writer writer, Duration stallTimeout, Executor executor) {
+        return HttpRequest.BodyPublishers.ofInputStream(() -> open(writer, stallTimeout, executor));
+    }
+
+    /** Submit {@code writer} to {@code executor} and return the reading side. */
+    static InputStream open(Writer writer, Duration stallTimeout, Executor executor) {
+        StreamingBody body = new StreamingBody(stallTimeout.toNanos());
+        try {
+            executor.execute(() -> body.produce(writer));
+        } catch (RejectedExecutionException e) {
+            // The queue is empty, so the end marker fits and the reader sees the failure at once.
+            body.failure = e;
+            body.chunks.offer(EOF);
+        }
+        return body;
+    }
+
+    private void produce(Writer writer) {
+        try (Sink out = new Sink()) {
+            writer.writeTo(out);
+        } catch (Throwable e) {
+            failure = e;
+        }
+        try {
+            // Best effort: if the reader is gone, nobody is waiting for the end either.
+            hand(EOF);
+        } catch (IOException e) {
+            // reader abandoned or stalled
+        }
+    }
+
+    private void hand(byte[] chunk) throws IOException {
+        if (closed)
+            throw new IOException("request body abandoned");
+        try {
+            if (!chunks.offer(chunk, stallNanos, TimeUnit.NANOSECONDS))
+                throw new IOException("request body not consumed within " + Duration.ofNanos(stallNanos));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0)
+            return 0;
+        while (current == null || pos == current.length) {
+            if (current == EOF) {
+                if (failure != null)
+                    throw new IOException("request body failed", failure);
+                return -1;
+            }
+            try {
+                current = chunks.poll(stallNanos, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+            if (current == null)
+                throw new IOException("request body not produced within " + Duration.ofNanos(stallNanos));
+            pos = 0;
+        }
+        int n = Math.min(len, current.length - pos);
+        System.arraycopy(current, pos, b, off, n);
+        pos += n;
+        return n;
+    }
+
+    /** Stop reading; the producer fails on its next handoff and its queued chunks are released. */
+    @Override
+    public void close() {
+        closed = true;
+        chunks.clear();
+    }
+
+    /** Collects writes into whole chunks; {@code flush} is a no-op so wrapping streams cannot split them. */
+    private final class Sink extends OutputStream {
+        private byte[] buf = new byte[CHUNK];
+        private int n;
+
+        @Override
+        public void write(int b) throws IOException {
+            if (n == buf.length)
+                emit();
+            buf[n++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (n == buf.length)
+                    emit();
+                int k = Math.min(len, buf.length - n);
+                System.arraycopy(b, off, buf, n, k);
+                n += k;
+                off += k;
+                len -= k;
+            }
+        }
+
+        private void emit() throws IOException {
+            hand(n == buf.length ? buf : Arrays.copyOf(buf, n));
+            buf = new byte[CHUNK];
+            n = 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (n > 0)
+                emit();
+        }
+    }
+}
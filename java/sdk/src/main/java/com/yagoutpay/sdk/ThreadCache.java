@@ -0,0 +1,43 @@
+package com.yagoutpay.sdk;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.function.Supplier;
+
+/**
+ * Reusable instance of an object that is costly to set up and not thread-safe.
+ * Platform threads keep one each in a ThreadLocal. Virtual threads live for a
+ * single task and would set up a new one every time, so they borrow from a
+ * small shared pool instead.
+ */
+final class ThreadCache<T> {
+    private static final int POOLED = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+
+    private final Supplier<T> factory;
+    private final ThreadLocal<T> local;
+    private final ArrayBlockingQueue<T> pool = new ArrayBlockingQueue<>(POOLED);
+
+    ThreadCache(Supplier<T> factory) {
+        this.factory = factory;
+        this.local = ThreadLocal.withInitial(factory);
+    }
+
+    /** This thread's instance, or one borrowed until {@link #release}. */
+    T acquire() {
+        if (!VirtualThreads.isCurrent())
+            return local.get();
+        T value = pool.poll();
+        return value != null ? value : factory.get();
+    }
+
+    /** Hand back an instance from {@link #acquire}; it must be ready for the next caller. */
+    void release(T value) {
+        if (VirtualThreads.isCurrent())
+            pool.offer(value);
+    }
+
+    /** Drop an instance from {@link #acquire} that was left in an unknown state. */
+    void discard(T value) {
+        if (!VirtualThreads.isCurrent())
+            local.remove();
+    }
+}
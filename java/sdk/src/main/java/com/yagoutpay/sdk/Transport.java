@@ -0,0 +1,131 @@
+package com.yagoutpay.sdk;
+
+import java.net.http.HttpClient;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+
+/**
+ * HTTP transport shared by one or more {@link Client}s: a single HttpClient
+ * (connection pool, selector thread, TLS sessions) and executor. Merchant key
+ * material stays in each Client. {@link #close} releases the virtual-thread
+ * executor it created, if any.
+ */
+public final class Transport implements AutoCloseable {
+    private final HttpClient http;
+    private final Executor executor;
+    /** Executor this transport created and must shut down; null when supplied or defaulted. */
+    private final ExecutorService owned;
+    private final SdkLogger log;
+
+    /** Configuration for {@link Transport}. */
+    public static final class Config {
+        public boolean allowInsecureTls = false;
+        /** TCP/TLS connect timeout of the underlying HttpClient. */
+        public Duration connectTimeout = Duration.ofSeconds(20);
+        /** Preferred HTTP version; HTTP/2 falls back to HTTP/1.1 when the server does not offer it. */
+        public HttpClient.Version httpVersion = HttpClient.Version.HTTP_2;
+        /**
+         * Executor for HttpClient callbacks and async stages. When null the JDK
+         * default (an unbounded cached pool) and the common pool are used. It
+         * also runs the writer of each streamed payment link body, which blocks
+         * while the HttpClient drains it, so a bounded pool needs a spare thread
+         * per streamed send in flight.
+         */
+        public Executor executor;
+        /**
+         * Run on a virtual-thread-per-task executor when the JVM is Java 21+.
+         * Ignored if {@link #executor} is set; on older JVMs the defaults apply.
+         */
+        public boolean useVirtualThreads = false;
+        /** Destination for transport diagnostics; silent when null. */
+        public SdkLogger logger;
+    }
+
+    /** Create a transport with the provided configuration. */
+    public Transport(Config cfg) {
+        this.log = cfg.logger != null ? cfg.logger : SdkLogger.NONE;
+        Executor exec = cfg.executor;
+        ExecutorService created = null;
+        if (exec == null && cfg.useVirtualThreads) {
+            exec = created = VirtualThreads.newPerTaskExecutor();
+            if (exec == null) {
+                log.log(SdkLogger.Level.WARN, "virtual threads need Java 21+, using the default executor", null);
+            }
+        }
+        this.owned = created;
+        this.executor = exec != null ? exec : ForkJoinPool.commonPool();
+
+        HttpClient.Builder httpBuilder = HttpClient.newBuilder()
+                .connectTimeout(cfg.connectTimeout == null ? Duration.ofSeconds(20) : cfg.connectTimeout)
+                .version(cfg.httpVersion == null ? HttpClient.Version.HTTP_2 : cfg.httpVersion);
+        if (exec != null) {
+            httpBuilder.executor(exec);
+        }
+
+        // Configure SSL if insecure TLS is allowed
+        if (cfg.allowInsecureTls) {
+            try {
+                configureInsecureSSL(httpBuilder);
+            } catch (Exception e) {
+                log.log(SdkLogger.Level.WARN, "could not configure insecure SSL", e);
+            }
+        }
+
+        this.http = httpBuilder.build();
+    }
+
+    HttpClient http() {
+        return http;
+    }
+
+    /** Executor for async stages; never null. */
+    Executor executor() {
+        return executor;
+    }
+
+    /**
+     * Shut down the virtual-thread executor created for {@link Config#useVirtualThreads}.
+     * Tasks already submitted finish; new sends are rejected. An executor passed
+     * in {@link Config#executor} is left to its owner.
+     */
+    @Override
+    public void close() {
+        if (owned != null)
+            owned.shutdown();
+    }
+
+    private void configureInsecureSSL(HttpClient.Builder httpBuilder) throws Exception {
+        // Create a trust manager that accepts all certificates
+        TrustManager[] trustAllCerts = new TrustManager[] {
+                new X509TrustManager() {
+                    public X509Certificate[] getAcceptedIssuers() {
+                        return new X509Certificate[0];
+                    }
+
+                    public void checkClientTrusted(X509Certificate[] certs, String authType) {
+                        // Accept all client certificates
+                    }
+
+                    public void checkServerTrusted(X509Certificate[] certs, String authType) {
+                        // Accept all server certificates
+                    }
+                }
+        };
+
+        // Create SSL context with the trust manager
+        SSLContext sc = SSLContext.getInstance("TLS");
+        sc.init(null, trustAllCerts, new SecureRandom());
+
+        // Configure the HTTP client to use the custom SSL context
+        httpBuilder.sslContext(sc);
+
+        log.log(SdkLogger.Level.WARN, "SSL certificate validation disabled (allowInsecureTls=true)", null);
+    }
+}
@@ -1,5 +1,13 @@
 package com.yagoutpay.sdk;
 
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 /** Core data types used by the Java SDK. */
@@ -39,6 +47,12 @@ public final class Types {
         public String failureURL = "";
         public String addAll = "";
         public String source = "";
+
+        /** Set {@link #qr_transaction_amount} from {@code money}. */
+        public PaymentLinkPlain qrTransactionAmount(Money money) {
+            this.qr_transaction_amount = money.toString();
+            return this;
+        }
     }
 
     /** Plain payload for dynamic Payment By Link requests. */
@@ -59,6 +73,13 @@ public final class Types {
         public String success_url = "";
         public String country = "";
         public String currency = "";
+
+        /** Set {@link #amount} and {@link #currency} from {@code money}. */
+        public PaymentByLinkPlain amount(Money money) {
+            this.amount = money.toString();
+            this.currency = money.currency();
+            return this;
+        }
     }
 
     /** Encoded request body format sent to link endpoints. */
@@ -115,6 +136,9 @@ public final class Types {
         public final String itemCategory;
         public final String udf1, udf2, udf3, udf4, udf5, udf6, udf7;
         public final String isLoggedIn;
+        private final Money money;
+        /** Set when created by {@link RequestTemplate.Order#build()}; its segments replace the constant fields. */
+        final RequestTemplate template;
 
         private TransactionDetails(Builder b) {
             this.aggregatorId = b.aggregatorId;
@@ -163,6 +187,66 @@ public final class Types {
             this.udf6 = b.udf6;
             this.udf7 = b.udf7;
             this.isLoggedIn = b.isLoggedIn;
+            this.money = b.money;
+            this.template = null;
+        }
+
+        /** Copy of {@code base} with the per-order fields replaced, rendered through {@code template}. */
+        TransactionDetails(TransactionDetails base, RequestTemplate template, String orderNumber, String amount,
+                Money money, String customerName, String customerEmail, String customerMobile, String uniqueId) {
+            this.aggregatorId = base.aggregatorId;
+            this.merchantId = base.merchantId;
+            this.orderNumber = orderNumber;
+            this.amount = amount;
+            this.country = base.country;
+            this.currency = base.currency;
+            this.transactionType = base.transactionType;
+            this.successUrl = base.successUrl;
+            this.failureUrl = base.failureUrl;
+            this.channel = base.channel;
+            this.customerEmail = customerEmail;
+            this.customerMobile = customerMobile;
+            this.pgId = base.pgId;
+            this.paymode = base.paymode;
+            this.schemeId = base.schemeId;
+            this.walletType = base.walletType;
+            this.cardNumber = base.cardNumber;
+            this.expiryMonth = base.expiryMonth;
+            this.expiryYear = base.expiryYear;
+            this.cvv = base.cvv;
+            this.cardName = base.cardName;
+            this.customerName = customerName;
+            this.uniqueId = uniqueId;
+            this.billAddress = base.billAddress;
+            this.billCity = base.billCity;
+            this.billState = base.billState;
+            this.billCountry = base.billCountry;
+            this.billZip = base.billZip;
+            this.shipAddress = base.shipAddress;
+            this.shipCity = base.shipCity;
+            this.shipState = base.shipState;
+            this.shipCountry = base.shipCountry;
+            this.shipZip = base.shipZip;
+            this.shipDays = base.shipDays;
+            this.addressCount = base.addressCount;
+            this.itemCount = base.itemCount;
+            this.itemValue = base.itemValue;
+            this.itemCategory = base.itemCategory;
+            this.udf1 = base.udf1;
+            this.udf2 = base.udf2;
+            this.udf3 = base.udf3;
+            this.udf4 = base.udf4;
+            this.udf5 = base.udf5;
+            this.udf6 = base.udf6;
+            this.udf7 = base.udf7;
+            this.isLoggedIn = base.isLoggedIn;
+            this.money = money;
+            this.template = template;
+        }
+
+        /** The amount as given to {@link Builder#amount(Money)}, or null if it was set as a String. */
+        public Money money() {
+            return money;
         }
 
         public static Builder builder() {
@@ -173,6 +257,7 @@ public final class Types {
         public static final class Builder {
             private String aggregatorId, merchantId, orderNumber, amount, country, currency, transactionType,
                     successUrl, failureUrl, channel;
+            private Money money;
             private String customerEmail = "";
             private String customerMobile = "";
             private String pgId = "";
@@ -227,6 +312,15 @@ public final class Types {
 
             public Builder amount(String v) {
                 this.amount = v;
+                this.money = null;
+                return this;
+            }
+
+            /** Set the amount and currency from {@code v}; it is written to the request without reformatting. */
+            public Builder amount(Money v) {
+                this.money = v;
+                this.amount = v.toString();
+                this.currency = v.currency();
                 return this;
             }
 
@@ -451,8 +545,29 @@ public final class Types {
                 Objects.requireNonNull(successUrl, "successUrl");
                 Objects.requireNonNull(failureUrl, "failureUrl");
                 Objects.requireNonNull(channel, "channel");
+                if (money != null && !money.currency().equalsIgnoreCase(currency))
+                    throw new IllegalArgumentException("currency " + currency + " does not match amount in "
+                            + money.currency());
                 return new TransactionDetails(this);
             }
+
+            /**
+             * Pre-render everything but the order number, amount and customer
+             * name, email, mobile and unique id into a reusable
+             * {@link RequestTemplate}. Those fields are supplied per order;
+             * any values set here are only defaults for the customer fields.
+             */
+            public RequestTemplate template() {
+                Objects.requireNonNull(aggregatorId, "aggregatorId");
+                Objects.requireNonNull(merchantId, "merchantId");
+                Objects.requireNonNull(country, "country");
+                Objects.requireNonNull(currency, "currency");
+                Objects.requireNonNull(transactionType, "transactionType");
+                Objects.requireNonNull(successUrl, "successUrl");
+                Objects.requireNonNull(failureUrl, "failureUrl");
+                Objects.requireNonNull(channel, "channel");
+                return new RequestTemplate(new TransactionDetails(this));
+            }
         }
     }
 
@@ -460,52 +575,269 @@ public final class Types {
         public final String meId;
         public final String merchantRequestPlain;
         public final String merchantRequest;
-        public final String hashInput;
         public final String hashHex;
         public final String hash;
         public final String actionUrl;
+        /** Order the hash input is built from on first read; null when it was given. */
+        private final TransactionDetails details;
+        private String hashInput;
 
         public BuiltRequest(String meId, String merchantRequestPlain, String merchantRequest, String hashInput,
                 String hashHex, String hash, String actionUrl) {
+            this(meId, merchantRequestPlain, merchantRequest, (TransactionDetails) null, hashHex, hash, actionUrl);
+            this.hashInput = hashInput;
+        }
+
+        BuiltRequest(String meId, String merchantRequestPlain, String merchantRequest, TransactionDetails details,
+                String hashHex, String hash, String actionUrl) {
             this.meId = meId;
             this.merchantRequestPlain = merchantRequestPlain;
             this.merchantRequest = merchantRequest;
-            this.hashInput = hashInput;
+            this.details = details;
             this.hashHex = hashHex;
             this.hash = hash;
             this.actionUrl = actionUrl;
         }
+
+        /** The {@code me_id~order_no~amount~country~currency} string behind {@link #hashHex}, built on first read. */
+        public String hashInput() {
+            String s = hashInput;
+            if (s == null && details != null)
+                hashInput = s = Hashing.buildHashInput(details);
+            return s;
+        }
     }
 
     public static final class ApiIntegrationResponse {
         public String merchantId;
+        /** {@code Success} or {@code Failed}. */
         public String status;
         public String statusMessage;
         public String response;
+
+        /** True when the gateway reported {@code Success}, in any case. */
+        public boolean isSuccess() {
+            return "Success".equalsIgnoreCase(status);
+        }
+    }
+
+    /**
+     * The order fields of a decrypted API payload, under either the gateway's
+     * snake_case names or camelCase. The gateway publishes no full schema, so
+     * other fields are ignored; decode into your own model with
+     * {@link Decryption#as} to read them.
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static final class ApiStatus {
+        @JsonAlias({ "me_id", "meId" })
+        public String merchantId;
+        @JsonAlias({ "order_no", "orderNo" })
+        public String orderNumber;
+        public String amount;
+        public String country;
+        public String currency;
+        public String status;
+        @JsonAlias({ "status_message", "res_message" })
+        public String statusMessage;
+    }
+
+    /**
+     * Outcome of decrypting a response payload: the plaintext, the failure, or
+     * empty when the gateway returned no encrypted payload.
+     */
+    public static final class Decryption {
+        static final Decryption EMPTY = new Decryption(null, null, null, ResponseCodec.LENIENT);
+
+        private final byte[] plain;
+        private volatile String value;
+        private final RuntimeException error;
+        private final ResponseCodec codec;
+
+        private Decryption(byte[] plain, String value, RuntimeException error, ResponseCodec codec) {
+            this.plain = plain;
+            this.value = value;
+            this.error = error;
+            this.codec = codec;
+        }
+
+        static Decryption of(String value) {
+            return new Decryption(null, value, null, ResponseCodec.LENIENT);
+        }
+
+        static Decryption of(byte[] plain, ResponseCodec codec) {
+            return new Decryption(plain, null, null, codec);
+        }
+
+        static Decryption failed(RuntimeException error) {
+            return new Decryption(null, null, error, ResponseCodec.LENIENT);
+        }
+
+        /** True when the payload was decrypted. */
+        public boolean isPresent() {
+            return plain != null || value != null;
+        }
+
+        /** True when a payload was returned but could not be decrypted. */
+        public boolean isFailure() {
+            return error != null;
+        }
+
+        /** Decrypted payload, or null when empty or failed. */
+        public String value() {
+            String v = value;
+            if (v == null && plain != null) {
+                v = new String(plain, StandardCharsets.UTF_8);
+                value = v;
+            }
+            return v;
+        }
+
+        /** Why decryption failed, or null. */
+        public RuntimeException error() {
+            return error;
+        }
+
+        /** Decrypted payload; rethrows the decryption failure, or throws if there was no payload. */
+        public String orElseThrow() {
+            if (error != null)
+                throw error;
+            if (!isPresent())
+                throw new IllegalStateException("Response has no encrypted payload");
+            return value();
+        }
+
+        /**
+         * Decode the decrypted JSON into the caller's {@code type} through a
+         * cached reader, straight from the decrypted bytes; {@link ApiStatus}
+         * covers the common order fields. Returns null when there is no payload and
+         * rethrows the decryption failure. Unknown fields are skipped unless
+         * {@link Client.Config#failOnUnknownResponseFields} is set.
+         */
+        public <T> T as(Class<T> type) {
+            if (error != null)
+                throw error;
+            if (!isPresent())
+                return null;
+            try {
+                return codec.read(plain != null ? plain : value.getBytes(StandardCharsets.UTF_8), type);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return error != null ? "Decryption[failed: " + error + "]"
+                    : isPresent() ? "Decryption[present]" : "Decryption[empty]";
+        }
+    }
+
+    /**
+     * Typed view of the top-level fields of a payment link response envelope.
+     * The decrypted payload is not modelled; decode it with {@link Decryption#as}.
+     */
+    public static final class PaymentLinkResponse {
+        public final String status;
+        public final String url;
+        public final String qr;
+        /** Every top-level field, including the ones above. */
+        public final Map<String, Object> fields;
+
+        PaymentLinkResponse(Map<String, Object> fields) {
+            this.status = text(fields.get("status"));
+            this.url = text(fields.get("url"));
+            this.qr = text(fields.get("qr"));
+            this.fields = Collections.unmodifiableMap(fields);
+        }
+
+        private static String text(Object v) {
+            return v != null && !(v instanceof Map) && !(v instanceof List) ? String.valueOf(v) : null;
+        }
+
+        @SuppressWarnings("unchecked")
+        static PaymentLinkResponse from(Object raw) {
+            return new PaymentLinkResponse(raw instanceof Map ? (Map<String, Object>) raw : Collections.emptyMap());
+        }
     }
 
     public static final class ApiRequestResult {
         public final Object raw;
-        public final String decryptedResponse;
         public final String endpoint;
+        private final LazyDecryption decryption;
 
         public ApiRequestResult(Object raw, String decryptedResponse, String endpoint) {
+            this(raw, LazyDecryption.of(decryptedResponse), endpoint);
+        }
+
+        ApiRequestResult(Object raw, LazyDecryption decryption, String endpoint) {
             this.raw = raw;
-            this.decryptedResponse = decryptedResponse;
+            this.decryption = decryption;
             this.endpoint = endpoint;
         }
+
+        /** Decrypted payload, decrypted on first call; null when absent or undecryptable. */
+        public String decryptedResponse() {
+            return decryption.get().value();
+        }
+
+        /** Outcome of decrypting the payload, decrypted on first call and cached. */
+        public Decryption decryption() {
+            return decryption.get();
+        }
+
+        /**
+         * The decrypted payload as {@link ApiStatus}, decrypted on first call;
+         * null when there is no payload. A decryption failure is rethrown.
+         */
+        public ApiStatus apiStatus() {
+            return decryption().as(ApiStatus.class);
+        }
+
+        /** {@link #raw} as the API envelope, or null for the legacy payment link senders. */
+        public ApiIntegrationResponse response() {
+            return raw instanceof ApiIntegrationResponse ? (ApiIntegrationResponse) raw : null;
+        }
+
+        /** True when the envelope reports {@code Success}, i.e. the gateway accepted the order. */
+        public boolean accepted() {
+            ApiIntegrationResponse r = response();
+            return r != null && r.isSuccess();
+        }
     }
 
     /** Result from Payment Link API calls. */
     public static final class PaymentLinkResult {
+        /**
+         * The parsed response: maps, lists and scalars as in the JSON,
+         * including the encrypted payload, or the body text when it is not JSON.
+         */
         public final Object raw;
-        public final String decryptedResponse;
         public final String endpoint;
+        private final LazyDecryption decryption;
 
         public PaymentLinkResult(Object raw, String decryptedResponse, String endpoint) {
+            this(raw, LazyDecryption.of(decryptedResponse), endpoint);
+        }
+
+        PaymentLinkResult(Object raw, LazyDecryption decryption, String endpoint) {
             this.raw = raw;
-            this.decryptedResponse = decryptedResponse;
+            this.decryption = decryption;
             this.endpoint = endpoint;
         }
+
+        /** Decrypted payload, decrypted on first call; null when absent or undecryptable. */
+        public String decryptedResponse() {
+            return decryption.get().value();
+        }
+
+        /** Outcome of decrypting the payload, decrypted on first call and cached. */
+        public Decryption decryption() {
+            return decryption.get();
+        }
+
+        /** Typed view of {@link #raw}. */
+        public PaymentLinkResponse response() {
+            return PaymentLinkResponse.from(raw);
+        }
     }
 }
@@ -0,0 +1,30 @@
+package com.yagoutpay.sdk;
+
+/**
+ * A merchant encryption key with a caller-chosen version label. The base64
+ * key is decoded and its cipher state prepared once, when the key is created.
+ */
+public final class VersionedKey {
+    private final String version;
+    private final CipherEngine engine;
+
+    public VersionedKey(String version, String base64Key) {
+        if (version == null)
+            throw new IllegalArgumentException("version cannot be null");
+        this.version = version;
+        this.engine = new CipherEngine(base64Key);
+    }
+
+    public String version() {
+        return version;
+    }
+
+    CipherEngine engine() {
+        return engine;
+    }
+
+    @Override
+    public String toString() {
+        return "VersionedKey[" + version + "]";
+    }
+}
@@ -0,0 +1,65 @@
+package com.yagoutpay.sdk;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Reflective access to Java 21 virtual threads so the SDK can keep compiling
+ * against the Java 17 toolchain.
+ */
+final class VirtualThreads {
+    private static final Method NEW_PER_TASK = lookup();
+    private static final MethodHandle IS_VIRTUAL = isVirtualHandle();
+
+    private VirtualThreads() {
+    }
+
+    private static Method lookup() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static MethodHandle isVirtualHandle() {
+        try {
+            return MethodHandles.publicLookup().findVirtual(Thread.class, "isVirtual",
+                    MethodType.methodType(boolean.class));
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /** True when the current thread is a virtual thread. */
+    static boolean isCurrent() {
+        if (IS_VIRTUAL == null)
+            return false;
+        try {
+            return (boolean) IS_VIRTUAL.invokeExact(Thread.currentThread());
+        } catch (Throwable e) {
+            return false;
+        }
+    }
+
+    /** True when the running JVM supports virtual threads. */
+    static boolean available() {
+        return NEW_PER_TASK != null;
+    }
+
+    /** A virtual-thread-per-task executor, or null on JVMs older than 21. */
+    static ExecutorService newPerTaskExecutor() {
+        if (NEW_PER_TASK == null)
+            return null;
+        try {
+            return (ExecutorService) NEW_PER_TASK.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            // Preview-gated or otherwise unusable on this JVM.
+            return null;
+        }
+    }
+}
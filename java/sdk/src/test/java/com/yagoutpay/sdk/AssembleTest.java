@@ -0,0 +1,184 @@
+package com.yagoutpay.sdk;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+class AssembleTest {
+    private static final String[] ODD = {
+        "plain", "", "q\"uo\\te", "ctl\u0001\u001f\b\f\n\r\t\u007f", "üñí€", "emoji 😀 face",
+        "lone \uD83D high", "lone \uDE00 low", "</script>",
+    };
+
+    private static Types.TransactionDetails.Builder details(String v) {
+        return Types.TransactionDetails.builder()
+                .aggregatorId("yagout")
+                .merchantId("M1")
+                .orderNumber("O-" + v)
+                .amount("12.50")
+                .country("ETH")
+                .currency("ETB")
+                .transactionType("SALE")
+                .successUrl("")
+                .failureUrl("")
+                .channel("API")
+                .customerName(v)
+                .customerEmail(v)
+                .customerMobile(v)
+                .udf1(v)
+                .billCity(v)
+                .shipDays(v);
+    }
+
+    @Test
+    void apiJsonMatchesFormerObjectMapperOutput() throws Exception {
+        for (String v : ODD) {
+            Types.TransactionDetails d = details(v).build();
+            assertArrayEquals(legacyApiJson(d).getBytes(StandardCharsets.UTF_8), apiBytes(d), v);
+        }
+    }
+
+    @Test
+    void apiJsonKeepsNullTxnFieldsAsNull() throws Exception {
+        Types.TransactionDetails d = details("x").build();
+        Types.TransactionDetails withNull = new Types.TransactionDetails(d, null, d.orderNumber, null, null,
+                d.customerName, d.customerEmail, d.customerMobile, d.uniqueId);
+        assertEquals(legacyApiJson(withNull), new String(apiBytes(withNull), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void moneyAmountIsWrittenAsItsPlainDecimal() throws Exception {
+        Types.TransactionDetails typed = details("x").amount(Money.ofMinor(1250, "ETB")).build();
+        Types.TransactionDetails plain = details("x").build();
+        assertArrayEquals(apiBytes(plain), apiBytes(typed));
+        assertEquals(Assemble.buildMerchantRequestPlain(plain), Assemble.buildMerchantRequestPlain(typed));
+    }
+
+    @Test
+    void webSeparatorsInFieldsAreRejected() {
+        for (String sep : new String[] { "|", "~" }) {
+            for (String bad : new String[] { sep, "a" + sep, sep + "b", "a" + sep + "b" }) {
+                IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                        () -> Assemble.buildMerchantRequestPlain(details("x").customerName(bad).build()), bad);
+                assertEquals("customerName must not contain '|' or '~'", e.getMessage());
+                assertThrows(IllegalArgumentException.class,
+                        () -> Assemble.buildMerchantRequestPlain(details("x").udf1(bad).build()), bad);
+                assertThrows(IllegalArgumentException.class,
+                        () -> Assemble.buildMerchantRequestPlain(details("x").orderNumber(bad).build()), bad);
+                // The API request is JSON, so separators are ordinary characters there.
+                assertTrue(new String(apiBytes(details(bad).build()), StandardCharsets.UTF_8).contains(bad));
+            }
+        }
+        // A rejected order must not leave its half-written fields in the reused buffer.
+        Types.TransactionDetails ok = details("x").build();
+        String expected = Assemble.buildMerchantRequestPlain(ok);
+        assertThrows(IllegalArgumentException.class,
+                () -> Assemble.buildMerchantRequestPlain(details("x").billCity("a|b").build()));
+        assertEquals(expected, Assemble.buildMerchantRequestPlain(ok));
+    }
+
+    @Test
+    void webCallbackUrlSeparatorsArePercentEncoded() {
+        String plain = Assemble.buildMerchantRequestPlain(details("x")
+                .successUrl("https://shop.test/ok?a=1|2").failureUrl("https://shop.test/~fail").build());
+        assertTrue(plain.contains("|https://shop.test/ok?a=1%7C2|https://shop.test/%7Efail|"), plain);
+        assertEquals(9, plain.split("~", -1).length);
+        assertEquals(10, plain.split("~", -1)[0].split("\\|", -1).length);
+    }
+
+    @Test
+    void jsonStringMatchesObjectMapperForEveryChar() throws Exception {
+        ObjectMapper om = new ObjectMapper();
+        for (int c = 0; c < 0x10000; c++) {
+            String s = "a" + (char) c + "b";
+            ByteSink out = new ByteSink(16);
+            Assemble.writeJsonString(out, s);
+            assertArrayEquals(om.writeValueAsString(s).getBytes(StandardCharsets.UTF_8),
+                    Arrays.copyOf(out.array(), out.size()), "char " + c);
+        }
+    }
+
+    private static byte[] apiBytes(Types.TransactionDetails d) {
+        ByteSink out = Assemble.apiMerchantRequest(d);
+        return Arrays.copyOf(out.array(), out.size());
+    }
+
+    /** The API JSON as the SDK built it before it was streamed into a buffer. */
+    private static String legacyApiJson(Types.TransactionDetails d) throws Exception {
+        ObjectMapper om = new ObjectMapper();
+        ObjectNode root = om.createObjectNode();
+        ObjectNode card = root.putObject("card_details");
+        card.put("cardNumber", orEmpty(d.cardNumber));
+        card.put("expiryMonth", orEmpty(d.expiryMonth));
+        card.put("expiryYear", orEmpty(d.expiryYear));
+        card.put("cvv", orEmpty(d.cvv));
+        card.put("cardName", orEmpty(d.cardName));
+
+        ObjectNode other = root.putObject("other_details");
+        other.put("udf1", orEmpty(d.udf1));
+        other.put("udf2", orEmpty(d.udf2));
+        other.put("udf3", orEmpty(d.udf3));
+        other.put("udf4", orEmpty(d.udf4));
+        other.put("udf5", orEmpty(d.udf5));
+        other.put("udf6", orEmpty(d.udf6));
+        other.put("udf7", orEmpty(d.udf7));
+
+        ObjectNode ship = root.putObject("ship_details");
+        ship.put("shipAddress", orEmpty(d.shipAddress));
+        ship.put("shipCity", orEmpty(d.shipCity));
+        ship.put("shipState", orEmpty(d.shipState));
+        ship.put("shipCountry", orEmpty(d.shipCountry));
+        ship.put("shipZip", orEmpty(d.shipZip));
+        ship.put("shipDays", orEmpty(d.shipDays));
+        ship.put("addressCount", orEmpty(d.addressCount));
+
+        ObjectNode txn = root.putObject("txn_details");
+        txn.put("agId", d.aggregatorId);
+        txn.put("meId", d.merchantId);
+        txn.put("orderNo", d.orderNumber);
+        txn.put("amount", d.amount);
+        txn.put("country", d.country);
+        txn.put("currency", d.currency);
+        txn.put("transactionType", d.transactionType);
+        txn.put("successUrl", d.successUrl);
+        txn.put("failureUrl", d.failureUrl);
+        txn.put("channel", "API");
+
+        ObjectNode item = root.putObject("item_details");
+        item.put("itemCount", orEmpty(d.itemCount));
+        item.put("itemValue", orEmpty(d.itemValue));
+        item.put("itemCategory", orEmpty(d.itemCategory));
+
+        ObjectNode cust = root.putObject("cust_details");
+        cust.put("customerName", orEmpty(d.customerName));
+        cust.put("emailId", orEmpty(d.customerEmail));
+        cust.put("mobileNumber", orEmpty(d.customerMobile));
+        cust.put("uniqueId", orEmpty(d.uniqueId));
+        cust.put("isLoggedIn", orEmpty(d.isLoggedIn == null ? "Y" : d.isLoggedIn));
+
+        ObjectNode pg = root.putObject("pg_details");
+        pg.put("pg_Id", orEmpty(d.pgId));
+        pg.put("paymode", orEmpty(d.paymode));
+        pg.put("scheme_Id", orEmpty(d.schemeId));
+        pg.put("wallet_type", orEmpty(d.walletType));
+
+        ObjectNode bill = root.putObject("bill_details");
+        bill.put("billAddress", orEmpty(d.billAddress));
+        bill.put("billCity", orEmpty(d.billCity));
+        bill.put("billState", orEmpty(d.billState));
+        bill.put("billCountry", orEmpty(d.billCountry));
+        bill.put("billZip", orEmpty(d.billZip));
+        return om.writeValueAsString(root);
+    }
+
+    private static String orEmpty(String v) {
+        return v == null ? "" : v;
+    }
+}
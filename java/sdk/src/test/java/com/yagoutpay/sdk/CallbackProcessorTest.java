@@ -0,0 +1,149 @@
+package com.yagoutpay.sdk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class CallbackProcessorTest {
+    private static final String KEY = Base64.getEncoder().encodeToString(new byte[32]);
+    private static final String OTHER_KEY = Base64.getEncoder().encodeToString(new byte[] {
+        1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22, 23, 24, 25, 26, 27, 28, 29, 30,
+        31, 32 });
+    private static final CipherEngine ENGINE = new CipherEngine(KEY);
+    private static final String TXN = "{\"me_id\":\"M1\",\"order_no\":\"O1\",\"amount\":\"100.00\","
+            + "\"country\":\"ETH\",\"currency\":\"ETB\"}";
+
+    private final CallbackProcessor processor = new CallbackProcessor(KEY);
+
+    private static String hex(String meId, String orderNo, String amount) {
+        return new String(Hashing.hashHex(meId, orderNo, amount, "ETH", "ETB"), StandardCharsets.US_ASCII);
+    }
+
+    private static Map<String, String> callback(String txnDetails, String hash) {
+        Map<String, String> p = new HashMap<>();
+        p.put("txn_details", ENGINE.encrypt(txnDetails));
+        p.put("hash", hash);
+        return p;
+    }
+
+    @Test
+    void encryptedHashOverDecryptedFieldsIsValid() {
+        CallbackProcessor.Result r = processor.process(callback(TXN, ENGINE.encrypt(hex("M1", "O1", "100.00"))));
+        assertEquals(CallbackProcessor.HashStatus.VALID, r.hashStatus);
+        assertTrue(r.verified());
+        assertEquals("O1", r.orderNumber);
+        assertEquals("100.00", r.amount);
+    }
+
+    @Test
+    void forgedPlainHexHashIsRejected() {
+        Map<String, String> forged = new HashMap<>();
+        forged.put("me_id", "M1");
+        forged.put("order_no", "O1");
+        forged.put("amount", "1.00");
+        forged.put("country", "ETH");
+        forged.put("currency", "ETB");
+        forged.put("hash", hex("M1", "O1", "1.00"));
+        CallbackProcessor.Result r = processor.process(forged);
+        assertFalse(r.verified());
+        assertEquals(CallbackProcessor.HashStatus.UNENCRYPTED, r.hashStatus);
+
+        // Even over genuine encrypted sections a hex hash proves nothing.
+        CallbackProcessor.Result withSections = processor.process(callback(TXN, hex("M1", "O1", "100.00")));
+        assertEquals(CallbackProcessor.HashStatus.UNENCRYPTED, withSections.hashStatus);
+        assertEquals(CallbackProcessor.HashStatus.UNENCRYPTED,
+                processor.process(callback(TXN, hex("M1", "O1", "100.00").toUpperCase())).hashStatus);
+    }
+
+    @Test
+    void plainParamsDoNotOverrideDecryptedFields() {
+        Map<String, String> p = callback(TXN, ENGINE.encrypt(hex("M1", "O1", "1.00")));
+        p.put("amount", "1.00");
+        CallbackProcessor.Result r = processor.process(p);
+        assertEquals("100.00", r.amount);
+        assertEquals(CallbackProcessor.HashStatus.MISMATCH, r.hashStatus);
+    }
+
+    @Test
+    void orderFieldsAreNotTakenFromPlainParams() {
+        Map<String, String> p = new HashMap<>();
+        p.put("me_id", "M1");
+        p.put("order_no", "O1");
+        p.put("amount", "100.00");
+        p.put("country", "ETH");
+        p.put("currency", "ETB");
+        p.put("hash", ENGINE.encrypt(hex("M1", "O1", "100.00")));
+        CallbackProcessor.Result r = processor.process(p);
+        assertEquals(CallbackProcessor.HashStatus.MISSING_FIELDS, r.hashStatus);
+        assertNull(r.orderNumber);
+    }
+
+    @Test
+    void hashUnderAnotherKeyIsUndecryptable() {
+        String foreign = new CipherEngine(OTHER_KEY).encrypt(hex("M1", "O1", "100.00"));
+        CallbackProcessor.Result r = processor.process(callback(TXN, foreign));
+        assertFalse(r.verified());
+        assertTrue(r.hashStatus == CallbackProcessor.HashStatus.UNDECRYPTABLE
+                || r.hashStatus == CallbackProcessor.HashStatus.MISMATCH, r.hashStatus.name());
+    }
+
+    @Test
+    void missingHashIsReported() {
+        assertEquals(CallbackProcessor.HashStatus.MISSING_HASH, processor.process(callback(TXN, null)).hashStatus);
+        assertEquals(CallbackProcessor.HashStatus.MISSING_HASH, processor.process(callback(TXN, "")).hashStatus);
+    }
+
+    @Test
+    void pipeDelimitedTxnResponseIsParsed() {
+        Map<String, String> p = new HashMap<>();
+        p.put("txn_response", ENGINE.encrypt("yagout|M1|O1|100.00|ETH|ETB|Success"));
+        p.put("hash", ENGINE.encrypt(hex("M1", "O1", "100.00")));
+        CallbackProcessor.Result r = processor.process(p);
+        assertEquals(CallbackProcessor.HashStatus.VALID, r.hashStatus);
+        assertTrue(r.sections.containsKey("txn_response"));
+    }
+
+    @Test
+    void expectedOrderIsUsedInsteadOfCallbackFields() {
+        Types.TransactionDetails sent = Types.TransactionDetails.builder()
+                .aggregatorId("yagout").merchantId("M1").orderNumber("O1").amount("100.00")
+                .country("ETH").currency("ETB").transactionType("SALE")
+                .successUrl("").failureUrl("").channel("WEB").build();
+        Map<String, String> p = callback("{\"amount\":\"1.00\"}", ENGINE.encrypt(hex("M1", "O1", "100.00")));
+        assertEquals(CallbackProcessor.HashStatus.VALID, processor.process(p, sent).hashStatus);
+        Map<String, String> cheap = callback(TXN, ENGINE.encrypt(hex("M1", "O1", "1.00")));
+        assertEquals(CallbackProcessor.HashStatus.MISMATCH, processor.process(cheap, sent).hashStatus);
+    }
+
+    @Test
+    void undecryptableSectionsAreListed() {
+        Map<String, String> p = callback(TXN, ENGINE.encrypt(hex("M1", "O1", "100.00")));
+        p.put("card_details", "bm90IGVuY3J5cHRlZA==");
+        CallbackProcessor.Result r = processor.process(p);
+        assertTrue(r.undecryptable.contains("card_details"));
+        assertEquals(CallbackProcessor.HashStatus.VALID, r.hashStatus);
+    }
+
+    @Test
+    void batchesKeepInputOrder() {
+        List<Map<String, String>> batch = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            String txn = TXN.replace("\"O1\"", "\"O" + i + "\"");
+            batch.add(callback(txn, ENGINE.encrypt(hex("M1", "O" + i, "100.00"))));
+        }
+        List<CallbackProcessor.Result> out = processor.processAll(batch);
+        for (int i = 0; i < 200; i++) {
+            assertEquals("O" + i, out.get(i).orderNumber);
+            assertTrue(out.get(i).verified());
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.yagoutpay.sdk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class CircuitBreakerTest {
+    private static final long FAST = 1;
+
+    private static CircuitBreaker breaker(Duration openFor) {
+        CircuitBreaker.Config cfg = new CircuitBreaker.Config();
+        cfg.windowSize = 4;
+        cfg.minimumCalls = 4;
+        cfg.failureRateThreshold = 0.5;
+        cfg.slowCallRateThreshold = 1.0;
+        cfg.slowCallDuration = Duration.ofSeconds(1);
+        cfg.openDuration = openFor;
+        cfg.halfOpenProbes = 2;
+        return new CircuitBreaker("http://gw/api", cfg);
+    }
+
+    private static void calls(CircuitBreaker b, boolean... failed) {
+        for (boolean f : failed)
+            b.record(b.acquire(), f, FAST);
+    }
+
+    @Test
+    void opensOnlyOnceMinimumCallsAreRecorded() {
+        CircuitBreaker b = breaker(Duration.ofMinutes(1));
+        calls(b, true, true, true);
+        assertEquals(CircuitBreaker.State.CLOSED, b.state());
+        calls(b, false);
+        assertEquals(CircuitBreaker.State.OPEN, b.state());
+        assertThrows(CircuitBreaker.OpenException.class, b::acquire);
+    }
+
+    @Test
+    void windowSlidesOldOutcomesOut() {
+        CircuitBreaker b = breaker(Duration.ofMinutes(1));
+        calls(b, false, false, false, true);
+        assertEquals(0.25, b.failureRate(), 1e-9);
+        calls(b, false, false, false);
+        assertEquals(0.25, b.failureRate(), 1e-9);
+        calls(b, false);
+        assertEquals(0.0, b.failureRate(), 1e-9);
+        assertEquals(CircuitBreaker.State.CLOSED, b.state());
+    }
+
+    @Test
+    void slowCallsOpenTheCircuit() {
+        CircuitBreaker b = breaker(Duration.ofMinutes(1));
+        for (int i = 0; i < 4; i++)
+            b.record(b.acquire(), false, Duration.ofSeconds(2).toNanos());
+        assertEquals(CircuitBreaker.State.OPEN, b.state());
+    }
+
+    @Test
+    void halfOpenAdmitsLimitedProbesAndClosesOnSuccess() {
+        CircuitBreaker b = breaker(Duration.ZERO);
+        calls(b, true, true, true, true);
+        long p1 = b.acquire();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, b.state());
+        long p2 = b.acquire();
+        assertThrows(CircuitBreaker.OpenException.class, b::acquire);
+        b.record(p1, false, FAST);
+        b.record(p2, false, FAST);
+        assertEquals(CircuitBreaker.State.CLOSED, b.state());
+        assertEquals(0.0, b.failureRate(), 1e-9);
+    }
+
+    @Test
+    void failedProbesReopen() {
+        CircuitBreaker b = breaker(Duration.ZERO);
+        calls(b, true, true, true, true);
+        long p1 = b.acquire();
+        long p2 = b.acquire();
+        b.record(p1, true, FAST);
+        b.record(p2, false, FAST);
+        assertEquals(CircuitBreaker.State.OPEN, b.state());
+    }
+
+    @Test
+    void releasedProbeFreesItsSlot() {
+        CircuitBreaker b = breaker(Duration.ZERO);
+        calls(b, true, true, true, true);
+        long p1 = b.acquire();
+        long p2 = b.acquire();
+        b.release(p2);
+        long p3 = b.acquire();
+        b.record(p1, false, FAST);
+        b.record(p3, false, FAST);
+        assertEquals(CircuitBreaker.State.CLOSED, b.state());
+    }
+
+    @Test
+    void callsAdmittedBeforeOpeningDoNotCountAsProbes() {
+        CircuitBreaker b = breaker(Duration.ZERO);
+        long straggler1 = b.acquire();
+        long straggler2 = b.acquire();
+        calls(b, true, true, true, true);
+        // Half-open now; the stragglers from the closed period finish successfully.
+        long probe = b.acquire();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, b.state());
+        b.record(straggler1, false, FAST);
+        b.record(straggler2, false, FAST);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, b.state());
+        b.release(straggler1);
+        long probe2 = b.acquire();
+        assertThrows(CircuitBreaker.OpenException.class, b::acquire);
+        b.record(probe, true, FAST);
+        b.record(probe2, true, FAST);
+        assertEquals(CircuitBreaker.State.OPEN, b.state());
+    }
+
+    @Test
+    void staleResultsDoNotEnterTheNewWindow() {
+        CircuitBreaker b = breaker(Duration.ZERO);
+        calls(b, true, true, true, true);
+        long p1 = b.acquire();
+        long p2 = b.acquire();
+        long late = p1;
+        b.record(p1, false, FAST);
+        b.record(p2, false, FAST);
+        assertEquals(CircuitBreaker.State.CLOSED, b.state());
+        b.record(late, true, FAST);
+        assertEquals(0.0, b.failureRate(), 1e-9);
+    }
+}
@@ -0,0 +1,169 @@
+package com.yagoutpay.sdk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** The CompletableFuture send methods and their cancellation against a local stub gateway. */
+class ClientAsyncTest {
+    private static final String OK = "{\"merchantId\":\"M1\",\"status\":\"Success\",\"response\":\"\"}";
+
+    private HttpServer server;
+    private final AtomicInteger hits = new AtomicInteger();
+    /** Held requests wait on this until the test releases them or ends. */
+    private final CountDownLatch release = new CountDownLatch(1);
+    private volatile int status = 200;
+    private volatile String body = OK;
+    private volatile boolean hold;
+    private String base;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", ex -> {
+            try (ex) {
+                ex.getRequestBody().readAllBytes();
+                hits.incrementAndGet();
+                if (hold)
+                    release.await(10, TimeUnit.SECONDS);
+                send(ex, status, body);
+            } catch (Exception e) {
+                // client gave up on this exchange
+            }
+        });
+        server.start();
+        base = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void stop() {
+        release.countDown();
+        server.stop(0);
+    }
+
+    private static void send(HttpExchange ex, int status, String body) throws IOException {
+        byte[] b = body.getBytes(StandardCharsets.UTF_8);
+        ex.sendResponseHeaders(status, b.length == 0 ? -1 : b.length);
+        if (b.length > 0)
+            ex.getResponseBody().write(b);
+    }
+
+    private static Client client(Duration duplicateWindow) {
+        Client.Config cfg = new Client.Config();
+        cfg.merchantId = "M1";
+        cfg.encryptionKey = Base64.getEncoder().encodeToString(new byte[32]);
+        cfg.httpVersion = HttpClient.Version.HTTP_1_1;
+        cfg.duplicateWindow = duplicateWindow;
+        return new Client(cfg);
+    }
+
+    private static Types.TransactionDetails order() {
+        return Types.TransactionDetails.builder()
+                .aggregatorId("yagout").merchantId("M1").orderNumber("O1").amount("10.00")
+                .country("ETH").currency("ETB").transactionType("SALE")
+                .successUrl("").failureUrl("").channel("API").build();
+    }
+
+    @Test
+    void asyncApiMatchesTheBlockingCall() throws Exception {
+        Client c = client(null);
+        Types.ApiRequestResult sync = c.sendApi(order(), base + "/api");
+        Types.ApiRequestResult async = c.sendApiAsync(order(), base + "/api").get(5, TimeUnit.SECONDS);
+        assertEquals(sync.response().status, async.response().status);
+        assertEquals(base + "/api", async.endpoint);
+        assertTrue(async.accepted());
+        assertEquals(2, hits.get());
+    }
+
+    @Test
+    void asyncLinksReturnTheParsedBody() throws Exception {
+        body = "{\"status\":\"ok\",\"url\":\"https://pay.test/l/1\"}";
+        Client c = client(null);
+        Types.PaymentLinkPlain link = new Types.PaymentLinkPlain();
+        link.me_code = "M1";
+        Types.PaymentLinkResult stat = c.sendPaymentLinkResultAsync(link, base + "/link").get(5, TimeUnit.SECONDS);
+        assertEquals("ok", ((Map<?, ?>) stat.raw).get("status"));
+        Types.PaymentByLinkPlain byLink = new Types.PaymentByLinkPlain();
+        byLink.me_id = "M1";
+        Types.PaymentLinkResult dyn = c.sendPaymentByLinkResultAsync(byLink, base + "/bylink")
+                .get(5, TimeUnit.SECONDS);
+        assertEquals(base + "/bylink", dyn.endpoint);
+        assertEquals(2, hits.get());
+    }
+
+    @Test
+    void gatewayErrorFailsTheFuture() {
+        status = 400;
+        body = "bad";
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> client(null).sendApiAsync(order(), base + "/api").get(5, TimeUnit.SECONDS));
+        GatewayException g = assertInstanceOf(GatewayException.class, e.getCause());
+        assertEquals(400, g.statusCode());
+        assertEquals("bad", g.body());
+    }
+
+    @Test
+    void cancelStopsWaitingForAHeldExchange() throws Exception {
+        hold = true;
+        CompletableFuture<Types.ApiRequestResult> f = client(null).sendApiAsync(order(), base + "/api");
+        awaitHits(1);
+        assertTrue(f.cancel(true));
+        assertThrows(CancellationException.class, f::join);
+    }
+
+    @Test
+    void orTimeoutEndsTheCallBeforeTheRequestTimeout() throws Exception {
+        hold = true;
+        long start = System.nanoTime();
+        CompletableFuture<Types.ApiRequestResult> f = client(null).sendApiAsync(order(), base + "/api")
+                .orTimeout(200, TimeUnit.MILLISECONDS);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> f.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, e.getCause());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+    }
+
+    @Test
+    void cancellingOneDuplicateLeavesTheSharedExchangeRunning() throws Exception {
+        hold = true;
+        Client c = client(Duration.ofMinutes(1));
+        CompletableFuture<Types.ApiRequestResult> first = c.sendApiAsync(order(), base + "/api");
+        CompletableFuture<Types.ApiRequestResult> second = c.sendApiAsync(order(), base + "/api");
+        awaitHits(1);
+        first.cancel(true);
+        release.countDown();
+        assertTrue(second.get(5, TimeUnit.SECONDS).accepted());
+        assertTrue(first.isCancelled());
+        assertEquals(1, hits.get());
+    }
+
+    private void awaitHits(int n) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (hits.get() < n && System.nanoTime() < deadline)
+            Thread.sleep(5);
+        assertEquals(n, hits.get());
+    }
+}
@@ -0,0 +1,100 @@
+package com.yagoutpay.sdk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Base64;
+import org.junit.jupiter.api.Test;
+
+class ClientPoolTest {
+    private static final String KEY = Base64.getEncoder().encodeToString(new byte[32]);
+    private static final String OTHER_KEY = Base64.getEncoder().encodeToString(new byte[] {
+            1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16,
+            17, 18, 19, 20, 21, 22, 23, 24, 25, 26, 27, 28, 29, 30, 31, 32 });
+
+    private static ClientPool pool(int maxClients, Duration idle) {
+        ClientPool.Config cfg = new ClientPool.Config();
+        cfg.maxClients = maxClients;
+        cfg.idleTimeout = idle;
+        return new ClientPool(cfg);
+    }
+
+    private static Types.TransactionDetails order(String merchantId, String orderNo) {
+        return Types.TransactionDetails.builder()
+                .aggregatorId("yagout").merchantId(merchantId).orderNumber(orderNo).amount("10.00")
+                .country("ETH").currency("ETB").transactionType("SALE")
+                .successUrl("").failureUrl("").channel("WEB").build();
+    }
+
+    @Test
+    void clientSettingsAreForwardedToEveryMerchant() {
+        ClientPool.Config cfg = new ClientPool.Config();
+        InMemoryMetrics metrics = new InMemoryMetrics();
+        cfg.client.metrics = metrics;
+        cfg.client.actionUrlOverride = "https://pay.example/checkout";
+        cfg.client.merchantId = "IGNORED";
+        ClientPool pool = new ClientPool(cfg);
+
+        Types.BuiltRequest a = pool.get("M1", KEY).build(order("M1", "A-1"));
+        Types.BuiltRequest b = pool.get("M2", OTHER_KEY).build(order("M2", "B-1"));
+        assertEquals("https://pay.example/checkout", a.actionUrl);
+        assertEquals("https://pay.example/checkout", b.actionUrl);
+        assertNotEquals(a.merchantRequest, b.merchantRequest);
+        assertEquals(2, metrics.stage(Metrics.Stage.ASSEMBLE).count());
+    }
+
+    @Test
+    void knownMerchantGetsTheSameClient() {
+        ClientPool pool = pool(10, null);
+        Client c = pool.get("M1", KEY);
+        assertSame(c, pool.get("M1", KEY));
+        assertEquals(1, pool.size());
+    }
+
+    @Test
+    void newKeyRotatesTheClientInPlace() {
+        ClientPool pool = pool(10, null);
+        Client c = pool.get("M1", KEY);
+        Types.BuiltRequest before = c.build(order("M1", "R-1"));
+        assertEquals(before.merchantRequestPlain, new CipherEngine(KEY).decrypt(before.merchantRequest));
+        assertSame(c, pool.get("M1", OTHER_KEY));
+        Types.BuiltRequest after = c.build(order("M1", "R-1"));
+        assertEquals(after.merchantRequestPlain, new CipherEngine(OTHER_KEY).decrypt(after.merchantRequest));
+    }
+
+    @Test
+    void leastRecentlyUsedIsDroppedWhenFull() throws InterruptedException {
+        ClientPool pool = pool(2, null);
+        Client m1 = pool.get("M1", KEY);
+        Thread.sleep(2);
+        pool.get("M2", KEY);
+        Thread.sleep(2);
+        pool.get("M1", KEY);
+        Thread.sleep(2);
+        pool.get("M3", KEY);
+        assertEquals(2, pool.size());
+        assertSame(m1, pool.get("M1", KEY));
+        assertEquals(2, pool.size());
+    }
+
+    @Test
+    void idleClientsAreEvicted() throws InterruptedException {
+        ClientPool pool = pool(10, Duration.ofMillis(1));
+        Client c = pool.get("M1", KEY);
+        Thread.sleep(5);
+        pool.evictIdle();
+        assertEquals(0, pool.size());
+        assertNotEquals(c, pool.get("M1", KEY));
+    }
+
+    @Test
+    void removeDropsTheClient() {
+        ClientPool pool = pool(10, null);
+        pool.get("M1", KEY);
+        pool.remove("M1");
+        assertEquals(0, pool.size());
+    }
+}
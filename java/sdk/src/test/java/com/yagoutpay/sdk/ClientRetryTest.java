@@ -0,0 +1,253 @@
+package com.yagoutpay.sdk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** Retries, hedging, duplicate suppression and ledger recording against a local stub gateway. */
+class ClientRetryTest {
+    private static final String OK = "{\"merchantId\":\"M1\",\"status\":\"Success\",\"response\":\"\"}";
+
+    /** What the stub does for the n-th request, counted from 1. */
+    private interface Reply {
+        void answer(HttpExchange ex, int n) throws Exception;
+    }
+
+    private HttpServer server;
+    private final AtomicInteger hits = new AtomicInteger();
+    private volatile Reply reply;
+    private String url;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", ex -> {
+            try (ex) {
+                ex.getRequestBody().readAllBytes();
+                reply.answer(ex, hits.incrementAndGet());
+            } catch (Exception e) {
+                // client gave up on this exchange
+            }
+        });
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/api";
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop(0);
+    }
+
+    private static void send(HttpExchange ex, int status, String body) throws IOException {
+        byte[] b = body.getBytes(StandardCharsets.UTF_8);
+        ex.sendResponseHeaders(status, b.length == 0 ? -1 : b.length);
+        if (b.length > 0)
+            ex.getResponseBody().write(b);
+    }
+
+    private static RetryPolicy policy(int attempts) {
+        RetryPolicy p = new RetryPolicy();
+        p.maxAttempts = attempts;
+        p.initialBackoff = Duration.ofMillis(10);
+        p.maxBackoff = Duration.ofMillis(20);
+        return p;
+    }
+
+    private static Client client(RetryPolicy retry, Duration timeout) {
+        return client(retry, timeout, null);
+    }
+
+    private static Client client(RetryPolicy retry, Duration timeout, OrderLedger ledger) {
+        Client.Config cfg = new Client.Config();
+        cfg.orderLedger = ledger;
+        cfg.merchantId = "M1";
+        cfg.encryptionKey = Base64.getEncoder().encodeToString(new byte[32]);
+        cfg.httpVersion = HttpClient.Version.HTTP_1_1;
+        cfg.requestTimeout = timeout;
+        cfg.retryPolicy = retry;
+        return new Client(cfg);
+    }
+
+    private static Types.TransactionDetails order() {
+        return Types.TransactionDetails.builder()
+                .aggregatorId("yagout").merchantId("M1").orderNumber("O1").amount("10.00")
+                .country("ETH").currency("ETB").transactionType("SALE")
+                .successUrl("").failureUrl("").channel("API").build();
+    }
+
+    @Test
+    void retryableStatusIsRetriedUntilSuccess() throws Exception {
+        reply = (ex, n) -> send(ex, n < 3 ? 503 : 200, n < 3 ? "busy" : OK);
+        Types.ApiRequestResult r = client(policy(3), Duration.ofSeconds(5)).sendApi(order(), url);
+        assertEquals("Success", r.response().status);
+        assertEquals(3, hits.get());
+    }
+
+    @Test
+    void nonRetryableStatusFailsAtOnce() {
+        reply = (ex, n) -> send(ex, 400, "bad request");
+        GatewayException e = assertThrows(GatewayException.class,
+                () -> client(policy(3), Duration.ofSeconds(5)).sendApi(order(), url));
+        assertEquals(400, e.statusCode());
+        assertEquals(1, hits.get());
+    }
+
+    @Test
+    void attemptsAreCapped() {
+        reply = (ex, n) -> send(ex, 503, "busy");
+        GatewayException e = assertThrows(GatewayException.class,
+                () -> client(policy(3), Duration.ofSeconds(5)).sendApi(order(), url));
+        assertEquals(503, e.statusCode());
+        assertEquals(3, hits.get());
+    }
+
+    @Test
+    void totalBudgetStopsRetries() {
+        reply = (ex, n) -> send(ex, 503, "busy");
+        RetryPolicy p = policy(50);
+        p.initialBackoff = Duration.ofMillis(100);
+        p.maxBackoff = Duration.ofMillis(100);
+        p.jitter = 0;
+        p.totalBudget = Duration.ofMillis(350);
+        assertThrows(GatewayException.class, () -> client(p, Duration.ofSeconds(5)).sendApi(order(), url));
+        assertTrue(hits.get() >= 2 && hits.get() <= 4, "hits " + hits.get());
+    }
+
+    @Test
+    void unreadableSuccessIsNotRetried() {
+        reply = (ex, n) -> send(ex, 200, "<html>not json</html>");
+        assertThrows(IOException.class, () -> client(policy(3), Duration.ofSeconds(5)).sendApi(order(), url));
+        assertEquals(1, hits.get());
+    }
+
+    @Test
+    void unreadableSuccessIsNotRetriedAsync() {
+        reply = (ex, n) -> send(ex, 200, "[]");
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> client(policy(3), Duration.ofSeconds(5)).sendApiAsync(order(), url).get());
+        assertTrue(e.getCause() instanceof IOException, String.valueOf(e.getCause()));
+        assertEquals(1, hits.get());
+    }
+
+    @Test
+    void sendApiTimeoutIsNotRetriedByDefault() {
+        reply = (ex, n) -> {
+            Thread.sleep(1000);
+            send(ex, 200, OK);
+        };
+        assertThrows(HttpTimeoutException.class,
+                () -> client(policy(3), Duration.ofMillis(200)).sendApi(order(), url));
+        assertEquals(1, hits.get());
+    }
+
+    @Test
+    void sendApiTimeoutIsRetriedWhenOptedIn() throws Exception {
+        reply = (ex, n) -> {
+            if (n == 1)
+                Thread.sleep(1000);
+            send(ex, 200, OK);
+        };
+        RetryPolicy p = policy(2);
+        p.retryTimeouts = true;
+        assertEquals("Success", client(p, Duration.ofMillis(200)).sendApi(order(), url).response().status);
+        assertEquals(2, hits.get());
+    }
+
+    @Test
+    void ledgerRecordsOnlyOrdersTheGatewayAccepted() throws Exception {
+        OrderLedger ledger = new OrderLedger();
+        reply = (ex, n) -> send(ex, n == 1 ? 400 : 200,
+                n == 1 ? "bad" : n == 2 ? "{\"merchantId\":\"M1\",\"status\":\"Failed\"}" : OK);
+        Client c = client(policy(1), Duration.ofSeconds(5), ledger);
+        c.build(order());
+        assertEquals(0, ledger.size());
+        assertThrows(GatewayException.class, () -> c.sendApi(order(), url));
+        assertEquals(0, ledger.size());
+        assertFalse(c.sendApi(order(), url).accepted());
+        assertEquals(0, ledger.size());
+        assertTrue(c.sendApiAsync(order(), url).get().accepted());
+        assertEquals(1, ledger.size());
+    }
+
+    @Test
+    void duplicateWindowRemembersOnlyAcceptedResults() throws Exception {
+        reply = (ex, n) -> send(ex, 200, n == 1 ? "{\"merchantId\":\"M1\",\"status\":\"Failed\"}" : OK);
+        Client.Config cfg = new Client.Config();
+        cfg.merchantId = "M1";
+        cfg.encryptionKey = Base64.getEncoder().encodeToString(new byte[32]);
+        cfg.httpVersion = HttpClient.Version.HTTP_1_1;
+        cfg.duplicateWindow = Duration.ofMinutes(1);
+        Client c = new Client(cfg);
+        assertFalse(c.sendApi(order(), url).accepted());
+        assertTrue(c.sendApi(order(), url).accepted());
+        assertEquals(2, hits.get());
+        assertTrue(c.sendApi(order(), url).accepted());
+        assertTrue(c.sendApiAsync(order(), url).get().accepted());
+        assertEquals(2, hits.get());
+    }
+
+    @Test
+    void ledgerFailureDoesNotBlockTheSend() throws Exception {
+        OrderLedger ledger = new OrderLedger();
+        reply = (ex, n) -> send(ex, 200, OK);
+        Types.TransactionDetails odd = Types.TransactionDetails.builder()
+                .aggregatorId("yagout").merchantId("M1").orderNumber("O2").amount("12,50")
+                .country("ETH").currency("ETB").transactionType("SALE")
+                .successUrl("").failureUrl("").channel("API").build();
+        client(policy(1), Duration.ofSeconds(5), ledger).sendApi(odd, url);
+        assertEquals(1, hits.get());
+        assertEquals(1, ledger.rejected());
+        assertEquals(0, ledger.size());
+    }
+
+    @Test
+    void slowStaticLinkIsHedged() throws Exception {
+        reply = (ex, n) -> {
+            if (n == 1)
+                Thread.sleep(2000);
+            send(ex, 200, "{\"status\":\"ok\"}");
+        };
+        RetryPolicy p = policy(1);
+        p.hedgeDelay = Duration.ofMillis(100);
+        Types.PaymentLinkPlain link = new Types.PaymentLinkPlain();
+        link.me_code = "M1";
+        long start = System.nanoTime();
+        client(p, Duration.ofSeconds(5)).sendPaymentLinkResult(link, url);
+        assertTrue(System.nanoTime() - start < Duration.ofMillis(1500).toNanos(), "hedge did not win");
+        assertEquals(2, hits.get());
+    }
+
+    @Test
+    void dynamicLinkIsNotHedged() {
+        reply = (ex, n) -> {
+            Thread.sleep(300);
+            send(ex, 500, "down");
+        };
+        RetryPolicy p = policy(1);
+        p.hedgeDelay = Duration.ofMillis(50);
+        Types.PaymentByLinkPlain link = new Types.PaymentByLinkPlain();
+        link.me_id = "M1";
+        assertThrows(GatewayException.class,
+                () -> client(p, Duration.ofSeconds(5)).sendPaymentByLinkResult(link, url));
+        assertEquals(1, hits.get());
+    }
+}
@@ -0,0 +1,42 @@
+package com.yagoutpay.sdk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import org.junit.jupiter.api.Test;
+
+class HashingTest {
+    private static final String ABC = "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad";
+
+    @Test
+    void digestMatchesTheHashInput() {
+        assertEquals(ABC, Hashing.sha256Hex("abc"));
+        assertEquals(ABC, Hashing.sha256Hex("abc", new String[0]));
+        assertEquals(new String(Hashing.hashHex("M1", "O1", "1.00", "ETH", "ETB"), StandardCharsets.US_ASCII),
+                Hashing.sha256Hex("M1~O1~1.00~ETH~ETB"));
+    }
+
+    @Test
+    void tailsAreDelimitedByTheirLength() {
+        String big = "x\u20ac".repeat(10_000);
+        assertEquals(Hashing.sha256Hex("h", "ab", big), Hashing.sha256Hex("h", "ab", big));
+        assertNotEquals(Hashing.sha256Hex("h", "ab", ""), Hashing.sha256Hex("h", "a", "b"));
+        assertNotEquals(Hashing.sha256Hex("h", big), Hashing.sha256Hex("h", big + "x"));
+        assertNotEquals(Hashing.sha256Hex("h", "\u0100"), Hashing.sha256Hex("h", "\u0001"));
+        assertEquals(ABC, Hashing.sha256Hex("abc"));
+    }
+
+    @Test
+    void builtRequestHashInputMatchesItsHash() {
+        Client.Config cfg = new Client.Config();
+        cfg.encryptionKey = Base64.getEncoder().encodeToString(new byte[32]);
+        Types.BuiltRequest built = new Client(cfg).build(Types.TransactionDetails.builder()
+                .aggregatorId("yagout").merchantId("M1").orderNumber("O1").amount(Money.parse("1", "ETB"))
+                .country("ETH").transactionType("SALE").successUrl("").failureUrl("").channel("WEB").build());
+        assertEquals("M1~O1~1.00~ETH~ETB", built.hashInput());
+        assertEquals(Hashing.sha256Hex(built.hashInput()), built.hashHex);
+        assertEquals("given", new Types.BuiltRequest("M1", "", "", "given", "", "", "").hashInput());
+    }
+}
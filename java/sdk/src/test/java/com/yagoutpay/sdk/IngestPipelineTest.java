@@ -0,0 +1,135 @@
+package com.yagoutpay.sdk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class IngestPipelineTest {
+    private static IngestPipeline.Config config(int capacity, int workers, Duration offerTimeout) {
+        IngestPipeline.Config cfg = new IngestPipeline.Config();
+        cfg.name = "test";
+        cfg.capacity = capacity;
+        cfg.workers = workers;
+        cfg.offerTimeout = offerTimeout;
+        return cfg;
+    }
+
+    /** Handler that parks the worker on its first batch until released. */
+    private static final class Gate implements IngestPipeline.Handler<Integer> {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<Integer> seen = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void handle(List<Integer> batch) throws InterruptedException {
+            entered.countDown();
+            release.await();
+            seen.addAll(batch);
+        }
+    }
+
+    @Test
+    void fullQueueRejectsAtOnceByDefault() throws InterruptedException {
+        Gate gate = new Gate();
+        IngestPipeline<Integer> pipeline = new IngestPipeline<>(config(2, 1, Duration.ZERO), gate);
+        assertTrue(pipeline.submit(0));
+        assertTrue(gate.entered.await(5, TimeUnit.SECONDS));
+        assertTrue(pipeline.submit(1));
+        assertTrue(pipeline.submit(2));
+        assertFalse(pipeline.submit(3));
+        assertFalse(pipeline.submit(4));
+        assertEquals(2, pipeline.rejected());
+        assertEquals(2, pipeline.depth());
+        assertTrue(pipeline.lagNanos() > 0);
+
+        gate.release.countDown();
+        assertTrue(pipeline.close(Duration.ofSeconds(5)));
+        assertEquals(List.of(0, 1, 2), gate.seen);
+        assertEquals(3, pipeline.processed());
+        assertEquals(0, pipeline.depth());
+    }
+
+    @Test
+    void offerTimeoutBoundsTheWait() throws InterruptedException {
+        Gate gate = new Gate();
+        Duration wait = Duration.ofMillis(50);
+        IngestPipeline<Integer> pipeline = new IngestPipeline<>(config(1, 1, wait), gate);
+        pipeline.submit(0);
+        assertTrue(gate.entered.await(5, TimeUnit.SECONDS));
+        assertTrue(pipeline.submit(1));
+        long start = System.nanoTime();
+        assertFalse(pipeline.submit(2));
+        assertTrue(System.nanoTime() - start >= wait.toNanos());
+        assertEquals(1, pipeline.rejected());
+        gate.release.countDown();
+        pipeline.close();
+    }
+
+    @Test
+    void closeDrainsQueuedItemsThenRefusesMore() throws InterruptedException {
+        List<Integer> seen = new CopyOnWriteArrayList<>();
+        IngestPipeline.Config cfg = config(1000, 2, Duration.ZERO);
+        cfg.maxBatch = 16;
+        List<Integer> sizes = new CopyOnWriteArrayList<>();
+        IngestPipeline<Integer> pipeline = new IngestPipeline<>(cfg, batch -> {
+            sizes.add(batch.size());
+            seen.addAll(batch);
+        });
+        for (int i = 0; i < 500; i++)
+            assertTrue(pipeline.submit(i));
+        assertTrue(pipeline.close(Duration.ofSeconds(5)));
+        assertEquals(500, seen.size());
+        assertEquals(500, pipeline.processed());
+        assertTrue(sizes.stream().allMatch(n -> n >= 1 && n <= 16));
+        assertEquals(500, pipeline.lag().count());
+        assertThrows(RejectedExecutionException.class, () -> pipeline.submit(501));
+    }
+
+    @Test
+    void closeReportsAStuckHandler() throws InterruptedException {
+        Gate gate = new Gate();
+        IngestPipeline<Integer> pipeline = new IngestPipeline<>(config(10, 1, Duration.ZERO), gate);
+        pipeline.submit(0);
+        assertTrue(gate.entered.await(5, TimeUnit.SECONDS));
+        pipeline.submit(1);
+        assertFalse(pipeline.close(Duration.ofMillis(50)));
+        gate.release.countDown();
+        assertTrue(pipeline.close(Duration.ofSeconds(5)));
+        assertEquals(List.of(0, 1), gate.seen);
+    }
+
+    @Test
+    void failedBatchesAreCountedAndWorkersCarryOn() throws InterruptedException {
+        InMemoryMetrics metrics = new InMemoryMetrics();
+        IngestPipeline.Config cfg = config(100, 1, Duration.ZERO);
+        cfg.maxBatch = 1;
+        cfg.metrics = metrics;
+        IngestPipeline<Integer> pipeline = new IngestPipeline<>(cfg, batch -> {
+            if (batch.get(0) % 2 == 0)
+                throw new IllegalStateException("even");
+        });
+        for (int i = 0; i < 10; i++)
+            pipeline.submit(i);
+        assertTrue(pipeline.close(Duration.ofSeconds(5)));
+        assertEquals(5, pipeline.failed());
+        assertEquals(5, pipeline.processed());
+        assertEquals(10, metrics.queue("test").lag().count());
+    }
+
+    @Test
+    void configMustBePositive() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new IngestPipeline<Integer>(config(0, 1, Duration.ZERO), batch -> { }));
+        assertThrows(IllegalArgumentException.class,
+                () -> new IngestPipeline<Integer>(config(1, 0, Duration.ZERO), batch -> { }));
+    }
+}
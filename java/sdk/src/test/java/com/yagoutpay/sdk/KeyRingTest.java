@@ -0,0 +1,90 @@
+package com.yagoutpay.sdk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class KeyRingTest {
+    private static String key(int seed) {
+        byte[] raw = new byte[32];
+        for (int i = 0; i < raw.length; i++)
+            raw[i] = (byte) (seed + i);
+        return Base64.getEncoder().encodeToString(raw);
+    }
+
+    private static List<String> versions(KeyRing ring) {
+        return ring.decryptionKeys().stream().map(VersionedKey::version).collect(Collectors.toList());
+    }
+
+    private static Types.TransactionDetails order() {
+        return Types.TransactionDetails.builder()
+                .aggregatorId("yagout").merchantId("M1").orderNumber("K-1").amount("10.00")
+                .country("ETH").currency("ETB").transactionType("SALE")
+                .successUrl("").failureUrl("").channel("WEB").build();
+    }
+
+    @Test
+    void rotationKeepsPreviousKeysUpToTheLimit() {
+        KeyRing ring = new KeyRing("v1", key(1));
+        ring.rotate("v2", key(2));
+        assertEquals("v2", ring.currentVersion());
+        assertEquals(List.of("v2", "v1"), versions(ring));
+        ring.rotate("v3", key(3));
+        ring.rotate("v4", key(4));
+        assertEquals(List.of("v4", "v3", "v2"), versions(ring));
+
+        KeyRing none = new KeyRing("v1", key(1), 0);
+        none.rotate("v2", key(2));
+        assertEquals(List.of("v2"), versions(none));
+        assertThrows(IllegalArgumentException.class, () -> new KeyRing("v1", key(1), -1));
+    }
+
+    @Test
+    void rotatingToAKnownVersionReplacesIt() {
+        KeyRing ring = new KeyRing("v1", key(1));
+        ring.rotate("v2", key(2));
+        ring.rotate("v1", key(5));
+        assertEquals(List.of("v1", "v2"), versions(ring));
+        String sealed = new CipherEngine(key(5)).encrypt("hello");
+        assertEquals("hello", ring.current().engine().decrypt(sealed));
+    }
+
+    @Test
+    void badKeyLeavesTheRingUntouched() {
+        KeyRing ring = new KeyRing("v1", key(1));
+        assertThrows(RuntimeException.class, () -> ring.rotate("v2", "not base64!"));
+        assertEquals(List.of("v1"), versions(ring));
+    }
+
+    @Test
+    void retireDropsOnlyPreviousKeys() {
+        KeyRing ring = new KeyRing("v1", key(1));
+        ring.rotate("v2", key(2));
+        assertThrows(IllegalArgumentException.class, () -> ring.retire("v2"));
+        assertFalse(ring.retire("v9"));
+        assertTrue(ring.retire("v1"));
+        assertFalse(ring.retire("v1"));
+        assertEquals(List.of("v2"), versions(ring));
+    }
+
+    @Test
+    void clientEncryptsWithTheKeyCurrentAtBuildTime() {
+        KeyRing ring = new KeyRing("v1", key(1));
+        Client.Config cfg = new Client.Config();
+        cfg.merchantId = "M1";
+        cfg.keyProvider = ring;
+        Client client = new Client(cfg);
+
+        Types.BuiltRequest before = client.build(order());
+        ring.rotate("v2", key(2));
+        Types.BuiltRequest after = client.build(order());
+        assertEquals(before.merchantRequestPlain, new CipherEngine(key(1)).decrypt(before.merchantRequest));
+        assertEquals(after.merchantRequestPlain, new CipherEngine(key(2)).decrypt(after.merchantRequest));
+    }
+}
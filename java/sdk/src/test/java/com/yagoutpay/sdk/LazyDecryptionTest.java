@@ -0,0 +1,147 @@
+package com.yagoutpay.sdk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** Responses whose payload cannot be decrypted still return a result that carries the failure. */
+class LazyDecryptionTest {
+    private static final String KEY = Base64.getEncoder().encodeToString(new byte[32]);
+    private static final String OTHER_KEY = Base64.getEncoder().encodeToString(new byte[] {
+            1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16,
+            17, 18, 19, 20, 21, 22, 23, 24, 25, 26, 27, 28, 29, 30, 31, 32 });
+
+    private HttpServer server;
+    private volatile String payload;
+    private String base;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", ex -> {
+            try (ex) {
+                ex.getRequestBody().readAllBytes();
+                String body = ex.getRequestURI().getPath().equals("/api")
+                        ? "{\"merchantId\":\"M1\",\"status\":\"Success\",\"response\":\"" + payload + "\"}"
+                        : "{\"status\":\"ok\",\"response\":\"" + payload + "\"}";
+                byte[] b = body.getBytes(StandardCharsets.UTF_8);
+                ex.sendResponseHeaders(200, b.length);
+                ex.getResponseBody().write(b);
+            }
+        });
+        server.start();
+        base = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop(0);
+    }
+
+    private static Client client(Metrics metrics) {
+        Client.Config cfg = new Client.Config();
+        cfg.merchantId = "M1";
+        cfg.encryptionKey = KEY;
+        cfg.httpVersion = HttpClient.Version.HTTP_1_1;
+        cfg.metrics = metrics;
+        return new Client(cfg);
+    }
+
+    private static Types.TransactionDetails order() {
+        return Types.TransactionDetails.builder()
+                .aggregatorId("yagout").merchantId("M1").orderNumber("O1").amount("10.00")
+                .country("ETH").currency("ETB").transactionType("SALE")
+                .successUrl("").failureUrl("").channel("API").build();
+    }
+
+    private static void assertFailed(Types.Decryption d) {
+        assertTrue(d.isFailure());
+        assertFalse(d.isPresent());
+        assertNull(d.value());
+        RuntimeException error = d.error();
+        assertNotNull(error);
+        assertSame(error, assertThrows(RuntimeException.class, d::orElseThrow));
+        assertSame(error, assertThrows(RuntimeException.class, () -> d.as(Types.ApiStatus.class)));
+    }
+
+    @Test
+    void wrongKeyPayloadFailsOnReadNotOnSend() throws Exception {
+        payload = new CipherEngine(OTHER_KEY).encrypt("{\"order_no\":\"O1\"}");
+        InMemoryMetrics metrics = new InMemoryMetrics();
+        Types.ApiRequestResult r = client(metrics).sendApi(order(), base + "/api");
+        assertTrue(r.accepted());
+        assertEquals(0, metrics.stage(Metrics.Stage.DECRYPT).count());
+        assertFailed(r.decryption());
+        assertNull(r.decryptedResponse());
+        assertSame(r.decryption(), r.decryption());
+        assertEquals(1, metrics.stage(Metrics.Stage.DECRYPT).count());
+    }
+
+    @Test
+    void malformedPayloadIsAFailureToo() throws Exception {
+        payload = "not base64!";
+        assertFailed(client(null).sendApiAsync(order(), base + "/api").get().decryption());
+        assertFailed(client(null).sendPaymentLinkResult(new Types.PaymentLinkPlain(), base + "/link").decryption());
+    }
+
+    @Test
+    void skippedDecryptionIsEmptyNotFailed() throws Exception {
+        payload = new CipherEngine(OTHER_KEY).encrypt("{}");
+        Types.Decryption d = client(null).sendApi(order(), base + "/api", false).decryption();
+        assertFalse(d.isFailure());
+        assertFalse(d.isPresent());
+        assertNull(d.as(Types.ApiStatus.class));
+        assertThrows(IllegalStateException.class, d::orElseThrow);
+    }
+
+    @Test
+    void concurrentReadersShareOneDecrypt() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        LazyDecryption lazy = new LazyDecryption(() -> {
+            runs.incrementAndGet();
+            return Types.Decryption.failed(new IllegalArgumentException("bad padding"));
+        });
+        CountDownLatch go = new CountDownLatch(1);
+        List<Thread> readers = new ArrayList<>();
+        List<Types.Decryption> seen = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < 8; i++) {
+            Thread t = new Thread(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                seen.add(lazy.get());
+            });
+            t.start();
+            readers.add(t);
+        }
+        go.countDown();
+        for (Thread t : readers)
+            t.join();
+        assertEquals(1, runs.get());
+        assertEquals(8, seen.size());
+        for (Types.Decryption d : seen)
+            assertSame(seen.get(0), d);
+    }
+}
@@ -0,0 +1,122 @@
+package com.yagoutpay.sdk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class MetricsTest {
+    private static final String KEY = Base64.getEncoder().encodeToString(new byte[32]);
+
+    private HttpServer server;
+    private String url;
+
+    @BeforeEach
+    void start() throws IOException {
+        String payload = new CipherEngine(KEY).encrypt("{\"order_no\":\"O1\",\"status\":\"SUCCESS\"}");
+        byte[] ok = ("{\"merchantId\":\"M1\",\"status\":\"Success\",\"response\":\"" + payload + "\"}")
+                .getBytes(StandardCharsets.UTF_8);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", ex -> {
+            try (ex) {
+                ex.getRequestBody().readAllBytes();
+                ex.sendResponseHeaders(200, ok.length);
+                ex.getResponseBody().write(ok);
+            }
+        });
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/api";
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop(0);
+    }
+
+    private static Client client(Metrics metrics) {
+        Client.Config cfg = new Client.Config();
+        cfg.merchantId = "M1";
+        cfg.encryptionKey = KEY;
+        cfg.httpVersion = HttpClient.Version.HTTP_1_1;
+        cfg.metrics = metrics;
+        return new Client(cfg);
+    }
+
+    private static Types.TransactionDetails order(String channel) {
+        return Types.TransactionDetails.builder()
+                .aggregatorId("yagout").merchantId("M1").orderNumber("O1").amount("10.00")
+                .country("ETH").currency("ETB").transactionType("SALE")
+                .successUrl("").failureUrl("").channel(channel).build();
+    }
+
+    private static long count(InMemoryMetrics m, Metrics.Stage stage) {
+        return m.stage(stage).count();
+    }
+
+    @Test
+    void buildRecordsOnlyLocalStages() {
+        InMemoryMetrics m = new InMemoryMetrics();
+        client(m).build(order("WEB"));
+        assertEquals(1, count(m, Metrics.Stage.ASSEMBLE));
+        assertEquals(1, count(m, Metrics.Stage.ENCRYPT));
+        assertEquals(1, count(m, Metrics.Stage.HASH));
+        assertEquals(0, count(m, Metrics.Stage.HTTP));
+        assertTrue(m.calls().isEmpty());
+    }
+
+    @Test
+    void sendRecordsEachStageAndTheCall() throws Exception {
+        InMemoryMetrics m = new InMemoryMetrics();
+        client(m).sendApi(order("API"), url);
+        assertEquals(1, count(m, Metrics.Stage.ASSEMBLE));
+        assertEquals(1, count(m, Metrics.Stage.ENCRYPT));
+        assertEquals(1, count(m, Metrics.Stage.HTTP));
+        assertEquals(1, count(m, Metrics.Stage.PARSE));
+        assertEquals(0, count(m, Metrics.Stage.HASH));
+        assertTrue(m.stage(Metrics.Stage.HTTP).max() > 0);
+
+        Map<InMemoryMetrics.CallKey, InMemoryMetrics.Call> calls = m.calls();
+        assertEquals(1, calls.size());
+        InMemoryMetrics.CallKey key = calls.keySet().iterator().next();
+        assertEquals("api", key.operation);
+        assertEquals(200, key.status);
+        assertEquals(1, calls.get(key).count());
+        assertTrue(m.render().contains("call{operation=api,"));
+    }
+
+    @Test
+    void decryptIsRecordedWhenThePayloadIsFirstRead() throws Exception {
+        InMemoryMetrics m = new InMemoryMetrics();
+        Types.ApiRequestResult r = client(m).sendApiAsync(order("API"), url).get();
+        assertEquals(0, count(m, Metrics.Stage.DECRYPT));
+        assertEquals("O1", r.apiStatus().orderNumber);
+        r.decryption();
+        assertEquals(1, count(m, Metrics.Stage.DECRYPT));
+    }
+
+    @Test
+    void histogramPercentilesStayWithinABucket() {
+        LatencyHistogram h = new LatencyHistogram();
+        assertEquals(0, h.percentile(50));
+        for (int i = 1; i <= 1000; i++)
+            h.record(i * 1000L);
+        h.record(-5);
+        assertEquals(1001, h.count());
+        assertEquals(1_000_000, h.max());
+        long p50 = h.percentile(50);
+        assertTrue(p50 >= 500_000 && p50 <= 500_000 * 1.125, "p50 " + p50);
+        long p99 = h.percentile(99);
+        assertTrue(p99 >= 990_000 && p99 <= 1_000_000, "p99 " + p99);
+        assertEquals(1_000_000, h.percentile(100));
+    }
+}
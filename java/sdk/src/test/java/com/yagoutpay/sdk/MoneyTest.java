@@ -0,0 +1,91 @@
+package com.yagoutpay.sdk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+class MoneyTest {
+    @Test
+    void parseFollowsTheCurrencyScale() {
+        assertEquals(1250, Money.parse("12.5", "ETB").minor());
+        assertEquals(1200, Money.parse("12", "ETB").minor());
+        assertEquals(1200, Money.parse("12.", "ETB").minor());
+        assertEquals(50, Money.parse(".5", "ETB").minor());
+        assertEquals(500, Money.parse("500", "JPY").minor());
+        assertEquals(1234, Money.parse("1.234", "BHD").minor());
+        assertEquals(12345, Money.parse("1.2345", "CLF").minor());
+        assertEquals(2, Money.parse("1", "XQQ").scale());
+        assertEquals(1250, Money.parse(" 12.50 ", "etb").minor());
+        assertEquals("ETB", Money.parse("1", "etb").currency());
+    }
+
+    @Test
+    void extraFractionDigitsMustBeZero() {
+        assertEquals(1250, Money.parse("12.5000", "ETB").minor());
+        assertEquals(500, Money.parse("500.00", "JPY").minor());
+        assertThrows(IllegalArgumentException.class, () -> Money.parse("12.501", "ETB"));
+        assertThrows(IllegalArgumentException.class, () -> Money.parse("0.001", "ETB"));
+        assertThrows(IllegalArgumentException.class, () -> Money.parse("1.5", "JPY"));
+    }
+
+    @Test
+    void malformedAmountsAreRejected() {
+        for (String bad : new String[] { null, "", " ", ".", "-1", "+1", "1e3", "1,50", "1.2.3", "12 50", "١٢" })
+            assertThrows(IllegalArgumentException.class, () -> Money.parse(bad, "ETB"), String.valueOf(bad));
+        assertThrows(IllegalArgumentException.class, () -> Money.parse("1", null));
+        assertThrows(IllegalArgumentException.class, () -> Money.parse("1", ""));
+        assertThrows(IllegalArgumentException.class, () -> Money.ofMinor(-1, "ETB"));
+    }
+
+    @Test
+    void overflowFailsInsteadOfWrapping() {
+        assertEquals(Long.MAX_VALUE, Money.parse("92233720368547758.07", "ETB").minor());
+        assertThrows(IllegalArgumentException.class, () -> Money.parse("92233720368547758.08", "ETB"));
+        assertThrows(IllegalArgumentException.class, () -> Money.parse("92233720368547758", "BHD"));
+        assertThrows(IllegalArgumentException.class, () -> Money.parse("99999999999999999999", "JPY"));
+        Money max = Money.ofMinor(Long.MAX_VALUE, "ETB");
+        assertThrows(ArithmeticException.class, () -> max.plus(Money.ofMinor(1, "ETB")));
+        assertThrows(ArithmeticException.class, () -> max.times(2));
+        assertThrows(IllegalArgumentException.class, () -> max.times(-1));
+    }
+
+    @Test
+    void formatPadsToTheScale() {
+        assertEquals("0.00", Money.ofMinor(0, "ETB").toString());
+        assertEquals("0.05", Money.ofMinor(5, "ETB").toString());
+        assertEquals("12.50", Money.ofMinor(1250, "ETB").toString());
+        assertEquals("500", Money.ofMinor(500, "JPY").toString());
+        assertEquals("0.007", Money.ofMinor(7, "BHD").toString());
+        assertEquals("0.0001", Money.ofMinor(1, "CLF").toString());
+        String longest = Money.ofMinor(Long.MAX_VALUE, "CLF").toString();
+        assertEquals("922337203685477.5807", longest);
+        assertTrue(longest.length() <= Money.MAX_LENGTH);
+        assertEquals("92233720368547758.07", Money.ofMinor(Long.MAX_VALUE, "ETB").toString());
+    }
+
+    @Test
+    void formatWritesAtTheOffset() {
+        byte[] buf = new byte[Money.MAX_LENGTH + 3];
+        int n = Money.ofMinor(1250, "ETB").format(buf, 3);
+        assertEquals(5, n);
+        assertEquals("12.50", new String(buf, 3, n, StandardCharsets.US_ASCII));
+        assertEquals(0, buf[2]);
+    }
+
+    @Test
+    void currenciesDoNotMix() {
+        Money etb = Money.ofMinor(100, "ETB");
+        Money usd = Money.ofMinor(100, "USD");
+        assertNotEquals(etb, usd);
+        assertThrows(IllegalArgumentException.class, () -> etb.plus(usd));
+        assertThrows(IllegalArgumentException.class, () -> etb.compareTo(usd));
+        assertEquals(Money.parse("1.00", "etb"), etb);
+        assertEquals(Money.parse("1", "ETB").hashCode(), etb.hashCode());
+        assertTrue(etb.compareTo(Money.ofMinor(101, "ETB")) < 0);
+        assertTrue(Money.ofMinor(0, "ETB").isZero());
+    }
+}
@@ -0,0 +1,101 @@
+package com.yagoutpay.sdk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.Test;
+
+class OrderIdsTest {
+    @Test
+    void nodeIdMustFitInTenBits() {
+        assertThrows(IllegalArgumentException.class, () -> new OrderIds(-1));
+        assertThrows(IllegalArgumentException.class, () -> new OrderIds(OrderIds.MAX_NODE_ID + 1));
+        assertEquals(0, OrderIds.nodeId(new OrderIds(0).nextId()));
+        assertEquals(OrderIds.MAX_NODE_ID, OrderIds.nodeId(new OrderIds(OrderIds.MAX_NODE_ID).nextId()));
+    }
+
+    @Test
+    void idsCarryTheWallClock() {
+        long before = System.currentTimeMillis();
+        long id = new OrderIds(7).nextId();
+        long after = System.currentTimeMillis();
+        assertTrue(id > 0);
+        assertTrue(OrderIds.timestampMillis(id) >= before && OrderIds.timestampMillis(id) <= after);
+        assertEquals(7, OrderIds.nodeId(id));
+    }
+
+    // Far more than 4096 ids in a few milliseconds: the sequence runs out and the timestamp borrows ahead.
+    @Test
+    void exhaustedSequenceStaysStrictlyIncreasing() {
+        OrderIds ids = new OrderIds(1);
+        long prev = ids.nextId();
+        for (int i = 0; i < 100_000; i++) {
+            long next = ids.nextId();
+            assertTrue(next > prev, "id " + i + " did not increase");
+            assertEquals(1, OrderIds.nodeId(next));
+            prev = next;
+        }
+    }
+
+    @Test
+    void orderNumbersAreFixedWidthAndSortInIssueOrder() {
+        OrderIds ids = new OrderIds(3);
+        String prev = ids.next();
+        assertEquals(16, prev.length());
+        assertTrue(prev.startsWith("ORD"));
+        for (int i = 0; i < 10_000; i++) {
+            String next = ids.next();
+            assertEquals(16, next.length());
+            assertTrue(next.matches("ORD[0-9A-Z]{13}"), next);
+            assertTrue(next.compareTo(prev) > 0, next + " sorts before " + prev);
+            prev = next;
+        }
+        assertEquals("X-", new OrderIds(3, "X-").next().substring(0, 2));
+        assertEquals(13, new OrderIds(3, "").next().length());
+    }
+
+    @Test
+    void concurrentCallersNeverShareAnId() throws InterruptedException {
+        OrderIds ids = new OrderIds(5);
+        Set<Long> seen = ConcurrentHashMap.newKeySet();
+        int threads = 8;
+        int perThread = 20_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread w = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++)
+                    seen.add(ids.nextId());
+            });
+            w.start();
+            workers.add(w);
+        }
+        start.countDown();
+        for (Thread w : workers)
+            w.join();
+        assertEquals(threads * perThread, seen.size());
+    }
+
+    @Test
+    void nodesDoNotCollide() {
+        OrderIds a = new OrderIds(1);
+        OrderIds b = new OrderIds(2);
+        Set<Long> seen = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(seen.add(a.nextId()));
+            assertTrue(seen.add(b.nextId()));
+        }
+    }
+}
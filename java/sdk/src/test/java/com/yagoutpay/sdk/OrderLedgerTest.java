@@ -0,0 +1,169 @@
+package com.yagoutpay.sdk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+class OrderLedgerTest {
+    private static Types.TransactionDetails.Builder order(String orderNo) {
+        return Types.TransactionDetails.builder()
+                .aggregatorId("yagout").merchantId("M1").orderNumber(orderNo)
+                .country("ETH").currency("ETB").transactionType("SALE")
+                .successUrl("").failureUrl("").channel("WEB");
+    }
+
+    private record Entry(long amount, String currency, int scale, String orderNumber) {
+    }
+
+    /** The entry recorded for {@code orderNo}, or null. */
+    private static Entry entry(OrderLedger ledger, String orderNo) {
+        byte[] b = orderNo.getBytes(StandardCharsets.UTF_8);
+        return entry(ledger, OrderLedger.hash(b, 0, b.length), b);
+    }
+
+    private static Entry entry(OrderLedger ledger, long key, byte[] order) {
+        OrderLedger.Stripe s = ledger.stripe(key);
+        synchronized (s) {
+            int slot = s.find(key, order, 0, order.length);
+            return slot < 0 ? null : new Entry(s.amount(slot), s.currency(slot), s.scale(slot), s.orderNumber(slot));
+        }
+    }
+
+    @Test
+    void amountsAreKeptAtTheCurrencyScale() {
+        OrderLedger ledger = new OrderLedger();
+        ledger.record("A", "12.5", "ETB");
+        ledger.record("B", "1.234", "BHD");
+        ledger.record("C", "500", "JPY");
+        ledger.record("D", "7.1000", "usd");
+        assertEquals(1250, entry(ledger, "A").amount());
+        assertEquals(1234, entry(ledger, "B").amount());
+        assertEquals(3, entry(ledger, "B").scale());
+        assertEquals(500, entry(ledger, "C").amount());
+        assertEquals(0, entry(ledger, "C").scale());
+        assertEquals("USD", entry(ledger, "D").currency());
+        assertThrows(IllegalArgumentException.class, () -> ledger.record("E", "1.5", "JPY"));
+        assertThrows(IllegalArgumentException.class, () -> ledger.record("E", "1.005", "ETB"));
+        assertThrows(IllegalArgumentException.class, () -> ledger.record("E", "-1", "ETB"));
+    }
+
+    @Test
+    void typedAmountIsRecordedAsIs() {
+        OrderLedger ledger = new OrderLedger();
+        ledger.record(order("K").amount(Money.ofMinor(12345, "KWD")).build());
+        assertEquals(12345, entry(ledger, "K").amount());
+        assertEquals("KWD", entry(ledger, "K").currency());
+    }
+
+    @Test
+    void tryRecordCountsInsteadOfThrowing() {
+        OrderLedger ledger = new OrderLedger();
+        assertFalse(ledger.tryRecord(order("X").amount("12,50").build()));
+        assertFalse(ledger.tryRecord(order("Y").amount("1.005").build()));
+        assertTrue(ledger.tryRecord(order("Z").amount("1.00").build()));
+        assertEquals(2, ledger.rejected());
+        assertEquals(1, ledger.size());
+    }
+
+    @Test
+    void recordingAgainReplacesTheEntry() {
+        OrderLedger ledger = new OrderLedger();
+        ledger.record("A", "1.00", "ETB");
+        ledger.record("A", "2.00", "USD");
+        assertEquals(1, ledger.size());
+        assertEquals(200, entry(ledger, "A").amount());
+        assertEquals("USD", entry(ledger, "A").currency());
+    }
+
+    @Test
+    void growthKeepsEveryOrder() {
+        OrderLedger ledger = new OrderLedger(16);
+        for (int i = 0; i < 100_000; i++)
+            ledger.record("ORD-" + i + "-ü", i + ".01", "ETB");
+        assertEquals(100_000, ledger.size());
+        for (int i = 0; i < 100_000; i += 997) {
+            Entry e = entry(ledger, "ORD-" + i + "-ü");
+            assertEquals(i * 100L + 1, e.amount());
+            assertEquals("ORD-" + i + "-ü", e.orderNumber());
+        }
+        assertNull(entry(ledger, "never"));
+        assertFalse(ledger.contains("never"));
+        assertTrue(ledger.contains("ORD-0-ü"));
+    }
+
+    @Test
+    void rollHandsOverTheWindowAndStartsEmpty() {
+        OrderLedger ledger = new OrderLedger(16);
+        for (int i = 0; i < 100; i++)
+            ledger.record("W1-" + i, "1.00", "ETB");
+        OrderLedger closed = ledger.roll();
+        assertEquals(100, closed.size());
+        assertEquals(0, ledger.size());
+        assertTrue(closed.contains("W1-99"));
+        ledger.record("W2-0", "1.25", "BHD");
+        assertFalse(closed.contains("W2-0"));
+        assertEquals(1250, entry(ledger, "W2-0").amount());
+        assertEquals(100, entry(closed, "W1-1").amount());
+        closed.clear();
+        assertEquals(0, closed.size());
+        assertFalse(closed.contains("W1-1"));
+        closed.record("again", "2.00", "ETB");
+        assertEquals(1, closed.size());
+    }
+
+    @Test
+    void hashCollisionsKeepOrdersApart() {
+        OrderLedger ledger = new OrderLedger(16);
+        byte[] a = "A".getBytes(StandardCharsets.UTF_8);
+        byte[] b = "B".getBytes(StandardCharsets.UTF_8);
+        ledger.put(42, a, 100, "ETB");
+        ledger.put(42, b, 200, "USD");
+        assertEquals(2, ledger.size());
+        assertEquals(100, entry(ledger, 42, a).amount());
+        assertEquals("USD", entry(ledger, 42, b).currency());
+        assertNull(entry(ledger, 42, "C".getBytes(StandardCharsets.UTF_8)));
+        // Growth moves colliding entries without merging them.
+        for (int i = 0; i < 100; i++)
+            ledger.put(42, ("X" + i).getBytes(StandardCharsets.UTF_8), i, "ETB");
+        assertEquals(102, ledger.size());
+        assertEquals(200, entry(ledger, 42, b).amount());
+        assertEquals(57, entry(ledger, 42, "X57".getBytes(StandardCharsets.UTF_8)).amount());
+    }
+
+    @Test
+    void concurrentRecordersLoseNothing() throws InterruptedException {
+        OrderLedger ledger = new OrderLedger(16);
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            int id = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 20_000; i++)
+                    ledger.record("T" + id + "-" + i, "1.00", "ETB");
+            });
+            threads[t].start();
+        }
+        for (Thread t : threads)
+            t.join();
+        assertEquals(160_000, ledger.size());
+        assertEquals(100, entry(ledger, "T7-19999").amount());
+    }
+
+    @Test
+    void minorUnitsRoundTrip() {
+        assertEquals("12.50", OrderLedger.formatMinor(1250, 2));
+        assertEquals("0.05", OrderLedger.formatMinor(5, 2));
+        assertEquals("0.005", OrderLedger.formatMinor(5, 3));
+        assertEquals("500", OrderLedger.formatMinor(500, 0));
+        assertEquals(5, OrderLedger.parseMinor(".05", 2));
+        assertEquals(-1, OrderLedger.parseMinor("", 2));
+        assertEquals(-1, OrderLedger.parseMinor(".", 2));
+        assertEquals(-1, OrderLedger.parseMinor("1.2.3", 2));
+        assertEquals(-1, OrderLedger.parseMinor("99999999999999999999", 2));
+        assertEquals(1000, OrderLedger.parseMinor("1.000", 3));
+    }
+}
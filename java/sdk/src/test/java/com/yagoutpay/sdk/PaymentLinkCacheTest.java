@@ -0,0 +1,125 @@
+package com.yagoutpay.sdk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+
+class PaymentLinkCacheTest {
+    private static final Duration TTL = Duration.ofMillis(20);
+
+    private static PaymentLinkCache cache(Duration grace, Metrics metrics) {
+        PaymentLinkCache.Config cfg = new PaymentLinkCache.Config();
+        cfg.ttl = TTL;
+        cfg.staleWhileRevalidate = grace;
+        return new PaymentLinkCache(cfg, metrics);
+    }
+
+    private static Types.PaymentLinkResult result(String url) {
+        return new Types.PaymentLinkResult(url, (String) null, "https://gateway.test/link");
+    }
+
+    /** Counts refresh starts and hands out a future the test completes. */
+    private static final class Refresh implements Supplier<CompletableFuture<Types.PaymentLinkResult>> {
+        final AtomicInteger started = new AtomicInteger();
+        volatile CompletableFuture<Types.PaymentLinkResult> pending;
+
+        @Override
+        public CompletableFuture<Types.PaymentLinkResult> get() {
+            started.incrementAndGet();
+            pending = new CompletableFuture<>();
+            return pending;
+        }
+    }
+
+    private static void expire() throws InterruptedException {
+        Thread.sleep(TTL.toMillis() * 2);
+    }
+
+    @Test
+    void freshEntriesAreServedWithoutRefreshing() {
+        InMemoryMetrics metrics = new InMemoryMetrics();
+        PaymentLinkCache c = cache(Duration.ofSeconds(10), metrics);
+        Refresh refresh = new Refresh();
+        assertNull(c.lookup("k", refresh));
+        Types.PaymentLinkResult first = result("u1");
+        c.put("k", first);
+        assertSame(first, c.lookup("k", refresh));
+        assertEquals(0, refresh.started.get());
+        assertEquals(1, c.misses());
+        assertEquals(1, c.hits());
+        assertEquals(1, metrics.cache(PaymentLinkCache.NAME, Metrics.CacheOutcome.HIT));
+        assertEquals(1, metrics.cache(PaymentLinkCache.NAME, Metrics.CacheOutcome.MISS));
+    }
+
+    @Test
+    void staleEntryIsServedWhileOneRefreshRuns() throws InterruptedException {
+        InMemoryMetrics metrics = new InMemoryMetrics();
+        PaymentLinkCache c = cache(Duration.ofSeconds(10), metrics);
+        Refresh refresh = new Refresh();
+        Types.PaymentLinkResult old = result("old");
+        c.put("k", old);
+        expire();
+        assertSame(old, c.lookup("k", refresh));
+        assertSame(old, c.lookup("k", refresh));
+        assertEquals(1, refresh.started.get());
+        assertEquals(2, c.staleHits());
+        assertEquals(2, metrics.cache(PaymentLinkCache.NAME, Metrics.CacheOutcome.STALE));
+
+        Types.PaymentLinkResult fresh = result("new");
+        refresh.pending.complete(fresh);
+        assertSame(fresh, c.lookup("k", refresh));
+        assertEquals(1, refresh.started.get());
+        assertEquals(1, c.hits());
+    }
+
+    @Test
+    void failedRefreshKeepsTheStaleEntryAndTriesAgain() throws InterruptedException {
+        PaymentLinkCache c = cache(Duration.ofSeconds(10), Metrics.NONE);
+        Refresh refresh = new Refresh();
+        Types.PaymentLinkResult old = result("old");
+        c.put("k", old);
+        expire();
+        assertSame(old, c.lookup("k", refresh));
+        refresh.pending.completeExceptionally(new GatewayException("busy", 503, ""));
+        assertSame(old, c.lookup("k", refresh));
+        assertEquals(2, refresh.started.get());
+
+        Supplier<CompletableFuture<Types.PaymentLinkResult>> throwing = () -> {
+            throw new IllegalStateException("could not prepare");
+        };
+        PaymentLinkCache other = cache(Duration.ofSeconds(10), Metrics.NONE);
+        other.put("k", old);
+        expire();
+        assertSame(old, other.lookup("k", throwing));
+        assertSame(old, other.lookup("k", refresh));
+    }
+
+    @Test
+    void withoutGraceAnExpiredEntryIsAMiss() throws InterruptedException {
+        PaymentLinkCache c = cache(null, Metrics.NONE);
+        Refresh refresh = new Refresh();
+        c.put("k", result("old"));
+        expire();
+        assertNull(c.lookup("k", refresh));
+        assertEquals(0, refresh.started.get());
+        assertEquals(1, c.misses());
+    }
+
+    @Test
+    void entriesPastTheGracePeriodAreDropped() throws InterruptedException {
+        PaymentLinkCache c = cache(Duration.ofMillis(20), Metrics.NONE);
+        c.put("k", result("old"));
+        Thread.sleep(TTL.toMillis() * 4);
+        assertNull(c.lookup("k", new Refresh()));
+        assertEquals(0, c.size());
+        c.put("k", result("again"));
+        c.clear();
+        assertEquals(0, c.size());
+    }
+}
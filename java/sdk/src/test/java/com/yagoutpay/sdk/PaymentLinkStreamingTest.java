@@ -0,0 +1,62 @@
+package com.yagoutpay.sdk;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class PaymentLinkStreamingTest {
+    private static final ObjectMapper OM = new ObjectMapper();
+    private static final CipherEngine ENGINE = new CipherEngine(Base64.getEncoder().encodeToString(new byte[32]));
+
+    private static Types.PaymentLinkPlain link(String text) {
+        Types.PaymentLinkPlain p = new Types.PaymentLinkPlain();
+        p.me_code = "M1";
+        p.brandName = text;
+        p.storeName = "lone \uD83D and \uDE00";
+        p.file = text.repeat(5000);
+        return p;
+    }
+
+    @Test
+    void linkJsonMatchesWriteValueAsString() throws Exception {
+        for (String text : new String[] {"plain", "q\"uo\\te\n", "emoji 😀 🇪🇹", "€ü"}) {
+            Types.PaymentLinkPlain filled = Client.fillLink(link(text));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            Client.writeLinkJson(filled, out);
+            assertArrayEquals(OM.writeValueAsString(filled).getBytes(StandardCharsets.UTF_8), out.toByteArray(), text);
+        }
+    }
+
+    @Test
+    void streamedBodyMatchesBufferedBody() throws Exception {
+        Types.PaymentLinkPlain filled = Client.fillLink(link("emoji 😀 face"));
+        String buffered = OM.writeValueAsString(Map.of("request", ENGINE.encrypt(OM.writeValueAsString(filled))));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Client.writeEncryptedLink(filled, ENGINE, out);
+        assertEquals(buffered, out.toString(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void streamedCacheKeyCoversEveryField() throws Exception {
+        String url = "https://example.test/link";
+        String key = Client.streamedLinkKey(url, Client.fillLink(link("emoji 😀 face")));
+        assertEquals(key, Client.streamedLinkKey(url, Client.fillLink(link("emoji 😀 face"))));
+        assertNotEquals(key, Client.streamedLinkKey(url + "/v2", Client.fillLink(link("emoji 😀 face"))));
+        Types.PaymentLinkPlain other = link("emoji 😀 face");
+        other.file += "!";
+        assertNotEquals(key, Client.streamedLinkKey(url, Client.fillLink(other)));
+        other = link("emoji 😀 face");
+        other.logo = "logo";
+        assertNotEquals(key, Client.streamedLinkKey(url, Client.fillLink(other)));
+        other = link("emoji 😀 face");
+        other.storeName = "other";
+        assertNotEquals(key, Client.streamedLinkKey(url, Client.fillLink(other)));
+    }
+}
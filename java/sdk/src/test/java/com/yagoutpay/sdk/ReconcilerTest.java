@@ -0,0 +1,213 @@
+package com.yagoutpay.sdk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class ReconcilerTest {
+    /** Collects every event as a line of text. */
+    private static final class Events implements Reconciler.Listener {
+        final List<String> all = new ArrayList<>();
+
+        @Override
+        public void onMismatch(String order, String issued, String issuedCcy, String settled, String settledCcy) {
+            all.add("mismatch " + order + " " + issued + " " + issuedCcy + " " + settled + " " + settledCcy);
+        }
+
+        @Override
+        public void onDuplicate(String order) {
+            all.add("duplicate " + order);
+        }
+
+        @Override
+        public void onUnknown(String order) {
+            all.add("unknown " + order);
+        }
+
+        @Override
+        public void onMissing(String order) {
+            all.add("missing " + order);
+        }
+
+        @Override
+        public void onMalformed(long line, String reason) {
+            all.add("malformed " + line + " " + reason);
+        }
+    }
+
+    private static OrderLedger ledger() {
+        OrderLedger ledger = new OrderLedger();
+        ledger.record("O1", "10.00", "ETB");
+        ledger.record("O2", "20.50", "ETB");
+        ledger.record("O3", "5.125", "KWD");
+        ledger.record("O4", "7", "ETB");
+        return ledger;
+    }
+
+    private static Reconciler.Report run(OrderLedger ledger, Reconciler.Format format, String text, Events events)
+            throws IOException {
+        return new Reconciler(ledger).reconcile(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)),
+                format, events);
+    }
+
+    @Test
+    void csvMatchesMismatchesDuplicatesUnknownAndMissing() throws IOException {
+        Events e = new Events();
+        Reconciler.Report r = run(ledger(), Reconciler.Format.CSV, "order_no,amount,currency\n"
+                + "O1,10,ETB\n"
+                + "O2,20.40,ETB\n"
+                + "O1,10.00,ETB\n"
+                + "O3,5.125,kwd\n"
+                + "O9,1.00,ETB\n", e);
+        assertEquals(5, r.rows);
+        assertEquals(2, r.matched);
+        assertEquals(1, r.mismatched);
+        assertEquals(1, r.duplicates);
+        assertEquals(1, r.unknown);
+        assertEquals(1, r.missing);
+        assertEquals(0, r.malformed);
+        assertEquals(List.of("mismatch O2 20.50 ETB 20.40 ETB", "duplicate O1", "unknown O9", "missing O4"), e.all);
+    }
+
+    @Test
+    void quotedCsvNewlinesStayInTheirField() throws IOException {
+        OrderLedger ledger = ledger();
+        ledger.record("multi\nline", "3.00", "ETB");
+        Events e = new Events();
+        Reconciler.Report r = run(ledger, Reconciler.Format.CSV, "order_no,note,amount\r\n"
+                + "O1,\"first\nsecond, third\",10.00\r\n"
+                + "\"multi\nline\",,3\n"
+                + "O2,\"a \"\"quoted\"\"\n\nnote\",20.50\n"
+                + "O4\n", e);
+        assertEquals(3, r.matched, e.all.toString());
+        assertEquals(1, r.malformed);
+        assertEquals(2, r.missing);
+        assertTrue(e.all.contains("malformed 9 too few columns"), e.all.toString());
+    }
+
+    @Test
+    void currencyMismatchUsesEachCurrencysScale() throws IOException {
+        Events e = new Events();
+        Reconciler.Report r = run(ledger(), Reconciler.Format.CSV,
+                "orderNo,amount,currency\nO3,5.13,USD\nO1,1000,JPY\nO2,20.505,ETB\n", e);
+        assertEquals(2, r.mismatched);
+        assertEquals(1, r.malformed);
+        assertTrue(e.all.contains("mismatch O3 5.125 KWD 5.13 USD"), e.all.toString());
+        assertTrue(e.all.contains("mismatch O1 10.00 ETB 1000 JPY"), e.all.toString());
+        assertTrue(e.all.contains("malformed 4 invalid amount"), e.all.toString());
+    }
+
+    @Test
+    void csvQuotingAndWhitespace() throws IOException {
+        OrderLedger ledger = new OrderLedger();
+        ledger.record("A,1", "1.00", "ETB");
+        ledger.record("say \"hi\"", "2.00", "ETB");
+        ledger.record("plain", "3.00", "ETB");
+        ledger.record("ü-order", "4.00", "ETB");
+        Events e = new Events();
+        Reconciler.Report r = run(ledger, Reconciler.Format.CSV, "\"Order_Number\", \"Amount\" ,currency\r\n"
+                + "\"A,1\",1.00,ETB\r\n"
+                + "\"say \"\"hi\"\"\",\"2.00\",ETB\r\n"
+                + "  plain  , 3 ,\r\n"
+                + "\r\n"
+                + "ü-order,4.00\n"
+                + "\"\",1.00,ETB\n"
+                + "only-one-column", e);
+        assertEquals(4, r.matched, e.all.toString());
+        assertEquals(2, r.malformed);
+        assertTrue(e.all.contains("malformed 7 missing order number"), e.all.toString());
+        assertTrue(e.all.contains("malformed 8 too few columns"), e.all.toString());
+    }
+
+    @Test
+    void csvWithoutOrderColumnIsRejected() {
+        assertThrows(IOException.class, () -> run(ledger(), Reconciler.Format.CSV, "id,amount\nO1,10\n", new Events()));
+    }
+
+    @Test
+    void longLinesGrowTheBuffer() throws IOException {
+        OrderLedger ledger = new OrderLedger();
+        String longOrder = "L".repeat(5000);
+        ledger.record(longOrder, "1.00", "ETB");
+        Reconciler.Config cfg = new Reconciler.Config();
+        cfg.bufferSize = 1024;
+        String csv = "order_no,amount\n" + longOrder + ",1.00\n";
+        Reconciler.Report r = new Reconciler(ledger, cfg).reconcile(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.US_ASCII)), Reconciler.Format.CSV, null);
+        assertEquals(1, r.matched);
+    }
+
+    @Test
+    void jsonLinesFieldsEscapesAndPhysicalLineNumbers() throws IOException {
+        OrderLedger ledger = ledger();
+        ledger.record("Q\"1", "1.00", "ETB");
+        ledger.record("😀-é", "2.00", "ETB");
+        Events e = new Events();
+        Reconciler.Report r = run(ledger, Reconciler.Format.JSONL,
+                "{\"order_no\":\"O1\",\"amount\":\"10.00\",\"currency\":\"ETB\"}\n"
+                + "\n"
+                + "  {\"meta\":{\"order_no\":\"O9\",\"list\":[1,\"]}\"]},\"orderNo\":\"O2\",\"amount\":20.5}\r\n"
+                + "{\"orderNumber\":\"Q\\\"1\",\"amount\":1,\"currency\":null}\n"
+                + "{\"order_no\":\"\\ud83d\\ude00-\\u00e9\",\"Amount\":\" 2.00 \"}\n"
+                + "[1,2]\n"
+                + "{\"order_no\":\"O3\",\"amount\":\"5.125\"\n"
+                + "{\"order_no\":\"O4\",\"amount\":\"7\"} trailing\n"
+                + "{\"order_no\":\"O3\",\"amount\":\"5.125\",\"currency\":\"KWD\"}", e);
+        assertEquals(5, r.matched, e.all.toString());
+        assertEquals(3, r.malformed);
+        assertEquals(8, r.rows);
+        assertTrue(e.all.contains("malformed 6 not a JSON object"), e.all.toString());
+        assertTrue(e.all.contains("malformed 7 invalid JSON"), e.all.toString());
+        assertTrue(e.all.contains("malformed 8 invalid JSON"), e.all.toString());
+        assertTrue(e.all.contains("missing O4"), e.all.toString());
+    }
+
+    @Test
+    void rerunStartsFromCleanMarks() throws IOException {
+        OrderLedger ledger = ledger();
+        String csv = "order_no,amount\nO1,10.00\n";
+        run(ledger, Reconciler.Format.CSV, csv, new Events());
+        Reconciler.Report again = run(ledger, Reconciler.Format.CSV, csv, new Events());
+        assertEquals(1, again.matched);
+        assertEquals(0, again.duplicates);
+        assertEquals(3, again.missing);
+    }
+
+    @Test
+    void ledgerGrowingWhileMissingIsReportedReportsEachOrderOnce() throws IOException {
+        OrderLedger ledger = new OrderLedger(16);
+        for (int i = 0; i < 20_000; i++)
+            ledger.record("M" + i, "1.00", "ETB");
+        List<String> missing = new ArrayList<>();
+        int[] added = { 0 };
+        Reconciler.Listener grow = new Reconciler.Listener() {
+            @Override
+            public void onMissing(String order) {
+                missing.add(order);
+                // Recording from the callback doubles the ledger a few times mid-scan.
+                if (added[0] < 50_000) {
+                    for (int k = 0; k < 5; k++)
+                        ledger.record("N" + added[0]++, "1.00", "ETB");
+                }
+            }
+        };
+        Reconciler.Report r = new Reconciler(ledger).reconcile(
+                new ByteArrayInputStream("order_no,amount\nM0,1.00\n".getBytes(StandardCharsets.US_ASCII)),
+                Reconciler.Format.CSV, grow);
+        Set<String> unique = new HashSet<>(missing);
+        assertEquals(missing.size(), unique.size());
+        for (int i = 1; i < 20_000; i++)
+            assertTrue(unique.contains("M" + i), "M" + i);
+        assertTrue(!unique.contains("M0"));
+        assertEquals(missing.size(), r.missing);
+    }
+}
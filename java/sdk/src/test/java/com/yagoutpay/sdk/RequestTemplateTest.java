@@ -0,0 +1,84 @@
+package com.yagoutpay.sdk;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+class RequestTemplateTest {
+    private static final String[] ODD = {
+        "plain", "", "q\"uo\\te", "ctl\u0001\u001f\b\f\n\r\t\u007f", "üñí€", "emoji 😀 face",
+        "lone \uD83D high", "lone \uDE00 low",
+    };
+
+    private static Types.TransactionDetails.Builder base(String v) {
+        return Types.TransactionDetails.builder()
+                .aggregatorId("yagout")
+                .merchantId("M1")
+                .country("ETH")
+                .currency("ETB")
+                .transactionType("SALE")
+                .successUrl("https://shop.example/ok?x=" + v)
+                .failureUrl("https://shop.example/fail")
+                .channel("WEB")
+                .udf1(v)
+                .billCity(v)
+                .shipDays(v)
+                .itemCategory(v);
+    }
+
+    @Test
+    void webOrderMatchesDetailsWithoutTemplate() {
+        for (String v : ODD) {
+            RequestTemplate t = base(v).template();
+            for (String c : ODD) {
+                Types.TransactionDetails templated = t.order("O-" + c, "12.50")
+                        .customerName(c).customerEmail(c).customerMobile(c).uniqueId(c).build();
+                Types.TransactionDetails plain = base(v).orderNumber("O-" + c).amount("12.50")
+                        .customerName(c).customerEmail(c).customerMobile(c).uniqueId(c).build();
+                assertArrayEquals(bytes(Assemble.merchantRequest(plain)), bytes(Assemble.merchantRequest(templated)),
+                        v + " / " + c);
+            }
+        }
+    }
+
+    @Test
+    void apiOrderMatchesApiDetailsWithoutTemplate() {
+        for (String v : ODD) {
+            RequestTemplate t = base(v).template();
+            for (String c : ODD) {
+                Types.TransactionDetails templated = t.order("O-" + c, Money.ofMinor(1250, "ETB"))
+                        .customerEmail(c).customerMobile(c).build();
+                Types.TransactionDetails plain = base(v).orderNumber("O-" + c).amount("12.50")
+                        .customerEmail(c).customerMobile(c).build();
+                assertArrayEquals(bytes(Assemble.apiMerchantRequest(Assemble.apiDetails(plain, "M1"))),
+                        bytes(Assemble.apiMerchantRequest(templated)), v + " / " + c);
+            }
+        }
+    }
+
+    @Test
+    void customerFieldsDefaultToTheTemplateValues() {
+        RequestTemplate t = base("x").customerName("Abebe 😀").customerEmail("a@b.et").template();
+        Types.TransactionDetails plain = base("x").orderNumber("O1").amount("5.00")
+                .customerName("Abebe 😀").customerEmail("a@b.et").customerMobile("").uniqueId("").build();
+        assertArrayEquals(bytes(Assemble.merchantRequest(plain)),
+                bytes(Assemble.merchantRequest(t.order("O1", "5.00").build())));
+    }
+
+    @Test
+    void rejectsFieldsThatCollideWithPlaceholders() {
+        assertThrows(IllegalArgumentException.class, () -> base("\u0000order\u0000").template());
+    }
+
+    @Test
+    void rejectsAmountInAnotherCurrency() {
+        RequestTemplate t = base("x").template();
+        assertThrows(IllegalArgumentException.class, () -> t.order("O1", Money.ofMinor(100, "USD")));
+    }
+
+    private static byte[] bytes(ByteSink out) {
+        return Arrays.copyOf(out.array(), out.size());
+    }
+}
@@ -0,0 +1,91 @@
+package com.yagoutpay.sdk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class ResponsesTest {
+    private static final ObjectMapper OM = new ObjectMapper();
+
+    private static Responses.Link link(String body) {
+        return Responses.link(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void linkRawKeepsTheWholeTree() throws Exception {
+        String[] bodies = {
+            "{\"status\":\"ok\",\"response\":\"QUJD\",\"data\":{\"url\":\"https://x\",\"tags\":[1,2.5,null,true]},"
+                    + "\"items\":[{\"a\":\"b\"},[]],\"big\":123456789012345678901234,\"n\":-7,\"f\":1e3}",
+            "{}",
+            "{\"emoji\":\"😀\",\"nested\":{\"deeper\":{\"x\":[{\"y\":null}]}}}",
+        };
+        for (String body : bodies)
+            assertEquals(OM.readValue(body, Object.class), link(body).raw, body);
+    }
+
+    @Test
+    void preferredCandidateCarriesThePayload() {
+        assertEquals("QUJD", link("{\"data\":\"REVG\",\"response\":\"QUJD\"}").encryptedText);
+        assertEquals("REVG", link("{\"response\":null,\"data\":\"REVG\"}").encryptedText);
+        assertNull(link("{\"response\":{\"x\":1},\"data\":\"REVG\"}").encryptedText);
+        assertNull(link("{\"response\":\"\"}").encryptedText);
+        assertNull(link("{\"status\":\"ok\"}").encryptedText);
+    }
+
+    @Test
+    void nonObjectBodiesFallBack() throws Exception {
+        assertEquals("", link("").raw);
+        assertEquals(OM.readValue("[1,{\"a\":2}]", Object.class), link("[1,{\"a\":2}]").raw);
+        Responses.Link text = link("QUJDREVG");
+        assertEquals("QUJDREVG", text.raw);
+        assertEquals("QUJDREVG", text.encryptedText);
+        Responses.Link broken = link("{\"response\":\"QUJD\"");
+        assertEquals("{\"response\":\"QUJD\"", broken.raw);
+    }
+
+    @Test
+    void typedViewReadsTopLevelFields() {
+        Types.PaymentLinkResponse r = Types.PaymentLinkResponse.from(
+                link("{\"status\":\"ok\",\"url\":\"https://pay\",\"qr\":{\"png\":\"x\"}}").raw);
+        assertEquals("ok", r.status);
+        assertEquals("https://pay", r.url);
+        assertNull(r.qr);
+        assertEquals(Map.of("png", "x"), r.fields.get("qr"));
+    }
+
+    @Test
+    void apiEnvelopeSkipsUnknownFields() throws IOException {
+        String body = "{\"merchantId\":\"M1\",\"extra\":{\"a\":[1]},"
+                + "\"status\":\"Success\",\"statusMessage\":null,\"response\":\"QUJD\"}";
+        Types.ApiIntegrationResponse r = Responses.api(body.getBytes(StandardCharsets.UTF_8));
+        assertEquals("M1", r.merchantId);
+        assertEquals("Success", r.status);
+        assertNull(r.statusMessage);
+        assertEquals("QUJD", r.response);
+        assertThrows(IOException.class, () -> Responses.api("[]".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void apiStatusReadsEitherNaming() {
+        Types.ApiStatus snake = new Types.ApiRequestResult(null, "{\"me_id\":\"M1\",\"order_no\":\"O1\","
+                + "\"amount\":\"10.00\",\"currency\":\"ETB\",\"status\":\"SUCCESS\","
+                + "\"res_message\":\"Approved\",\"extra\":{\"x\":1}}", "e").apiStatus();
+        assertEquals("M1", snake.merchantId);
+        assertEquals("O1", snake.orderNumber);
+        assertEquals("10.00", snake.amount);
+        assertEquals("SUCCESS", snake.status);
+        assertEquals("Approved", snake.statusMessage);
+        Types.ApiStatus camel = new Types.ApiRequestResult(null, "{\"merchantId\":\"M2\",\"orderNo\":\"O2\","
+                + "\"statusMessage\":\"Declined\"}", "e").apiStatus();
+        assertEquals("M2", camel.merchantId);
+        assertEquals("O2", camel.orderNumber);
+        assertEquals("Declined", camel.statusMessage);
+        assertNull(new Types.ApiRequestResult(null, (String) null, "e").apiStatus());
+    }
+}
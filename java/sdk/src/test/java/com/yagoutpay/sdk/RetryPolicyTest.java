@@ -0,0 +1,101 @@
+package com.yagoutpay.sdk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import org.junit.jupiter.api.Test;
+
+class RetryPolicyTest {
+    private static final long FAR = Long.MAX_VALUE;
+
+    private static RetryPolicy policy() {
+        RetryPolicy p = new RetryPolicy();
+        p.initialBackoff = Duration.ofMillis(100);
+        p.maxBackoff = Duration.ofMillis(300);
+        p.jitter = 0;
+        p.maxAttempts = 5;
+        return p;
+    }
+
+    @Test
+    void backoffGrowsAndIsCapped() {
+        RetryPolicy p = policy();
+        IOException e = new ConnectException("refused");
+        assertEquals(Duration.ofMillis(100).toNanos(), p.delayNanos(1, e, FAR, false));
+        assertEquals(Duration.ofMillis(200).toNanos(), p.delayNanos(2, e, FAR, false));
+        assertEquals(Duration.ofMillis(300).toNanos(), p.delayNanos(3, e, FAR, false));
+        assertEquals(Duration.ofMillis(300).toNanos(), p.delayNanos(4, e, FAR, false));
+        assertEquals(-1, p.delayNanos(5, e, FAR, false));
+    }
+
+    @Test
+    void jitterStaysWithinTheBackoff() {
+        RetryPolicy p = policy();
+        p.jitter = 1;
+        for (int i = 0; i < 1000; i++) {
+            long d = p.delayNanos(1, new ConnectException(), FAR, false);
+            assertTrue(d >= 0 && d <= Duration.ofMillis(100).toNanos(), "delay " + d);
+        }
+        p.jitter = 7; // clamped to full jitter
+        long d = p.delayNanos(1, new ConnectException(), FAR, false);
+        assertTrue(d >= 0 && d <= Duration.ofMillis(100).toNanos(), "delay " + d);
+    }
+
+    @Test
+    void waitPastTheDeadlineGivesUp() {
+        RetryPolicy p = policy();
+        long deadline = System.nanoTime() + Duration.ofMillis(50).toNanos();
+        assertEquals(-1, p.delayNanos(1, new ConnectException(), deadline, false));
+        p.totalBudget = null;
+        assertEquals(Long.MAX_VALUE, p.deadlineNanos(System.nanoTime()));
+    }
+
+    @Test
+    void statusesAreRetriedOnlyWhenListed() {
+        RetryPolicy p = policy();
+        assertTrue(p.delayNanos(1, new GatewayException("busy", 503, ""), FAR, false) > 0);
+        assertEquals(-1, p.delayNanos(1, new GatewayException("bad", 400, ""), FAR, false));
+        assertEquals(-1, p.delayNanos(1, new GatewayException("error", 500, ""), FAR, true));
+    }
+
+    @Test
+    void upstreamErrorsNeedAnIdempotentCallOrOptIn() {
+        RetryPolicy p = policy();
+        for (int status : new int[] { 502, 504 }) {
+            GatewayException e = new GatewayException("upstream", status, "");
+            assertEquals(-1, p.delayNanos(1, e, FAR, false));
+            assertTrue(p.delayNanos(1, e, FAR, true) > 0);
+        }
+        assertTrue(p.delayNanos(1, new GatewayException("slow down", 429, ""), FAR, false) > 0);
+        p.retryUpstreamErrors = true;
+        assertTrue(p.delayNanos(1, new GatewayException("upstream", 502, ""), FAR, false) > 0);
+        p.retryStatuses = Set.of(503);
+        assertEquals(-1, p.delayNanos(1, new GatewayException("upstream", 504, ""), FAR, true));
+    }
+
+    @Test
+    void requestTimeoutsNeedAnIdempotentCallOrOptIn() {
+        RetryPolicy p = policy();
+        HttpTimeoutException timeout = new HttpTimeoutException("request timed out");
+        assertEquals(-1, p.delayNanos(1, timeout, FAR, false));
+        assertTrue(p.delayNanos(1, timeout, FAR, true) > 0);
+        assertTrue(p.delayNanos(1, new HttpConnectTimeoutException("connect"), FAR, false) > 0);
+        p.retryTimeouts = true;
+        assertTrue(p.delayNanos(1, timeout, FAR, false) > 0);
+    }
+
+    @Test
+    void wrappedAndUnlistedErrors() {
+        RetryPolicy p = policy();
+        assertTrue(p.delayNanos(1, new CompletionException(new ConnectException()), FAR, false) > 0);
+        assertEquals(-1, p.delayNanos(1, new IllegalStateException(), FAR, false));
+        assertEquals(-1, p.delayNanos(1, new CompletionException(new IllegalStateException()), FAR, false));
+    }
+}
@@ -0,0 +1,137 @@
+package com.yagoutpay.sdk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SdkLoggerTest {
+    private static final String KEY = Base64.getEncoder().encodeToString(new byte[] {
+            9, 8, 7, 6, 5, 4, 3, 2, 1, 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16,
+            17, 18, 19, 20, 21, 22 });
+    private static final String CARD = "4111111111111111";
+    private static final Pattern LONG_BASE64 = Pattern.compile("[A-Za-z0-9+/]{17,}");
+
+    private HttpServer server;
+    private String url;
+
+    @BeforeEach
+    void start() throws IOException {
+        byte[] ok = "{\"merchantId\":\"M1\",\"status\":\"Success\",\"response\":\"\"}"
+                .getBytes(StandardCharsets.UTF_8);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", ex -> {
+            try (ex) {
+                ex.getRequestBody().readAllBytes();
+                ex.sendResponseHeaders(200, ok.length);
+                ex.getResponseBody().write(ok);
+            }
+        });
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/api";
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop(0);
+    }
+
+    /** Records every message; {@code enabled} decides what isEnabled answers. */
+    private static final class Recorder implements SdkLogger {
+        final boolean enabled;
+        final AtomicInteger checks = new AtomicInteger();
+        final List<String> messages = new ArrayList<>();
+
+        Recorder(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        @Override
+        public boolean isEnabled(Level level) {
+            checks.incrementAndGet();
+            return enabled;
+        }
+
+        @Override
+        public synchronized void log(Level level, String message, Throwable error) {
+            messages.add(message);
+        }
+    }
+
+    private Client client(SdkLogger logger) {
+        Client.Config cfg = new Client.Config();
+        cfg.merchantId = "M1";
+        cfg.encryptionKey = KEY;
+        cfg.httpVersion = HttpClient.Version.HTTP_1_1;
+        cfg.logger = logger;
+        return new Client(cfg);
+    }
+
+    private static Types.TransactionDetails order() {
+        return Types.TransactionDetails.builder()
+                .aggregatorId("yagout").merchantId("M1").orderNumber("O1").amount("10.00")
+                .country("ETH").currency("ETB").transactionType("SALE")
+                .successUrl("").failureUrl("").channel("API")
+                .cardNumber(CARD).cvv("123").build();
+    }
+
+    @Test
+    void disabledLevelsBuildNoMessage() throws Exception {
+        Recorder quiet = new Recorder(false);
+        client(quiet).sendApi(order(), url);
+        assertTrue(quiet.checks.get() > 0);
+        assertTrue(quiet.messages.isEmpty());
+    }
+
+    @Test
+    void debugMessagesLeaveOutKeysCardsAndCipherText() throws Exception {
+        Recorder all = new Recorder(true);
+        Client c = client(all);
+        c.sendApi(order(), url);
+        c.sendApiAsync(order(), url).get();
+        assertFalse(all.messages.isEmpty());
+        for (String m : all.messages) {
+            assertFalse(m.contains(KEY), m);
+            assertFalse(m.contains(CARD), m);
+            assertFalse(LONG_BASE64.matcher(m).find(), m);
+        }
+        assertTrue(all.messages.stream().anyMatch(m -> m.contains("orderNo=O1")));
+    }
+
+    @Test
+    void previewKeepsOnlyTheEnds() {
+        assertNull(Redact.preview(null));
+        assertEquals("0123456789abcdef", Redact.preview("0123456789abcdef"));
+        String cipher = "A".repeat(8) + "secret-middle" + "B".repeat(8);
+        assertEquals("AAAAAAAA...BBBBBBBB (29 chars)", Redact.preview(cipher));
+    }
+
+    @Test
+    void streamLoggerHonoursTheMinimumLevel() {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        SdkLogger log = SdkLogger.stream(new PrintStream(buf, true, StandardCharsets.UTF_8), SdkLogger.Level.WARN);
+        assertFalse(log.isEnabled(SdkLogger.Level.INFO));
+        assertTrue(log.isEnabled(SdkLogger.Level.WARN));
+        assertTrue(log.isEnabled(SdkLogger.Level.ERROR));
+        log.log(SdkLogger.Level.WARN, "careful", null);
+        assertEquals("YagoutPay SDK [WARN] careful" + System.lineSeparator(), buf.toString(StandardCharsets.UTF_8));
+        assertFalse(SdkLogger.NONE.isEnabled(SdkLogger.Level.ERROR));
+    }
+}
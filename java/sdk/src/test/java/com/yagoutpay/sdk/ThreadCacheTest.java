@@ -0,0 +1,55 @@
+package com.yagoutpay.sdk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Base64;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class ThreadCacheTest {
+    @Test
+    void platformThreadKeepsItsInstanceUntilDiscarded() {
+        AtomicInteger created = new AtomicInteger();
+        ThreadCache<Object> cache = new ThreadCache<>(() -> {
+            created.incrementAndGet();
+            return new Object();
+        });
+        Object first = cache.acquire();
+        cache.release(first);
+        assertSame(first, cache.acquire());
+        cache.discard(first);
+        assertNotSame(first, cache.acquire());
+        assertEquals(2, created.get());
+    }
+
+    @Test
+    void cipherAndDigestSurviveAFailedCall() {
+        CipherEngine engine = new CipherEngine(Base64.getEncoder().encodeToString(new byte[32]));
+        String sealed = engine.encrypt("hello");
+        try {
+            engine.decrypt("AAAA");
+        } catch (RuntimeException expected) {
+            // not a whole block
+        }
+        assertEquals("hello", engine.decrypt(sealed));
+        assertEquals(Hashing.sha256Hex("abc"), Hashing.sha256Hex("abc", new String[0]));
+    }
+
+    @Test
+    void closeLeavesACallerExecutorRunning() {
+        ExecutorService exec = Executors.newSingleThreadExecutor();
+        try {
+            Transport.Config cfg = new Transport.Config();
+            cfg.executor = exec;
+            new Transport(cfg).close();
+            assertFalse(exec.isShutdown());
+        } finally {
+            exec.shutdownNow();
+        }
+    }
+}
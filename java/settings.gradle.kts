@@ -1,4 +1,7 @@
 rootProject.name = "yagoutpay-java"
 include("sdk", "demo")
 
-
+// The JMH plugin is resolved from the plugin portal; keep it out of ordinary (and offline) builds.
+if (providers.gradleProperty("benchmarks").isPresent) {
+    include("benchmarks")
+}